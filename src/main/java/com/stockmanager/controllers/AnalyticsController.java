@@ -1,62 +1,169 @@
 // AnalyticsController.java - Complete implementation
 package com.stockmanager.controllers;
 
+import com.stockmanager.models.ColumnarInventory;
+import com.stockmanager.models.CompactCatalog;
+import com.stockmanager.models.InventorySummary;
+import com.stockmanager.models.InventoryView;
+import com.stockmanager.models.OffHeapInventorySnapshot;
 import com.stockmanager.models.StockItem;
+import com.stockmanager.models.Supplier;
+import com.stockmanager.models.Warehouse;
+import com.stockmanager.utils.Money;
 
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
- * Controller for analytics operations
+ * Controller for analytics operations.
+ * Aggregations run over a columnar copy of the inventory that is loaded once
+ * and then kept current from the stock controller's write deltas, or over the
+ * stock controller's off-heap snapshot when that is enabled.
+ * With -Dstockmanager.analyticsmirror=true they run as SQL over an in-memory
+ * SQLite mirror instead, on a thread of its own away from the database file.
  */
 public class AnalyticsController {
+    private static final boolean ANALYTICS_MIRROR = Boolean.getBoolean("stockmanager.analyticsmirror");
+    
     private StockController stockController;
+    private WarehouseController warehouseController;
+    
+    // Loaded on first use; guarded by this controller's monitor together with the deltas
+    private ColumnarInventory inventory;
+    
+    // Present only when the mirror is enabled and could be created
+    private AnalyticsMirror mirror;
     
-    public AnalyticsController(StockController stockController) {
+    public AnalyticsController(StockController stockController, WarehouseController warehouseController) {
         this.stockController = stockController;
+        this.warehouseController = warehouseController;
+        
+        stockController.addChangeListener(new StockController.ChangeListener() {
+            @Override
+            public void itemSaved(StockItem item) {
+                synchronized (AnalyticsController.this) {
+                    if (inventory != null) {
+                        inventory.upsert(item);
+                    }
+                }
+            }
+            
+            @Override
+            public void itemDeleted(String id) {
+                synchronized (AnalyticsController.this) {
+                    if (inventory != null) {
+                        inventory.remove(id);
+                    }
+                }
+            }
+            
+            @Override
+            public void supplierSaved(Supplier supplier) {
+                synchronized (AnalyticsController.this) {
+                    if (inventory != null) {
+                        inventory.upsertSupplier(supplier);
+                    }
+                }
+            }
+        });
+        
+        if (ANALYTICS_MIRROR) {
+            try {
+                mirror = new AnalyticsMirror(stockController);
+            } catch (SQLException e) {
+                System.err.println("Error creating analytics mirror: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Get the analytics mirror or the off-heap snapshot when enabled, otherwise
+     * the columnar inventory, loading it from the database on first use.
+     * A delta that arrives during the load waits for it and is then applied on top;
+     * deltas are idempotent, so one the load already saw does no harm.
+     */
+    private synchronized InventoryView getInventory() {
+        if (mirror != null) {
+            return mirror;
+        }
+        OffHeapInventorySnapshot snapshot = stockController.getOffHeapSnapshot();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        if (inventory == null) {
+            inventory = ColumnarInventory.from(stockController.loadCompactCatalog());
+        }
+        return inventory;
+    }
+    
+    /**
+     * Get the item count, total value, low stock items and chart data of one
+     * state of the inventory, so a refresh never mixes figures from before and
+     * after a write. The columnar inventory is loaded from a single database
+     * snapshot and locked against deltas while the figures are taken; the
+     * off-heap snapshot never changes, and the mirror takes all the figures
+     * in one task on its own thread.
+     */
+    public InventorySummary getInventorySummary(int lowStockThreshold) {
+        if (mirror != null) {
+            return mirror.getSummary(lowStockThreshold);
+        }
+        InventoryView view = getInventory();
+        synchronized (view) {
+            return InventorySummary.of(view, lowStockThreshold);
+        }
+    }
+    
+    /**
+     * Get the same figures for the inventory as it stood at a past time,
+     * aggregated over the quantities rebuilt from the stock movement log
+     */
+    public InventorySummary getInventorySummaryAsOf(Instant asOf, int lowStockThreshold) {
+        CompactCatalog catalog = new CompactCatalog();
+        for (StockItem item : stockController.getStockItemsAsOf(asOf)) {
+            catalog.add(item);
+        }
+        return InventorySummary.of(ColumnarInventory.from(catalog), lowStockThreshold);
     }
     
     // Get sales data by supplier (for demonstration, based on stock value)
     public Map<String, Double> getSalesBySupplier() {
-        return stockController.getAllStockItems().stream()
-            .collect(Collectors.groupingBy(
-                item -> item.getSupplier().getName(),
-                Collectors.summingDouble(StockItem::getTotalValue)
-            ));
+        return getInventory().getValueBySupplier();
     }
     
-    // Get inventory value by category (for demo, we'll simulate categories)
-    public Map<String, Double> getInventoryValueByCategory() {
-        // This is a simplification - in a real app, items would have categories
-        Map<String, Double> result = new HashMap<>();
-        result.put("Electronics", 50000.0);
-        result.put("Furniture", 30000.0);
-        result.put("Office Supplies", 15000.0);
-        result.put("Miscellaneous", 5000.0);
+    // Get inventory value per warehouse name, each summed by its own query, all running in parallel
+    public Map<String, Double> getInventoryValueByWarehouse() {
+        if (warehouseController == null) {
+            // Without warehouses all stock is in the one store
+            return Collections.singletonMap("Main", Money.toDouble(getTotalInventoryValueCents()));
+        }
+        
+        Map<String, Long> valueCents = warehouseController.getValueCentsByWarehouse();
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Warehouse warehouse : warehouseController.getWarehouses()) {
+            Long cents = valueCents.get(warehouse.getCode());
+            if (cents != null) {
+                result.put(warehouse.getName(), Money.toDouble(cents));
+            }
+        }
         return result;
     }
     
     // Get low stock items (items with quantity below threshold)
     public List<StockItem> getLowStockItems(int threshold) {
-        return stockController.getAllStockItems().stream()
-            .filter(item -> item.getQuantity() < threshold)
-            .collect(Collectors.toList());
+        return getInventory().getItemsBelow(threshold);
     }
     
-    // Get total inventory value
-    public double getTotalInventoryValue() {
-        return stockController.getAllStockItems().stream()
-            .mapToDouble(StockItem::getTotalValue)
-            .sum();
+    // Get total inventory value in cents, summed exactly
+    public long getTotalInventoryValueCents() {
+        return getInventory().getTotalValueCents();
     }
     
     // Get inventory levels for all items
     public Map<String, Integer> getInventoryLevels() {
-        return stockController.getAllStockItems().stream()
-            .collect(Collectors.toMap(
-                StockItem::getName,
-                StockItem::getQuantity
-            ));
+        return getInventory().getQuantitiesByName();
     }
     
     // Get monthly sales data (simulated)
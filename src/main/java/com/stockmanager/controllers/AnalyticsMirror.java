@@ -0,0 +1,322 @@
+// AnalyticsMirror.java
+package com.stockmanager.controllers;
+
+import com.stockmanager.models.CompactCatalog;
+import com.stockmanager.models.CompactStockItem;
+import com.stockmanager.models.InventorySummary;
+import com.stockmanager.models.InventoryView;
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.Supplier;
+import com.stockmanager.utils.DatabaseHelper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A copy of the items and suppliers in an in-memory SQLite database, so
+ * analytics queries put no load on the database file. It is filled from a
+ * catalog load on startup and then kept current from the stock controller's
+ * change events.
+ *
+ * One thread owns the in-memory connection and runs the load, the changes and
+ * the queries in the order they arrive, so a query sees every change made
+ * before it was asked, and a save only queues its change and never waits on
+ * a report.
+ */
+public class AnalyticsMirror implements InventoryView {
+    private static final String NO_SUPPLIER_NAME = "No Supplier";
+
+    private static final String UPSERT_ITEM =
+        "INSERT OR REPLACE INTO stock_items (id, name, description, price_cents, quantity, supplier_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_SUPPLIER =
+        "INSERT OR REPLACE INTO suppliers (id, name, contact_info, address, email, phone) VALUES (?, ?, ?, ?, ?, ?)";
+    // An item saved with a supplier the mirror has not seen brings that supplier's details along
+    private static final String INSERT_SUPPLIER =
+        "INSERT OR IGNORE INTO suppliers (id, name, contact_info, address, email, phone) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final Connection conn;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "analytics-mirror");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AnalyticsMirror(StockController stockController) throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE suppliers (" +
+                         "id TEXT PRIMARY KEY, name TEXT, contact_info TEXT, address TEXT, email TEXT, phone TEXT)");
+            stmt.execute("CREATE TABLE stock_items (" +
+                         "id TEXT PRIMARY KEY, name TEXT, description TEXT, price_cents INTEGER NOT NULL, " +
+                         "quantity INTEGER NOT NULL, supplier_id TEXT)");
+            stmt.execute("CREATE INDEX idx_mirror_quantity ON stock_items(quantity)");
+            stmt.execute("CREATE INDEX idx_mirror_supplier ON stock_items(supplier_id)");
+        }
+
+        // Listen before loading, so no change can fall between the load and the first delta.
+        // Changes are idempotent, so one the load already saw does no harm.
+        stockController.addChangeListener(new StockController.ChangeListener() {
+            @Override
+            public void itemSaved(StockItem item) {
+                StockItem copy = new StockItem(item);
+                copy.setSupplier(item.getSupplier() == null ? null : copy(item.getSupplier()));
+                apply(() -> upsertItem(copy));
+            }
+
+            @Override
+            public void itemDeleted(String id) {
+                apply(() -> {
+                    try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM stock_items WHERE id = ?")) {
+                        stmt.setString(1, id);
+                        stmt.executeUpdate();
+                    }
+                });
+            }
+
+            @Override
+            public void supplierSaved(Supplier supplier) {
+                Supplier copy = copy(supplier);
+                apply(() -> {
+                    try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SUPPLIER)) {
+                        bindSupplier(stmt, copy);
+                        stmt.executeUpdate();
+                    }
+                });
+            }
+        });
+        apply(() -> load(stockController.loadCompactCatalog()));
+    }
+
+    /**
+     * Take all the figures of a summary in one task, so no change lands between them
+     */
+    public InventorySummary getSummary(int lowStockThreshold) {
+        return query(c -> new InventorySummary(
+            countItems(),
+            sumValue(),
+            selectItemsBelow(lowStockThreshold),
+            sumValueBySupplier(),
+            sumQuantitiesByName()
+        ), new InventorySummary(0, 0, Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap()));
+    }
+
+    @Override
+    public int size() {
+        return query(c -> countItems(), 0);
+    }
+
+    @Override
+    public long getTotalValueCents() {
+        return query(c -> sumValue(), 0L);
+    }
+
+    @Override
+    public Map<String, Double> getValueBySupplier() {
+        return query(c -> sumValueBySupplier(), Collections.emptyMap());
+    }
+
+    @Override
+    public Map<String, Integer> getQuantitiesByName() {
+        return query(c -> sumQuantitiesByName(), Collections.emptyMap());
+    }
+
+    @Override
+    public List<StockItem> getItemsBelow(int threshold) {
+        return query(c -> selectItemsBelow(threshold), Collections.emptyList());
+    }
+
+    /**
+     * Queue a change to the mirror without waiting for it
+     */
+    private void apply(Change change) {
+        worker.execute(() -> {
+            try {
+                change.run();
+            } catch (SQLException e) {
+                System.err.println("Error updating analytics mirror: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Run a query after every change queued before it, returning the fallback if it fails
+     */
+    private <T> T query(DatabaseHelper.TransactionWork<T> work, T fallback) {
+        try {
+            return worker.submit(() -> work.run(conn)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException e) {
+            System.err.println("Error querying analytics mirror: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+            return fallback;
+        }
+    }
+
+    private void load(CompactCatalog catalog) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement suppliers = conn.prepareStatement(UPSERT_SUPPLIER);
+             PreparedStatement items = conn.prepareStatement(UPSERT_ITEM)) {
+            for (Supplier supplier : catalog.getSuppliers()) {
+                bindSupplier(suppliers, supplier);
+                suppliers.addBatch();
+            }
+            suppliers.executeBatch();
+
+            for (CompactStockItem item : catalog.getItems()) {
+                Supplier supplier = catalog.getSupplier(item.getSupplierSlot());
+                bindItem(items, item.getId(), item.getName(), item.getDescription(), item.getPriceCents(),
+                         item.getQuantity(), supplier == null ? null : supplier.getId());
+                items.addBatch();
+            }
+            items.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private void upsertItem(StockItem item) throws SQLException {
+        String supplierId = null;
+        if (item.getSupplier() != null && item.getSupplier().getId() != null) {
+            supplierId = item.getSupplier().getId();
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_SUPPLIER)) {
+                bindSupplier(stmt, item.getSupplier());
+                stmt.executeUpdate();
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_ITEM)) {
+            bindItem(stmt, item.getId(), item.getName(), item.getDescription(), item.getPriceCents(),
+                     item.getQuantity(), supplierId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private int countItems() throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM stock_items")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private long sumValue() throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(SUM(price_cents * quantity), 0) FROM stock_items")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private Map<String, Double> sumValueBySupplier() throws SQLException {
+        // Grouped by id, then merged by name, since two suppliers may share a name
+        String sql = "SELECT s.id IS NULL, s.name, SUM(i.price_cents * i.quantity) " +
+                     "FROM stock_items i LEFT JOIN suppliers s ON i.supplier_id = s.id " +
+                     "GROUP BY i.supplier_id";
+        Map<String, Double> result = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                String name = rs.getBoolean(1) ? NO_SUPPLIER_NAME : rs.getString(2);
+                result.merge(name, rs.getLong(3) / 100.0, Double::sum);
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Integer> sumQuantitiesByName() throws SQLException {
+        // In the order the names were first stored, as the columnar inventory lists them
+        String sql = "SELECT name, SUM(quantity) FROM stock_items GROUP BY name ORDER BY MIN(rowid)";
+        Map<String, Integer> result = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                result.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return result;
+    }
+
+    private List<StockItem> selectItemsBelow(int threshold) throws SQLException {
+        String sql = "SELECT i.id, i.name, i.description, i.price_cents, i.quantity, " +
+                     "s.id, s.name, s.contact_info, s.address, s.email, s.phone " +
+                     "FROM stock_items i LEFT JOIN suppliers s ON i.supplier_id = s.id " +
+                     "WHERE i.quantity < ?";
+        List<StockItem> items = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, threshold);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Supplier supplier = new Supplier(
+                        rs.getString(6),
+                        rs.getString(7),
+                        rs.getString(8),
+                        rs.getString(9),
+                        rs.getString(10),
+                        rs.getString(11)
+                    );
+                    items.add(new StockItem(
+                        rs.getString(1),
+                        rs.getString(2),
+                        rs.getString(3),
+                        rs.getLong(4),
+                        rs.getInt(5),
+                        supplier
+                    ));
+                }
+            }
+        }
+        return items;
+    }
+
+    private static void bindItem(PreparedStatement stmt, String id, String name, String description,
+                                 long priceCents, int quantity, String supplierId) throws SQLException {
+        stmt.setString(1, id);
+        stmt.setString(2, name);
+        stmt.setString(3, description);
+        stmt.setLong(4, priceCents);
+        stmt.setInt(5, quantity);
+        stmt.setString(6, supplierId);
+    }
+
+    private static void bindSupplier(PreparedStatement stmt, Supplier supplier) throws SQLException {
+        stmt.setString(1, supplier.getId());
+        stmt.setString(2, supplier.getName());
+        stmt.setString(3, supplier.getContactInfo());
+        stmt.setString(4, supplier.getAddress());
+        stmt.setString(5, supplier.getEmail());
+        stmt.setString(6, supplier.getPhone());
+    }
+
+    private static Supplier copy(Supplier supplier) {
+        return new Supplier(
+            supplier.getId(),
+            supplier.getName(),
+            supplier.getContactInfo(),
+            supplier.getAddress(),
+            supplier.getEmail(),
+            supplier.getPhone()
+        );
+    }
+
+    private interface Change {
+        void run() throws SQLException;
+    }
+}
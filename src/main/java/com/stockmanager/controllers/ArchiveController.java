@@ -0,0 +1,200 @@
+// ArchiveController.java
+package com.stockmanager.controllers;
+
+import com.stockmanager.models.StockItem;
+import com.stockmanager.repository.SqliteStockItemRepository;
+import com.stockmanager.utils.DatabaseHelper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller for moving dormant items between stock_items and the cold
+ * archived_stock_items table. An item with no stock left, no open
+ * reservations and no change for a number of days is moved out once a day,
+ * so listing, searching and analytics only scan and index live items.
+ * Archived items are searched separately on request and can be restored.
+ * The cold table lives in the same database file, so moving a row is one
+ * transaction and cannot lose or duplicate it.
+ */
+public class ArchiveController {
+    // Days without a change before an empty item is archived; set with -Dstockmanager.archiveAfterDays
+    private static final int ARCHIVE_AFTER_DAYS = Integer.getInteger("stockmanager.archiveAfterDays", 365);
+
+    private static final long ARCHIVE_INTERVAL_HOURS = 24;
+
+    // Columns copied between the two tables; the total value is generated in each
+    private static final String COLUMNS = "id, name, description, price_cents, quantity, supplier_id, version";
+
+    private final StockController stockController;
+    private final WarehouseController warehouseController;
+    private final ScheduledExecutorService archiver;
+
+    /**
+     * Start archiving dormant items in the background, first shortly after startup
+     */
+    public ArchiveController(StockController stockController, WarehouseController warehouseController) {
+        this.stockController = stockController;
+        this.warehouseController = warehouseController;
+
+        archiver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        archiver.scheduleWithFixedDelay(() -> archiveDormantItems(ARCHIVE_AFTER_DAYS),
+                                        1, ARCHIVE_INTERVAL_HOURS * 60, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Move items with zero quantity, none in other warehouses, no open
+     * reservations, no pending quantity change and no change in the given
+     * number of days to the archive
+     * @return the ids of the archived items
+     */
+    public List<String> archiveDormantItems(int days) {
+        try {
+            // Warehouse adjustments and scans wait until the items are moved; after that one of them is refused as unknown
+            List<String> ids = warehouseController.withAdjustmentsHeld(() -> {
+                // Read from the other warehouses' files first, keeping the transaction to this one
+                Set<String> stockedElsewhere = warehouseController.getItemsStockedOutsideMain();
+                return stockController.withQuantityChangesPaused(() -> stockController.changeItems(
+                    () -> DatabaseHelper.inTransaction(conn -> moveDormantItems(conn, days, stockedElsewhere))));
+            });
+            if (!ids.isEmpty()) {
+                stockController.itemsRemoved(ids);
+            }
+            return ids;
+        } catch (SQLException e) {
+            System.err.println("Error archiving stock items: " + e.getMessage());
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    private List<String> moveDormantItems(Connection conn, int days, Set<String> stockedElsewhere)
+            throws SQLException {
+        List<String> archived = new ArrayList<>();
+        try (PreparedStatement find = conn.prepareStatement(
+                 "SELECT id FROM stock_items i WHERE quantity = 0 " +
+                 "AND last_modified < datetime('now', ?) " +
+                 "AND NOT EXISTS (SELECT 1 FROM reservations r WHERE r.item_id = i.id)")) {
+            find.setString(1, "-" + days + " days");
+            try (ResultSet rs = find.executeQuery()) {
+                while (rs.next()) {
+                    // A scan waiting for or in a flush is about to change it
+                    if (!stockController.hasUnappliedQuantityChange(rs.getString(1))
+                            && !stockedElsewhere.contains(rs.getString(1))) {
+                        archived.add(rs.getString(1));
+                    }
+                }
+            }
+        }
+        move(conn, archived, "stock_items", "archived_stock_items");
+        return archived;
+    }
+
+    /**
+     * Search archived items by name or description; an empty query lists them all
+     */
+    public List<StockItem> searchArchivedItems(String query) {
+        List<StockItem> items = new ArrayList<>();
+        String sql = SqliteStockItemRepository.itemSelect("archived_stock_items") +
+                     " WHERE i.name LIKE ? OR i.description LIKE ? ORDER BY i.name";
+
+        try (PreparedStatement stmt = DatabaseHelper.getConnection().prepareStatement(sql)) {
+            String pattern = "%" + (query == null ? "" : query.trim()) + "%";
+            stmt.setString(1, pattern);
+            stmt.setString(2, pattern);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(SqliteStockItemRepository.mapStockItem(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error searching archived items: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return items;
+    }
+
+    /**
+     * Whether an archived item has the id
+     */
+    public boolean isArchived(String id) {
+        try (PreparedStatement stmt = DatabaseHelper.getConnection().prepareStatement(
+                 "SELECT 1 FROM archived_stock_items WHERE id = ?")) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error looking up archived item: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Move an archived item back to the live items
+     * @return false if no archived item has the id
+     */
+    public boolean restoreItem(String id) {
+        try {
+            List<String> ids = Collections.singletonList(id);
+            int restored = stockController.changeItems(() -> DatabaseHelper.inTransaction(
+                conn -> move(conn, ids, "archived_stock_items", "stock_items")));
+            if (restored == 0) {
+                return false;
+            }
+            stockController.itemsRestored(ids);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error restoring archived item: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Stop archiving in the background
+     */
+    public void shutdown() {
+        archiver.shutdown();
+    }
+
+    /**
+     * Copy rows to the other table, stamped with the time of the move, and delete them from this one
+     * @return the number of rows moved
+     */
+    static int move(Connection conn, List<String> ids, String from, String to) throws SQLException {
+        String stamp = to.equals("stock_items") ? "last_modified" : "archived_at";
+        try (PreparedStatement copy = conn.prepareStatement(
+                 "INSERT INTO " + to + " (" + COLUMNS + ", " + stamp + ") " +
+                 "SELECT " + COLUMNS + ", CURRENT_TIMESTAMP FROM " + from + " WHERE id = ?");
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM " + from + " WHERE id = ?")) {
+
+            int moved = 0;
+            for (String id : ids) {
+                copy.setString(1, id);
+                if (copy.executeUpdate() == 0) {
+                    continue;
+                }
+                delete.setString(1, id);
+                delete.executeUpdate();
+                moved++;
+            }
+            return moved;
+        }
+    }
+}
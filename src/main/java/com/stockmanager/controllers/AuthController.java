@@ -2,43 +2,37 @@
 package com.stockmanager.controllers;
 
 import com.stockmanager.models.User;
-import com.stockmanager.utils.DatabaseHelper;
+import com.stockmanager.repository.Repositories;
+import com.stockmanager.repository.UserRepository;
+import com.stockmanager.utils.IdGenerator;
 
 import java.sql.*;
-import java.util.UUID;
 
 /**
  * Controller for user authentication operations
  */
 public class AuthController {
+    private final UserRepository userRepository;
     private User currentUser;
     
+    public AuthController() {
+        this(Repositories.users());
+    }
+    
+    public AuthController(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+    
     /**
      * Attempt to login with the provided credentials
      * @return User object if successful, null otherwise
      */
     public User login(String username, String password) {
-        String query = "SELECT * FROM users WHERE username = ? AND password = ?";
-        
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, username);
-            stmt.setString(2, password); // In real app, would compare hashed passwords
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    currentUser = new User(
-                        rs.getString("id"),
-                        rs.getString("username"),
-                        rs.getString("password"),
-                        rs.getString("fullName"),
-                        rs.getString("email"),
-                        rs.getString("role"),
-                        rs.getTimestamp("created_at")
-                    );
-                    return currentUser;
-                }
+        try {
+            User user = userRepository.findByCredentials(username, password);
+            if (user != null) {
+                currentUser = user;
+                return currentUser;
             }
         } catch (SQLException e) {
             System.err.println("Login error: " + e.getMessage());
@@ -53,35 +47,14 @@ public class AuthController {
      * @return User object if successful, null otherwise
      */
     public User register(String username, String password, String fullName, String email) {
-        String query = "INSERT INTO users (id, username, password, fullName, email, role) VALUES (?, ?, ?, ?, ?, ?)";
+        // New users get the default role
+        User user = new User(IdGenerator.newId(), username, password, fullName, email, "user",
+                             new Timestamp(System.currentTimeMillis()));
         
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            // Check if username already exists
-            PreparedStatement checkStmt = conn.prepareStatement(
-                "SELECT COUNT(*) FROM users WHERE username = ?"
-            );
-            checkStmt.setString(1, username);
-            ResultSet rs = checkStmt.executeQuery();
-            
-            if (rs.next() && rs.getInt(1) > 0) {
-                return null; // Username already exists
-            }
-            
-            String userId = "U" + UUID.randomUUID().toString().substring(0, 8);
-            
-            stmt.setString(1, userId);
-            stmt.setString(2, username);
-            stmt.setString(3, password); // In real app, should hash password
-            stmt.setString(4, fullName);
-            stmt.setString(5, email);
-            stmt.setString(6, "user"); // Default role
-            
-            int result = stmt.executeUpdate();
-            
-            if (result > 0) {
-                currentUser = new User(userId, username, password, fullName, email, "user", new Timestamp(System.currentTimeMillis()));
+        try {
+            // False if the username already exists
+            if (userRepository.insert(user)) {
+                currentUser = user;
                 return currentUser;
             }
         } catch (SQLException e) {
@@ -128,18 +101,8 @@ public class AuthController {
             return false;
         }
         
-        String query = "UPDATE users SET fullName = ?, email = ? WHERE id = ?";
-        
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, fullName);
-            stmt.setString(2, email);
-            stmt.setString(3, currentUser.getId());
-            
-            int result = stmt.executeUpdate();
-            
-            if (result > 0) {
+        try {
+            if (userRepository.updateProfile(currentUser.getId(), fullName, email)) {
                 currentUser.setFullName(fullName);
                 currentUser.setEmail(email);
                 return true;
@@ -160,17 +123,8 @@ public class AuthController {
             return false;
         }
         
-        String query = "UPDATE users SET password = ? WHERE id = ?";
-        
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, newPassword); // In real app, should hash password
-            stmt.setString(2, currentUser.getId());
-            
-            int result = stmt.executeUpdate();
-            
-            if (result > 0) {
+        try {
+            if (userRepository.updatePassword(currentUser.getId(), newPassword)) {
                 currentUser.setPassword(newPassword);
                 return true;
             }
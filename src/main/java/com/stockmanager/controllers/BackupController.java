@@ -0,0 +1,503 @@
+// BackupController.java
+package com.stockmanager.controllers;
+
+import com.stockmanager.models.BackupSet;
+import com.stockmanager.utils.DatabaseHelper;
+
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller for backing up the database while the app is in use, and for
+ * restoring a backup. A backup is copied from a single read snapshot, which
+ * in WAL mode never holds up writes, to a temporary file that only takes its
+ * final name once it passes an integrity check. Backups are taken on a
+ * background thread on request and once a day, and only the newest few are kept.
+ * Each warehouse's database file is copied alongside, from a read snapshot of
+ * its own taken just after the main one's, and a set only counts as a backup
+ * once all of its files have passed their checks.
+ *
+ * Restoring replaces the database the running app has cached and journaled
+ * against, so it is checked and then applied at the next startup, before
+ * anything opens the database. The current database and warehouse files are
+ * backed up first, and put back if the restored copy fails its check.
+ * Warehouse files the backup has no copy of are removed, as the restored
+ * database does not list those warehouses.
+ */
+public class BackupController {
+    private static final Path BACKUP_DIR = Paths.get("backups");
+
+    // Names the backup to restore at the next startup
+    private static final Path RESTORE_MARKER = BACKUP_DIR.resolve("restore.pending");
+
+    private static final String BACKUP_PREFIX = "stockmanager-";
+    private static final String PRE_RESTORE_PREFIX = "pre-restore-";
+    private static final String SUFFIX = ".db";
+    private static final String PARTIAL_SUFFIX = ".partial";
+    // A warehouse file's copy is named after its set, this and the warehouse code
+    private static final String WAREHOUSE_INFIX = ".warehouse-";
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // Backups kept of each kind; set with -Dstockmanager.backupsKept
+    private static final int BACKUPS_KEPT = Integer.getInteger("stockmanager.backupsKept", 7);
+
+    // Age of the newest backup at which another is taken; set with -Dstockmanager.backupIntervalHours
+    private static final int BACKUP_INTERVAL_HOURS = Integer.getInteger("stockmanager.backupIntervalHours", 24);
+
+    private static final long CHECK_INTERVAL_MINUTES = 60;
+
+    private final StockController stockController;
+    private final ScheduledExecutorService backupThread;
+
+    // The copy in progress, so shutdown can interrupt it
+    private volatile Statement runningCopy;
+    private volatile Path runningTarget;
+    private volatile long expectedBytes;
+
+    /**
+     * Start taking a backup whenever the newest is a day old, checking first shortly after startup
+     */
+    public BackupController(StockController stockController) {
+        this.stockController = stockController;
+
+        backupThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        backupThread.scheduleWithFixedDelay(this::backupIfDue, 5, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Take a backup on the background thread
+     * @return the new backup once it is written and checked
+     */
+    public Future<BackupSet> backupNow() {
+        return backupThread.submit(this::backup);
+    }
+
+    /**
+     * How far the running backup has got, from 0 to 1, or -1 if none is running
+     */
+    public double getBackupProgress() {
+        Path target = runningTarget;
+        long expected = expectedBytes;
+        if (target == null || expected <= 0) {
+            return -1;
+        }
+        try {
+            return Math.min(1.0, (double) Files.size(target) / expected);
+        } catch (IOException e) {
+            // Not created yet
+            return 0;
+        }
+    }
+
+    /**
+     * List the backups, newest first, including those taken before a restore
+     */
+    public List<BackupSet> listBackups() {
+        List<BackupSet> backups = new ArrayList<>();
+        try {
+            for (Path file : backupFiles(BACKUP_PREFIX)) {
+                backups.add(toBackupSet(file, BACKUP_PREFIX));
+            }
+            for (Path file : backupFiles(PRE_RESTORE_PREFIX)) {
+                backups.add(toBackupSet(file, PRE_RESTORE_PREFIX));
+            }
+        } catch (IOException e) {
+            System.err.println("Error listing backups: " + e.getMessage());
+            e.printStackTrace();
+        }
+        backups.sort(Comparator.comparing(BackupSet::getCreatedAt).reversed());
+        return backups;
+    }
+
+    /**
+     * Check a backup and arrange for it to replace the database at the next startup
+     * @return false if the backup is missing or fails its integrity check
+     */
+    public boolean scheduleRestore(String name) {
+        if (listBackups().stream().noneMatch(backup -> backup.getName().equals(name))) {
+            return false;
+        }
+        Path file = BACKUP_DIR.resolve(name);
+        try {
+            String problem = checkSet(file);
+            if (problem != null) {
+                System.err.println("Backup " + name + " failed its integrity check: " + problem);
+                return false;
+            }
+            Files.write(RESTORE_MARKER, name.getBytes(StandardCharsets.UTF_8));
+            return true;
+        } catch (IOException | SQLException e) {
+            System.err.println("Error scheduling restore: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * The backup to be restored at the next startup, or null if none is
+     */
+    public String getPendingRestore() {
+        try {
+            return Files.exists(RESTORE_MARKER)
+                ? new String(Files.readAllBytes(RESTORE_MARKER), StandardCharsets.UTF_8).trim()
+                : null;
+        } catch (IOException e) {
+            System.err.println("Error reading pending restore: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stop taking backups, interrupting one in progress
+     */
+    public void shutdown() {
+        backupThread.shutdown();
+        Statement copy = runningCopy;
+        if (copy != null) {
+            try {
+                copy.cancel();
+            } catch (SQLException e) {
+                System.err.println("Error stopping backup: " + e.getMessage());
+            }
+        }
+        try {
+            backupThread.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Restore the backup scheduled by scheduleRestore(), if there is one.
+     * Call before anything opens the database. The current database, the
+     * warehouse files and the quantity and write-behind journals written
+     * against them are kept in the backup directory under a pre-restore name.
+     * @return a message saying what was restored or why not, or null if no restore was scheduled
+     */
+    public static String applyPendingRestore() {
+        if (!Files.exists(RESTORE_MARKER)) {
+            return null;
+        }
+        try {
+            String name = new String(Files.readAllBytes(RESTORE_MARKER), StandardCharsets.UTF_8).trim();
+            Files.delete(RESTORE_MARKER);
+
+            Path backup = BACKUP_DIR.resolve(name);
+            String problem = Files.exists(backup) ? checkSet(backup) : "file not found";
+            if (problem != null) {
+                return "Backup " + name + " was not restored: " + problem;
+            }
+
+            Path database = DatabaseHelper.getDatabaseFile();
+            String stamp = LocalDateTime.now().format(STAMP);
+            Path saved = BACKUP_DIR.resolve(PRE_RESTORE_PREFIX + stamp + SUFFIX);
+            if (Files.exists(database)) {
+                copyInto(database, saved);
+            }
+            for (Map.Entry<String, Path> warehouse : WarehouseController.warehouseFiles().entrySet()) {
+                copyInto(warehouse.getValue(), warehouseCopy(saved, warehouse.getKey()));
+            }
+            for (Path journal : journalFiles()) {
+                Files.move(journal, BACKUP_DIR.resolve(PRE_RESTORE_PREFIX + stamp + "." + journal.getFileName()));
+            }
+
+            restore(database, backup);
+            restoreWarehouses(backup);
+            problem = checkIntegrity(database);
+            if (problem != null) {
+                if (Files.exists(saved)) {
+                    restore(database, saved);
+                    restoreWarehouses(saved);
+                }
+                return "Backup " + name + " was not restored: the restored database failed its check (" +
+                       problem + "), so the previous one was put back";
+            }
+            rotate(PRE_RESTORE_PREFIX);
+            return "Restored backup " + name + "; the previous database was saved as " + saved.getFileName();
+        } catch (IOException | SQLException e) {
+            System.err.println("Error restoring backup: " + e.getMessage());
+            e.printStackTrace();
+            return "The backup was not restored: " + e.getMessage();
+        }
+    }
+
+    private void backupIfDue() {
+        List<Path> files;
+        try {
+            files = backupFiles(BACKUP_PREFIX);
+        } catch (IOException e) {
+            System.err.println("Error listing backups: " + e.getMessage());
+            return;
+        }
+        Instant due = Instant.now().minusSeconds(BACKUP_INTERVAL_HOURS * 3600L);
+        if (!files.isEmpty() && toBackupSet(files.get(files.size() - 1), BACKUP_PREFIX).getCreatedAt().isAfter(due)) {
+            return;
+        }
+        try {
+            backup();
+        } catch (IOException | SQLException e) {
+            System.err.println("Error backing up database: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private BackupSet backup() throws IOException, SQLException {
+        stockController.awaitPendingWrites();
+        Files.createDirectories(BACKUP_DIR);
+
+        String name = BACKUP_PREFIX + LocalDateTime.now().format(STAMP) + SUFFIX;
+        Path target = BACKUP_DIR.resolve(name);
+        Path partial = BACKUP_DIR.resolve(name + PARTIAL_SUFFIX);
+        Files.deleteIfExists(partial);
+
+        // This thread's own connection, in autocommit, so the copy runs as one read transaction of its own
+        Connection conn = DatabaseHelper.getConnection();
+        expectedBytes = queryLong(conn, "PRAGMA page_size") *
+                        (queryLong(conn, "PRAGMA page_count") - queryLong(conn, "PRAGMA freelist_count"));
+        runningTarget = partial;
+        try (PreparedStatement copy = conn.prepareStatement("VACUUM INTO ?")) {
+            runningCopy = copy;
+            copy.setString(1, partial.toString());
+            copy.execute();
+        } catch (SQLException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        } finally {
+            runningCopy = null;
+            runningTarget = null;
+        }
+
+        String problem = checkIntegrity(partial);
+        if (problem != null) {
+            Files.deleteIfExists(partial);
+            throw new SQLException("Backup failed its integrity check: " + problem);
+        }
+
+        // The main file is moved into place last, completing the set
+        try {
+            for (Map.Entry<String, Path> warehouse : WarehouseController.warehouseFiles().entrySet()) {
+                Path copy = warehouseCopy(target, warehouse.getKey());
+                Path partialCopy = copy.resolveSibling(copy.getFileName() + PARTIAL_SUFFIX);
+                Files.deleteIfExists(partialCopy);
+                copyInto(warehouse.getValue(), partialCopy);
+                problem = checkIntegrity(partialCopy);
+                if (problem != null) {
+                    Files.delete(partialCopy);
+                    throw new SQLException("Backup of warehouse " + warehouse.getKey() +
+                                           " failed its integrity check: " + problem);
+                }
+                Files.move(partialCopy, copy, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException | SQLException e) {
+            Files.deleteIfExists(partial);
+            for (Path copy : warehouseCopies(target).values()) {
+                Files.delete(copy);
+            }
+            throw e;
+        }
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        rotate(BACKUP_PREFIX);
+        return toBackupSet(target, BACKUP_PREFIX);
+    }
+
+    /**
+     * Delete all but the newest backups with the prefix, with any journals saved alongside them
+     */
+    private static void rotate(String prefix) throws IOException {
+        List<Path> files = backupFiles(prefix);
+        for (int i = 0; i < files.size() - BACKUPS_KEPT; i++) {
+            String name = files.get(i).getFileName().toString();
+            String set = name.substring(0, name.length() - SUFFIX.length());
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(BACKUP_DIR, set + ".*")) {
+                for (Path file : stream) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finished backups with the prefix, oldest first; their timestamps sort by name
+     */
+    private static List<Path> backupFiles(String prefix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(BACKUP_DIR)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(BACKUP_DIR, prefix + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(Comparator.comparing(file -> file.getFileName().toString()));
+        return files;
+    }
+
+    private static BackupSet toBackupSet(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        Instant createdAt;
+        try {
+            String stamp = name.substring(prefix.length(), name.length() - SUFFIX.length());
+            createdAt = LocalDateTime.parse(stamp, STAMP).atZone(ZoneId.systemDefault()).toInstant();
+        } catch (DateTimeParseException e) {
+            createdAt = Instant.EPOCH;
+        }
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            size = 0;
+        }
+        return new BackupSet(name, createdAt, size);
+    }
+
+    /**
+     * Where the copy of a warehouse's file is kept for a backup
+     */
+    private static Path warehouseCopy(Path backup, String code) {
+        String name = backup.getFileName().toString();
+        return backup.resolveSibling(name.substring(0, name.length() - SUFFIX.length()) + WAREHOUSE_INFIX + code);
+    }
+
+    /**
+     * The warehouse file copies kept for a backup, by warehouse code
+     */
+    private static Map<String, Path> warehouseCopies(Path backup) throws IOException {
+        String name = backup.getFileName().toString();
+        String prefix = name.substring(0, name.length() - SUFFIX.length()) + WAREHOUSE_INFIX;
+        Map<String, Path> copies = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(backup.toAbsolutePath().getParent(), prefix + "*")) {
+            for (Path file : stream) {
+                String code = file.getFileName().toString().substring(prefix.length());
+                if (!code.endsWith(PARTIAL_SUFFIX)) {
+                    copies.put(code, file);
+                }
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * Check a backup and each of its warehouse copies
+     * @return null if all passed, otherwise the first problem reported
+     */
+    private static String checkSet(Path backup) throws IOException, SQLException {
+        String problem = checkIntegrity(backup);
+        if (problem != null) {
+            return problem;
+        }
+        for (Map.Entry<String, Path> copy : warehouseCopies(backup).entrySet()) {
+            problem = checkIntegrity(copy.getValue());
+            if (problem != null) {
+                return "warehouse " + copy.getKey() + ": " + problem;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace the warehouse files with the copies kept for a backup,
+     * removing those of warehouses it has no copy of
+     */
+    private static void restoreWarehouses(Path backup) throws IOException, SQLException {
+        Map<String, Path> copies = warehouseCopies(backup);
+        for (Map.Entry<String, Path> warehouse : WarehouseController.warehouseFiles().entrySet()) {
+            if (!copies.containsKey(warehouse.getKey())) {
+                Path file = warehouse.getValue();
+                Files.delete(file);
+                Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-wal"));
+                Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-shm"));
+            }
+        }
+        for (Map.Entry<String, Path> copy : copies.entrySet()) {
+            Path file = WarehouseController.warehouseFile(copy.getKey());
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            restore(file, copy.getValue());
+        }
+    }
+
+    private static List<Path> journalFiles() throws IOException {
+        List<Path> files = new ArrayList<>(QuantityAccumulator.journalFiles());
+        files.addAll(WriteBehindQueue.journalFiles());
+        return files;
+    }
+
+    /**
+     * Run PRAGMA integrity_check on a database file, opened read-only
+     * @return null if it passed, otherwise the first problem reported
+     */
+    private static String checkIntegrity(Path file) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        try (Connection conn = config.createConnection("jdbc:sqlite:" + file);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+            String result = rs.next() ? rs.getString(1) : "no result";
+            return "ok".equals(result) ? null : result;
+        }
+    }
+
+    /**
+     * Copy a database file to a new file, as of one read snapshot of it
+     */
+    private static void copyInto(Path database, Path target) throws IOException, SQLException {
+        Files.createDirectories(target.getParent());
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database);
+             PreparedStatement copy = conn.prepareStatement("VACUUM INTO ?")) {
+            copy.setString(1, target.toString());
+            copy.execute();
+        }
+    }
+
+    /**
+     * Overwrite the database with a backup through SQLite's backup API, which
+     * also replaces whatever its WAL holds
+     */
+    private static void restore(Path database, Path backup) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database)) {
+            int result = conn.unwrap(SQLiteConnection.class).getDatabase().restore("main", backup.toString(), null);
+            if (result != 0) {
+                throw new SQLException("Restore failed with SQLite result code " + result);
+            }
+        }
+    }
+
+    private static long queryLong(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,454 @@
+// QuantityAccumulator.java
+package com.stockmanager.controllers;
+
+import com.stockmanager.models.StockMovement;
+import com.stockmanager.utils.DatabaseHelper;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Absorbs high-rate quantity changes, such as barcode scans, in per-item LongAdders
+ * and applies their sums to stock_items in one batched transaction per flush.
+ * Flushes run on a timer and as soon as enough changes are pending.
+ *
+ * Every change is appended to a journal file, with a sequence number and a checksum,
+ * before it is counted. A flush records the last sequence number it covers in the same
+ * transaction as the quantities, so on startup the journal entries past that number are exactly
+ * the changes a crash left unapplied, and they are replayed. Entries reach the
+ * operating system immediately, so they survive the application crashing; a power
+ * loss can still drop the ones not yet flushed to the database.
+ */
+public class QuantityAccumulator {
+    private static final Path JOURNAL_FILE = Paths.get("quantity.journal");
+    // Journals handed over to a flush are renamed with the last sequence number they hold
+    private static final String ROTATED_PREFIX = JOURNAL_FILE.getFileName() + ".";
+
+    private static final long FLUSH_INTERVAL_MS = 1000;
+    private static final int FLUSH_THRESHOLD = 500;
+    private static final int ITEM_LOCKS = 64;
+
+    // The database's quantity together with the journal position it includes, read as of one moment
+    private static final String SELECT_LEVEL =
+        "SELECT i.quantity, s.last_applied_seq FROM stock_items i, quantity_journal_state s " +
+        "WHERE i.id = ? AND s.id = 1";
+
+    private final StockController stockController;
+
+    private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+
+    // Recording holds the read lock; a flush takes the write lock to drain a consistent cut
+    private final ReadWriteLock drainLock = new ReentrantReadWriteLock();
+
+    // Checking an item's stock and counting a change to it happen under the item's lock,
+    // so two changes can't both pass against the same level
+    private final Object[] itemLocks = new Object[ITEM_LOCKS];
+
+    // The changes drained by the flush being applied, or null; set and cleared under the drain lock
+    private volatile Drained inFlight;
+
+    // Guarded by journalLock
+    private final Object journalLock = new Object();
+    private Writer journal;
+    private long lastSeq;
+
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    /**
+     * Replay whatever an earlier run left in the journal, then start accepting changes
+     * @param stockController orders each flush after its pending saves and learns which items it changed
+     */
+    public QuantityAccumulator(StockController stockController) throws IOException, SQLException {
+        this.stockController = stockController;
+        for (int i = 0; i < itemLocks.length; i++) {
+            itemLocks[i] = new Object();
+        }
+        replayJournal();
+        journal = openJournal();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quantity-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Journal and count a quantity change
+     * @return false if the item does not exist, its quantity would go below zero counting
+     *         the changes not yet flushed, or the change could not be journaled
+     */
+    public boolean record(String itemId, long delta) {
+        drainLock.readLock().lock();
+        try {
+            synchronized (itemLocks[Math.floorMod(itemId.hashCode(), ITEM_LOCKS)]) {
+                Long available = availableQuantity(itemId);
+                if (available == null || available + delta < 0) {
+                    return false;
+                }
+                synchronized (journalLock) {
+                    journal.write(formatRecord(++lastSeq, itemId, delta));
+                    journal.flush();
+                }
+                pending.computeIfAbsent(itemId, id -> new LongAdder()).add(delta);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error checking stock quantity: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } catch (IOException e) {
+            System.err.println("Error journaling quantity change: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            drainLock.readLock().unlock();
+        }
+
+        if (pendingChanges.incrementAndGet() >= FLUSH_THRESHOLD && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+        return true;
+    }
+
+    /**
+     * Net change recorded for an item that has not been flushed yet
+     */
+    public long getPendingDelta(String itemId) {
+        LongAdder adder = pending.get(itemId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Run a change while recording waits, so no change can arrive between the
+     * change checking an item and committing. Any flush in progress carries on.
+     */
+    <T> T whileRecordingPaused(StockController.ItemChange<T> change) throws SQLException {
+        drainLock.writeLock().lock();
+        try {
+            return change.run();
+        } finally {
+            drainLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check if an item has a recorded change that is not in the database yet,
+     * counting one taken by a flush that has not committed
+     */
+    boolean hasUnappliedChange(String itemId) {
+        Drained drained = inFlight;
+        return getPendingDelta(itemId) != 0 || (drained != null && drained.deltas.containsKey(itemId));
+    }
+
+    /**
+     * The quantity an item will have once every change recorded so far is flushed,
+     * or null if it does not exist. Called under the drain lock's read lock, so no
+     * flush can drain meanwhile and the one in flight, if any, is the only one to count.
+     */
+    private Long availableQuantity(String itemId) throws SQLException {
+        // Read before the database: the flush may finish in between, but its position tells
+        Drained drained = inFlight;
+        long quantity;
+        long appliedSeq;
+        PreparedStatement stmt = DatabaseHelper.prepareCached(SELECT_LEVEL);
+        stmt.setString(1, itemId);
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) {
+                return null;
+            }
+            quantity = rs.getLong(1);
+            appliedSeq = rs.getLong(2);
+        }
+        if (drained != null && appliedSeq < drained.seq) {
+            quantity += drained.deltas.getOrDefault(itemId, 0L);
+        }
+        return quantity + getPendingDelta(itemId);
+    }
+
+    /**
+     * Apply all pending changes to the database now
+     */
+    public synchronized void flush() throws IOException, SQLException {
+        flushRequested.set(false);
+
+        Map<String, Long> deltas = new HashMap<>();
+        long seq;
+        drainLock.writeLock().lock();
+        try {
+            for (Map.Entry<String, LongAdder> entry : pending.entrySet()) {
+                long delta = entry.getValue().sum();
+                if (delta != 0) {
+                    deltas.put(entry.getKey(), delta);
+                }
+            }
+            pending.clear();
+            pendingChanges.set(0);
+
+            // Every entry in the active journal is now part of this flush; start a new one
+            synchronized (journalLock) {
+                seq = lastSeq;
+                if (deltas.isEmpty()) {
+                    return;
+                }
+                journal.close();
+                Files.move(JOURNAL_FILE, JOURNAL_FILE.resolveSibling(ROTATED_PREFIX + seq));
+                journal = openJournal();
+            }
+            inFlight = new Drained(deltas, seq);
+        } finally {
+            drainLock.writeLock().unlock();
+        }
+
+        try {
+            apply(deltas, seq);
+        } catch (SQLException e) {
+            // Count the changes again; the rotated journal still holds them for a crash
+            drainLock.writeLock().lock();
+            try {
+                for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+                    pending.computeIfAbsent(entry.getKey(), id -> new LongAdder()).add(entry.getValue());
+                }
+                inFlight = null;
+            } finally {
+                drainLock.writeLock().unlock();
+            }
+            throw e;
+        }
+        // The database's position now covers these changes, so clearing needs no lock
+        inFlight = null;
+        deleteRotatedJournals(seq);
+        stockController.quantitiesChanged(deltas.keySet());
+    }
+
+    /**
+     * Flush the remaining changes and stop the timer
+     */
+    public void close() {
+        flusher.shutdown();
+        flushQuietly();
+        synchronized (journalLock) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing quantity journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | SQLException e) {
+            System.err.println("Error flushing quantity changes: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Add the deltas to stock_items, log them as movements and record the
+     * journal position, in one transaction. Each item gets one movement per
+     * flush for its net change: a receipt if positive, a sale if negative.
+     * A change is dropped if its item has gone, or if a save setting a lower
+     * quantity since it was recorded would leave too little stock for it.
+     */
+    private void apply(Map<String, Long> deltas, long seq) throws SQLException {
+        stockController.changeItems(() -> DatabaseHelper.inTransaction(conn -> {
+            try (PreparedStatement update = conn.prepareStatement(
+                     "UPDATE stock_items SET quantity = quantity + ?, version = version + 1, " +
+                     "last_modified = CURRENT_TIMESTAMP WHERE id = ? AND quantity + ? >= 0");
+                 PreparedStatement position = conn.prepareStatement(
+                     "UPDATE quantity_journal_state SET last_applied_seq = ? WHERE id = 1")) {
+
+                List<Map.Entry<String, Long>> entries = new ArrayList<>(deltas.entrySet());
+                for (Map.Entry<String, Long> entry : entries) {
+                    update.setLong(1, entry.getValue());
+                    update.setString(2, entry.getKey());
+                    update.setLong(3, entry.getValue());
+                    update.addBatch();
+                }
+                int[] counts = update.executeBatch();
+
+                List<StockMovement> movements = new ArrayList<>();
+                for (int i = 0; i < entries.size(); i++) {
+                    Map.Entry<String, Long> entry = entries.get(i);
+                    if (counts[i] == 0) {
+                        System.err.println("Dropped scanned change of " + entry.getValue() + " to item " +
+                                           entry.getKey() + ": it is gone or has too little stock");
+                        continue;
+                    }
+                    long delta = entry.getValue();
+                    StockMovement.Type type = delta > 0 ? StockMovement.Type.RECEIPT : StockMovement.Type.SALE;
+                    movements.add(new StockMovement(entry.getKey(), type, delta, "Scanned"));
+                }
+                StockMovementLog.append(conn, movements);
+
+                position.setLong(1, seq);
+                position.executeUpdate();
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Apply journal entries newer than the database's recorded position, then discard the journals
+     */
+    private void replayJournal() throws IOException, SQLException {
+        long applied;
+        try (Statement stmt = DatabaseHelper.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_applied_seq FROM quantity_journal_state WHERE id = 1")) {
+            applied = rs.next() ? rs.getLong(1) : 0;
+        }
+
+        Map<String, Long> deltas = new HashMap<>();
+        long maxSeq = applied;
+        for (Path file : journalFiles()) {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            for (JournalRecord record : parseRecords(content)) {
+                if (record.seq > applied) {
+                    deltas.merge(record.itemId, record.delta, Long::sum);
+                }
+                maxSeq = Math.max(maxSeq, record.seq);
+            }
+        }
+
+        if (!deltas.isEmpty()) {
+            apply(deltas, maxSeq);
+        }
+        for (Path file : journalFiles()) {
+            Files.delete(file);
+        }
+        lastSeq = maxSeq;
+    }
+
+    /**
+     * Format a journal record: the sequence number, item id, delta and a
+     * checksum of the three, separated by tabs and ended by a line end
+     */
+    static String formatRecord(long seq, String itemId, long delta) {
+        String fields = seq + "\t" + itemId + "\t" + delta;
+        return fields + "\t" + checksum(fields) + "\n";
+    }
+
+    /**
+     * Read the records of a journal, skipping what a crash left damaged: text
+     * after the last line end, which was cut short mid-write, and lines whose
+     * checksum does not match or that do not parse
+     */
+    static List<JournalRecord> parseRecords(String content) {
+        List<JournalRecord> records = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            String line = content.substring(start, end);
+            JournalRecord record = parseRecord(line);
+            if (record != null) {
+                records.add(record);
+            } else {
+                System.err.println("Skipped a damaged quantity journal record: " + line);
+            }
+            start = end + 1;
+        }
+        return records;
+    }
+
+    private static JournalRecord parseRecord(String line) {
+        String[] fields = line.split("\t", -1);
+        try {
+            if (fields.length == 4 && checksum(line.substring(0, line.lastIndexOf('\t'))).equals(fields[3])) {
+                return new JournalRecord(Long.parseLong(fields[0]), fields[1], Long.parseLong(fields[2]));
+            }
+        } catch (NumberFormatException e) {
+            // Damaged; skipped like a bad checksum
+        }
+        return null;
+    }
+
+    private static String checksum(String fields) {
+        CRC32 crc = new CRC32();
+        crc.update(fields.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private void deleteRotatedJournals(long upToSeq) throws IOException {
+        for (Path file : journalFiles()) {
+            String name = file.getFileName().toString();
+            if (name.startsWith(ROTATED_PREFIX) && Long.parseLong(name.substring(ROTATED_PREFIX.length())) <= upToSeq) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * The active and rotated journal files on disk
+     */
+    static List<Path> journalFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path dir = JOURNAL_FILE.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, JOURNAL_FILE.getFileName() + "*")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static Writer openJournal() throws IOException {
+        return Files.newBufferedWriter(JOURNAL_FILE, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * One quantity change read back from a journal
+     */
+    static class JournalRecord {
+        final long seq;
+        final String itemId;
+        final long delta;
+
+        JournalRecord(long seq, String itemId, long delta) {
+            this.seq = seq;
+            this.itemId = itemId;
+            this.delta = delta;
+        }
+    }
+
+    /**
+     * Net changes taken from the counters by a flush, and the last journal entry they cover
+     */
+    private static class Drained {
+        final Map<String, Long> deltas;
+        final long seq;
+
+        Drained(Map<String, Long> deltas, long seq) {
+            this.deltas = deltas;
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+// ReservationController.java
+package com.stockmanager.controllers;
+
+import com.stockmanager.models.Reservation;
+import com.stockmanager.repository.StockItemRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Controller for holding stock against orders while they are picked.
+ * Reserving takes the units out of the item's quantity, and only succeeds
+ * while enough stock is left, so concurrent pickers can never drive a
+ * quantity below zero or overwrite each other's changes.
+ * Releasing a reservation puts its units back; committing it keeps them out.
+ */
+public class ReservationController {
+    private final StockController stockController;
+    private final StockItemRepository itemRepository;
+
+    public ReservationController(StockController stockController) {
+        this.stockController = stockController;
+        this.itemRepository = stockController.getItemRepository();
+    }
+
+    /**
+     * Reserve units of one item
+     * @return the reservation id, or null if not enough stock is left
+     */
+    public String reserve(String itemId, int quantity) {
+        List<String> ids = reserveAll(Collections.singletonMap(itemId, quantity));
+        return ids != null ? ids.get(0) : null;
+    }
+
+    /**
+     * Reserve several items at once; either every line is reserved or none is
+     * @param lines quantity to reserve, by item id
+     * @return the reservation ids in the iteration order of lines, or null if
+     *         any item does not have enough stock left
+     */
+    public List<String> reserveAll(Map<String, Integer> lines) {
+        for (int quantity : lines.values()) {
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Reserved quantity must be positive: " + quantity);
+            }
+        }
+
+        // Reserve against the quantities this process has already saved
+        try {
+            List<Reservation> reservations = stockController.changeItems(() -> itemRepository.reserve(lines));
+            if (reservations == null) {
+                return null;
+            }
+            stockController.quantitiesChanged(lines.keySet());
+            List<String> ids = new ArrayList<>(reservations.size());
+            for (Reservation reservation : reservations) {
+                ids.add(reservation.getId());
+            }
+            return ids;
+        } catch (SQLException e) {
+            System.err.println("Error reserving stock: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Cancel a reservation and return its units to stock
+     * @return false if the reservation does not exist
+     */
+    public boolean release(String reservationId) {
+        return releaseAll(Collections.singletonList(reservationId)) == 1;
+    }
+
+    /**
+     * Cancel several reservations in one transaction
+     * @return the number of reservations that existed and were released
+     */
+    public int releaseAll(Collection<String> reservationIds) {
+        return finish(reservationIds, true);
+    }
+
+    /**
+     * Close a reservation whose units have been picked; they stay out of stock
+     * @return false if the reservation does not exist
+     */
+    public boolean commit(String reservationId) {
+        return commitAll(Collections.singletonList(reservationId)) == 1;
+    }
+
+    /**
+     * Close several picked reservations in one transaction
+     * @return the number of reservations that existed and were committed
+     */
+    public int commitAll(Collection<String> reservationIds) {
+        return finish(reservationIds, false);
+    }
+
+    /**
+     * Get the open reservations of an item, oldest first
+     */
+    public List<Reservation> getReservations(String itemId) {
+        try {
+            return itemRepository.findReservations(itemId);
+        } catch (SQLException e) {
+            System.err.println("Error fetching reservations: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Get the number of units of an item held by open reservations
+     */
+    public int getReservedQuantity(String itemId) {
+        int reserved = 0;
+        for (Reservation reservation : getReservations(itemId)) {
+            reserved += reservation.getQuantity();
+        }
+        return reserved;
+    }
+
+    /**
+     * Close reservations, returning their units to stock if restock is set
+     */
+    private int finish(Collection<String> reservationIds, boolean restock) {
+        try {
+            List<Reservation> closed = stockController.changeItems(
+                () -> itemRepository.closeReservations(reservationIds, restock));
+            if (restock && !closed.isEmpty()) {
+                Set<String> itemIds = new LinkedHashSet<>();
+                for (Reservation reservation : closed) {
+                    itemIds.add(reservation.getItemId());
+                }
+                stockController.quantitiesChanged(itemIds);
+            }
+            return closed.size();
+        } catch (SQLException e) {
+            System.err.println("Error " + (restock ? "releasing" : "committing") + " reservations: " + e.getMessage());
+            e.printStackTrace();
+            return 0;
+        }
+    }
+}
@@ -1,153 +1,701 @@
 // StockController.java (Updated)
 package com.stockmanager.controllers;
 
+import com.stockmanager.models.CompactCatalog;
+import com.stockmanager.models.FacetCounts;
+import com.stockmanager.models.OffHeapInventorySnapshot;
+import com.stockmanager.models.StockFilter;
 import com.stockmanager.models.StockItem;
+import com.stockmanager.models.StockMovement;
 import com.stockmanager.models.Supplier;
-import com.stockmanager.utils.DatabaseHelper;
+import com.stockmanager.repository.Repositories;
+import com.stockmanager.repository.SqliteStockItemRepository;
+import com.stockmanager.repository.StockItemRepository;
+import com.stockmanager.repository.SupplierRepository;
+import com.stockmanager.utils.IdIndex;
+import com.stockmanager.utils.TrigramIndex;
 
+import java.io.IOException;
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Controller for managing stock items (CRUD operations)
  */
 public class StockController {
+    /**
+     * Receives every successful write, so in-memory copies of the data can apply it as a delta
+     */
+    public interface ChangeListener {
+        void itemSaved(StockItem item);
+        
+        void itemDeleted(String id);
+        
+        void supplierSaved(Supplier supplier);
+    }
+    
+    /**
+     * Receives item saves and deletes that were acknowledged in write-behind
+     * mode but could not be applied, so the user can make them again
+     */
+    public interface WriteFailureListener {
+        /**
+         * @param item the item as it was saved, or null if the write was a delete
+         */
+        void writeFailed(String id, StockItem item, String reason);
+    }
+    
+    /**
+     * A write that changes item rows other than through a save or delete
+     */
+    interface ItemChange<T> {
+        T run() throws SQLException;
+    }
+    
+    /**
+     * Outcome of a save. CONFLICT means another writer changed or deleted
+     * the row after the copy being saved was read, or that a new item's id is
+     * already taken, and nothing was written.
+     */
+    public enum SaveResult {
+        SAVED, CONFLICT, FAILED
+    }
+    
+    // Maximum number of filter signatures whose facet counts are kept
+    private static final int FACET_CACHE_SIZE = 64;
+    
+    // Fraction of a query's trigram weight an item must match to count as a fuzzy hit
+    private static final double FUZZY_MIN_COVERAGE = 0.25;
+    
+    // Keep the bulk inventory copy off the heap; enable with -Dstockmanager.offheap=true
+    private static final boolean OFF_HEAP_SNAPSHOT = Boolean.getBoolean("stockmanager.offheap");
+    
+    // Acknowledge item saves once journaled; enable with -Dstockmanager.writebehind=true
+    private static final boolean WRITE_BEHIND = Boolean.getBoolean("stockmanager.writebehind");
+    
+    private final StockItemRepository itemRepository;
+    private final SupplierRepository supplierRepository;
+    
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    
+    // Bumped on every item write so derived in-memory structures know they are stale
+    private final AtomicLong itemWrites = new AtomicLong();
+    private final AtomicLong supplierWrites = new AtomicLong();
+    
+    // Facet counts per filter criteria and parameters, dropped on any write
+    private final Map<List<Object>, FacetCounts> facetCache = new ConcurrentHashMap<>();
+    
+    // Fuzzy search index, rebuilt lazily after an item's name or description changes
+    // or an item comes or goes; quantity-only writes leave it alone
+    private volatile FuzzyIndex fuzzyIndex;
+    private final AtomicLong textWrites = new AtomicLong();
+    
+    // Off-heap snapshot, replaced in the background once a write makes it stale
+    private volatile OffHeapInventorySnapshot offHeapSnapshot;
+    private final AtomicBoolean snapshotRebuilding = new AtomicBoolean();
+    
+    // Derives quantities from stock movements and snapshots them; null if it could not start
+    private StockMovementLog movementLog;
+    
+    // Batches high-rate quantity changes; null if its journal could not be opened
+    private QuantityAccumulator quantityAccumulator;
+    
+    // Applies item saves and deletes in the background; null unless write-behind is enabled and started
+    private WriteBehindQueue writeBehind;
+    
+    // Write-behind failures, kept until a listener takes them; guarded by the list
+    private final List<Runnable> undeliveredFailures = new ArrayList<>();
+    private WriteFailureListener writeFailureListener;
     
     public StockController() {
-        // No initialization needed as we're using database now
+        this(Repositories.stockItems(), Repositories.suppliers());
+    }
+    
+    /**
+     * Keep items and suppliers in the given repositories. The movement log
+     * snapshots, quantity accumulator and write-behind queue work on the
+     * database file, so they only start on a repository kept in it.
+     */
+    public StockController(StockItemRepository itemRepository, SupplierRepository supplierRepository) {
+        this.itemRepository = itemRepository;
+        this.supplierRepository = supplierRepository;
+        if (!itemRepository.isInDatabase()) {
+            return;
+        }
+        
+        try {
+            movementLog = new StockMovementLog();
+        } catch (SQLException e) {
+            System.err.println("Error starting stock movement log: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        // Saves were acknowledged before any quantity change that a flush orders after them, so they replay first
+        if (WRITE_BEHIND) {
+            try {
+                writeBehind = new WriteBehindQueue(this::applyPendingWrite, this::writeBehindFailed);
+            } catch (IOException | SQLException e) {
+                System.err.println("Error starting write-behind queue: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        
+        try {
+            quantityAccumulator = new QuantityAccumulator(this);
+        } catch (IOException | SQLException e) {
+            System.err.println("Error starting quantity accumulator: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Apply pending item writes and quantity changes; call before the application exits
+     */
+    public void shutdown() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (quantityAccumulator != null) {
+            quantityAccumulator.close();
+        }
+        if (movementLog != null) {
+            movementLog.close();
+        }
+    }
+    
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+    
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+    
+    /**
+     * Set the listener for write-behind failures; failures from before, such
+     * as those found replaying the journal on startup, are passed to it now
+     */
+    public void setWriteFailureListener(WriteFailureListener listener) {
+        List<Runnable> held;
+        synchronized (undeliveredFailures) {
+            writeFailureListener = listener;
+            held = new ArrayList<>(undeliveredFailures);
+            undeliveredFailures.clear();
+        }
+        for (Runnable failure : held) {
+            failure.run();
+        }
     }
     
     // Methods for stock items
     public List<StockItem> getAllStockItems() {
-        List<StockItem> items = new ArrayList<>();
-        String query = "SELECT i.*, s.name as supplier_name, s.contactInfo, s.address, " +
-                       "s.email, s.phone FROM stock_items i " +
-                       "LEFT JOIN suppliers s ON i.supplier_id = s.id";
+        awaitPendingWrites();
+        try {
+            return itemRepository.findAll();
+        } catch (SQLException e) {
+            System.err.println("Error fetching stock items: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Get the items as they stood at a past time, with the quantity each had
+     * then, rebuilt from the stock movement log. Archived items are included.
+     * Only quantities have history: names, prices and suppliers are the
+     * current ones, and items deleted since are left out, as are items
+     * created after that time.
+     */
+    public List<StockItem> getStockItemsAsOf(Instant asOf) {
+        awaitPendingWrites();
+        try {
+            return itemRepository.findAllAsOf(asOf);
+        } catch (SQLException e) {
+            System.err.println("Error fetching stock items as of " + asOf + ": " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Load every item into a compact read-only catalog. Suppliers are read once
+     * rather than joined per row, and repeated names and descriptions are shared.
+     * Both are read as of one moment, so every item's supplier is in the catalog.
+     */
+    public CompactCatalog loadCompactCatalog() {
+        awaitPendingWrites();
+        CompactCatalog catalog = new CompactCatalog();
         
-        try (Connection conn = DatabaseHelper.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            while (rs.next()) {
-                Supplier supplier = new Supplier(
-                    rs.getString("supplier_id"),
-                    rs.getString("supplier_name"),
-                    rs.getString("contactInfo"),
-                    rs.getString("address"),
-                    rs.getString("email"),
-                    rs.getString("phone")
-                );
+        try {
+            itemRepository.scanCatalog(new StockItemRepository.CatalogVisitor() {
+                @Override
+                public void suppliers(List<Supplier> suppliers) {
+                    for (Supplier supplier : suppliers) {
+                        catalog.addSupplier(supplier);
+                    }
+                }
                 
-                StockItem item = new StockItem(
-                    rs.getString("id"),
-                    rs.getString("name"),
-                    rs.getString("description"),
-                    rs.getDouble("price"),
-                    rs.getInt("quantity"),
-                    supplier
-                );
+                @Override
+                public void item(String id, String name, String description, long priceCents, int quantity,
+                                 String supplierId) {
+                    catalog.add(id, name, description, priceCents, quantity, supplierId);
+                }
+            });
+        } catch (SQLException | IOException e) {
+            System.err.println("Error loading compact catalog: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return catalog;
+    }
+    
+    public boolean isOffHeapSnapshotEnabled() {
+        return OFF_HEAP_SNAPSHOT;
+    }
+    
+    /**
+     * Get the off-heap inventory snapshot, or null when it is disabled or cannot be built.
+     * The first call builds it; quantity changes are patched into it, and after any other
+     * write the current snapshot keeps being served while a replacement is built on a
+     * background thread.
+     */
+    public OffHeapInventorySnapshot getOffHeapSnapshot() {
+        if (!OFF_HEAP_SNAPSHOT) {
+            return null;
+        }
+        
+        OffHeapInventorySnapshot snapshot = offHeapSnapshot;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (offHeapSnapshot == null) {
+                    offHeapSnapshot = buildOffHeapSnapshot();
+                }
+                return offHeapSnapshot;
+            }
+        }
+        
+        if (snapshot.getVersion() != dataVersion() && snapshotRebuilding.compareAndSet(false, true)) {
+            Thread rebuild = new Thread(() -> {
+                try {
+                    OffHeapInventorySnapshot fresh = buildOffHeapSnapshot();
+                    if (fresh != null) {
+                        publishOffHeapSnapshot(fresh);
+                    }
+                } finally {
+                    snapshotRebuilding.set(false);
+                }
+            }, "offheap-snapshot");
+            rebuild.setDaemon(true);
+            rebuild.setPriority(Thread.MIN_PRIORITY);
+            rebuild.start();
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Get an off-heap snapshot that reflects every write made so far,
+     * rebuilding it on the calling thread if it is stale
+     */
+    public OffHeapInventorySnapshot getCurrentOffHeapSnapshot() {
+        OffHeapInventorySnapshot snapshot = getOffHeapSnapshot();
+        if (snapshot == null || snapshot.getVersion() == dataVersion()) {
+            return snapshot;
+        }
+        
+        OffHeapInventorySnapshot fresh = buildOffHeapSnapshot();
+        return fresh != null ? publishOffHeapSnapshot(fresh) : snapshot;
+    }
+    
+    /**
+     * Bring the shared snapshot up to a quantity-only change in place, so it needs no rebuild.
+     * Only done when the snapshot was current just before the change and nothing has been
+     * written since the quantities were read; otherwise it is left stale for a rebuild.
+     * @param version the data version right after the change, taken before the quantities were read
+     */
+    private synchronized void patchOffHeapSnapshot(Map<String, Integer> quantities, long version) {
+        OffHeapInventorySnapshot snapshot = offHeapSnapshot;
+        if (snapshot == null || snapshot.getVersion() != version - 1 || dataVersion() != version) {
+            return;
+        }
+        snapshot.patchQuantities(quantities, version);
+    }
+    
+    /**
+     * Replace the shared snapshot unless a newer one has been published meanwhile
+     * @return the snapshot that ends up shared
+     */
+    private synchronized OffHeapInventorySnapshot publishOffHeapSnapshot(OffHeapInventorySnapshot fresh) {
+        OffHeapInventorySnapshot old = offHeapSnapshot;
+        if (old != null && old.getVersion() >= fresh.getVersion()) {
+            fresh.close();
+            return old;
+        }
+        offHeapSnapshot = fresh;
+        if (old != null) {
+            old.close();
+        }
+        return fresh;
+    }
+    
+    /**
+     * Stream every item, in id order, into a new off-heap snapshot,
+     * reading suppliers and items as of one moment
+     */
+    private OffHeapInventorySnapshot buildOffHeapSnapshot() {
+        long version = dataVersion();
+        awaitPendingWrites();
+        
+        OffHeapInventorySnapshot.Writer[] writer = new OffHeapInventorySnapshot.Writer[1];
+        try {
+            itemRepository.scanCatalog(new StockItemRepository.CatalogVisitor() {
+                @Override
+                public void suppliers(List<Supplier> suppliers) throws IOException {
+                    writer[0] = OffHeapInventorySnapshot.writer(suppliers, version);
+                }
                 
-                items.add(item);
+                @Override
+                public void item(String id, String name, String description, long priceCents, int quantity,
+                                 String supplierId) throws IOException {
+                    writer[0].add(id, name, description, priceCents, quantity, supplierId);
+                }
+            });
+            try (OffHeapInventorySnapshot.Writer finished = writer[0]) {
+                return finished.finish();
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching stock items: " + e.getMessage());
+        } catch (SQLException | IOException e) {
+            System.err.println("Error building off-heap snapshot: " + e.getMessage());
             e.printStackTrace();
+            // Drop the files of a snapshot left half written
+            if (writer[0] != null) {
+                try {
+                    writer[0].close();
+                } catch (IOException ignored) {
+                }
+            }
         }
         
-        return items;
+        return null;
     }
     
     public StockItem getStockItemById(String id) {
-        String query = "SELECT i.*, s.name as supplier_name, s.contactInfo, s.address, " +
-                       "s.email, s.phone FROM stock_items i " +
-                       "LEFT JOIN suppliers s ON i.supplier_id = s.id " +
-                       "WHERE i.id = ?";
+        // A write not yet applied is the item's current state
+        WriteBehindQueue.PendingWrite write = writeBehind != null ? writeBehind.getPending(id) : null;
+        if (write != null) {
+            return write.isDelete() ? null : new StockItem(write.getItem());
+        }
         
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try {
+            return itemRepository.findById(id);
+        } catch (SQLException e) {
+            System.err.println("Error fetching stock item: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Insert a new item. CONFLICT means an item with its id already exists.
+     */
+    public SaveResult addStockItem(StockItem item) {
+        return save(item, true);
+    }
+    
+    /**
+     * Update an existing item if its row still has the version the item was
+     * read at. A successful update advances the item's version; CONFLICT means
+     * another writer changed or deleted the item since.
+     */
+    public SaveResult saveStockItem(StockItem item) {
+        return save(item, false);
+    }
+    
+    private SaveResult save(StockItem item, boolean isNew) {
+        if (writeBehind != null) {
+            return saveWriteBehind(item, isNew);
+        }
+        try {
+            Long version = isNew ? itemRepository.insert(item) : itemRepository.update(item);
+            if (version == null) {
+                return SaveResult.CONFLICT;
+            }
+            item.setVersion(version);
+            itemsChanged();
+            itemTextSaved(item, isNew);
+            for (ChangeListener listener : changeListeners) {
+                listener.itemSaved(item);
+            }
+            return SaveResult.SAVED;
+        } catch (SQLException e) {
+            System.err.println("Error saving stock item: " + e.getMessage());
+            e.printStackTrace();
+            return SaveResult.FAILED;
+        }
+    }
+    
+    /**
+     * Check the item's version against its latest write, journal the save and
+     * acknowledge it; the database is updated in the background
+     */
+    private SaveResult saveWriteBehind(StockItem item, boolean isNew) {
+        synchronized (writeBehind) {
+            StockItem current = getStockItemById(item.getId());
+            if (isNew ? current != null : current == null || current.getVersion() != item.getVersion()) {
+                return SaveResult.CONFLICT;
+            }
             
-            stmt.setString(1, id);
+            long expectedVersion = item.getVersion();
+            item.setVersion(isNew ? 0 : expectedVersion + 1);
+            try {
+                if (isNew) {
+                    writeBehind.insert(item);
+                } else {
+                    writeBehind.update(item, expectedVersion);
+                }
+            } catch (IOException e) {
+                item.setVersion(expectedVersion);
+                System.err.println("Error journaling stock item: " + e.getMessage());
+                e.printStackTrace();
+                return SaveResult.FAILED;
+            }
+        }
+        itemsChanged();
+        itemTextSaved(item, isNew);
+        for (ChangeListener listener : changeListeners) {
+            listener.itemSaved(item);
+        }
+        return SaveResult.SAVED;
+    }
+    
+    /**
+     * Put listeners back in step with the database after an acknowledged write
+     * was given up, then pass the failure on. Runs on a thread of its own, as
+     * listeners may wait for the write-behind queue.
+     */
+    private void writeBehindFailed(WriteBehindQueue.PendingWrite write, String reason) {
+        String id = write.getId();
+        StockItem saved = write.isDelete() ? null : new StockItem(write.getItem());
+        Thread notifier = new Thread(() -> {
+            itemsChanged();
+            textChanged();
+            StockItem current = getStockItemById(id);
+            for (ChangeListener listener : changeListeners) {
+                if (current != null) {
+                    listener.itemSaved(current);
+                } else {
+                    listener.itemDeleted(id);
+                }
+            }
             
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Supplier supplier = new Supplier(
-                        rs.getString("supplier_id"),
-                        rs.getString("supplier_name"),
-                        rs.getString("contactInfo"),
-                        rs.getString("address"),
-                        rs.getString("email"),
-                        rs.getString("phone")
-                    );
-                    
-                    return new StockItem(
-                        rs.getString("id"),
-                        rs.getString("name"),
-                        rs.getString("description"),
-                        rs.getDouble("price"),
-                        rs.getInt("quantity"),
-                        supplier
-                    );
+            Runnable failure = () -> writeFailureListener.writeFailed(id, saved, reason);
+            synchronized (undeliveredFailures) {
+                if (writeFailureListener == null) {
+                    undeliveredFailures.add(failure);
+                    return;
                 }
             }
+            failure.run();
+        }, "write-behind-failure");
+        notifier.setDaemon(true);
+        notifier.start();
+    }
+    
+    /**
+     * Write a save or delete taken from the write-behind queue
+     * @return false if a save conflicted with a change made after it was accepted
+     */
+    private boolean applyPendingWrite(Connection conn, WriteBehindQueue.PendingWrite write) throws SQLException {
+        if (write.isDelete()) {
+            SqliteStockItemRepository.deleteStockItem(conn, write.getId());
+            return true;
+        }
+        Long version = write.isInsert()
+            ? SqliteStockItemRepository.insertStockItem(conn, write.getItem())
+            : SqliteStockItemRepository.updateStockItem(conn, write.getItem(), write.getExpectedVersion());
+        return version != null;
+    }
+    
+    // Blocks reads that go to the database until this process's own writes are there
+    void awaitPendingWrites() {
+        if (writeBehind != null) {
+            writeBehind.awaitApplied();
+        }
+    }
+    
+    /**
+     * Run a write that changes item rows and their versions, such as a flush,
+     * a transfer, a reservation or an archive run, once every acknowledged
+     * save has been applied, and acknowledge no new save until it is done.
+     * A save is checked against the version when it is acknowledged, so a
+     * write landing between that and its apply would make it conflict.
+     */
+    <T> T changeItems(ItemChange<T> change) throws SQLException {
+        if (writeBehind == null) {
+            return change.run();
+        }
+        synchronized (writeBehind) {
+            writeBehind.awaitApplied();
+            return change.run();
+        }
+    }
+    
+    /**
+     * Add to an item's quantity. On the database the change is checked and
+     * journaled at once, and applied to stock_items within about a second.
+     * @return false if the item does not exist, its quantity would go below zero,
+     *         or the change could not be recorded
+     */
+    public boolean adjustQuantity(String id, long delta) {
+        if (quantityAccumulator != null) {
+            return quantityAccumulator.record(id, delta);
+        }
+        
+        try {
+            if (!changeItems(() -> itemRepository.adjustQuantity(id, delta))) {
+                return false;
+            }
+            quantitiesChanged(Collections.singletonList(id));
+            return true;
         } catch (SQLException e) {
-            System.err.println("Error fetching stock item: " + e.getMessage());
+            System.err.println("Error adjusting stock quantity: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
-        
-        return null;
     }
     
-    public void saveStockItem(StockItem item) {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            if (getStockItemById(item.getId()) == null) {
-                // Insert new item
-                String query = "INSERT INTO stock_items (id, name, description, price, quantity, supplier_id) " +
-                               "VALUES (?, ?, ?, ?, ?, ?)";
-                
-                try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                    stmt.setString(1, item.getId());
-                    stmt.setString(2, item.getName());
-                    stmt.setString(3, item.getDescription());
-                    stmt.setDouble(4, item.getPrice());
-                    stmt.setInt(5, item.getQuantity());
-                    stmt.setString(6, item.getSupplier().getId());
-                    
-                    stmt.executeUpdate();
-                }
-            } else {
-                // Update existing item
-                String query = "UPDATE stock_items SET name = ?, description = ?, price = ?, " +
-                               "quantity = ?, supplier_id = ? WHERE id = ?";
-                
-                try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                    stmt.setString(1, item.getName());
-                    stmt.setString(2, item.getDescription());
-                    stmt.setDouble(3, item.getPrice());
-                    stmt.setInt(4, item.getQuantity());
-                    stmt.setString(5, item.getSupplier().getId());
-                    stmt.setString(6, item.getId());
-                    
-                    stmt.executeUpdate();
-                }
+    /**
+     * Move units from one item to another, for example when stock is relabelled,
+     * logging a pair of transfer movements
+     * @return false if the source item does not have enough stock or either item does not exist
+     */
+    public boolean transferStock(String fromId, String toId, int quantity) {
+        if (quantity <= 0 || fromId.equals(toId)) {
+            throw new IllegalArgumentException("Invalid transfer of " + quantity + " units");
+        }
+        
+        try {
+            boolean transferred = changeItems(() -> itemRepository.transfer(fromId, toId, quantity));
+            if (transferred) {
+                quantitiesChanged(Arrays.asList(fromId, toId));
             }
+            return transferred;
         } catch (SQLException e) {
-            System.err.println("Error saving stock item: " + e.getMessage());
+            System.err.println("Error transferring stock: " + e.getMessage());
             e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Get the movements that make up an item's quantity, oldest first
+     */
+    public List<StockMovement> getStockMovements(String id) {
+        awaitPendingWrites();
+        try {
+            return itemRepository.findMovements(id);
+        } catch (SQLException e) {
+            System.err.println("Error fetching stock movements: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Net quantity change recorded for an item but not yet applied to stock_items
+     */
+    public long getPendingQuantityChange(String id) {
+        return quantityAccumulator == null ? 0 : quantityAccumulator.getPendingDelta(id);
+    }
+    
+    /**
+     * Run a change while no quantity change can be recorded, so an item seen
+     * by hasUnappliedQuantityChange() to have none gets none until it is done
+     */
+    <T> T withQuantityChangesPaused(ItemChange<T> change) throws SQLException {
+        return quantityAccumulator == null ? change.run() : quantityAccumulator.whileRecordingPaused(change);
+    }
+    
+    /**
+     * Check if a quantity change recorded for an item is still waiting for, or in, a flush
+     */
+    boolean hasUnappliedQuantityChange(String id) {
+        return quantityAccumulator != null && quantityAccumulator.hasUnappliedChange(id);
+    }
+    
+    /**
+     * The repository items are kept in, for controllers that write them through changeItems()
+     */
+    StockItemRepository getItemRepository() {
+        return itemRepository;
+    }
+    
+    /**
+     * Called after items were moved out of stock_items other than by deleting them, such as by archiving
+     */
+    void itemsRemoved(Collection<String> ids) {
+        itemsChanged();
+        textChanged();
+        for (String id : ids) {
+            for (ChangeListener listener : changeListeners) {
+                listener.itemDeleted(id);
+            }
+        }
+    }
+    
+    /**
+     * Called after archived items were put back into stock_items
+     */
+    void itemsRestored(Collection<String> ids) {
+        textChanged();
+        quantitiesChanged(ids);
+    }
+    
+    /**
+     * Called after items' quantities were changed in place, by a flush, a transfer or a reservation
+     */
+    void quantitiesChanged(Collection<String> ids) {
+        itemsChanged();
+        long version = dataVersion();
+        Map<String, Integer> quantities = new HashMap<>();
+        for (String id : ids) {
+            StockItem item = getStockItemById(id);
+            if (item != null) {
+                quantities.put(id, item.getQuantity());
+                for (ChangeListener listener : changeListeners) {
+                    listener.itemSaved(item);
+                }
+            }
+        }
+        if (quantities.size() == ids.size()) {
+            patchOffHeapSnapshot(quantities, version);
         }
     }
     
     public void deleteStockItem(String id) {
-        String query = "DELETE FROM stock_items WHERE id = ?";
+        try {
+            if (writeBehind != null) {
+                writeBehind.delete(id);
+            } else {
+                itemRepository.delete(id);
+            }
+            itemsChanged();
+            textChanged();
+            for (ChangeListener listener : changeListeners) {
+                listener.itemDeleted(id);
+            }
         
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, id);
-            stmt.executeUpdate();
-            
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             System.err.println("Error deleting stock item: " + e.getMessage());
             e.printStackTrace();
         }
@@ -155,122 +703,55 @@ public class StockController {
     
     // Methods for suppliers
     public List<Supplier> getAllSuppliers() {
-        List<Supplier> suppliers = new ArrayList<>();
-        String query = "SELECT * FROM suppliers";
-        
-        try (Connection conn = DatabaseHelper.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            while (rs.next()) {
-                Supplier supplier = new Supplier(
-                    rs.getString("id"),
-                    rs.getString("name"),
-                    rs.getString("contactInfo"),
-                    rs.getString("address"),
-                    rs.getString("email"),
-                    rs.getString("phone")
-                );
-                
-                suppliers.add(supplier);
-            }
+        try {
+            return supplierRepository.findAll();
         } catch (SQLException e) {
             System.err.println("Error fetching suppliers: " + e.getMessage());
             e.printStackTrace();
+            return new ArrayList<>();
         }
-        
-        return suppliers;
     }
     
     public Supplier getSupplierById(String id) {
-        String query = "SELECT * FROM suppliers WHERE id = ?";
-        
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, id);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Supplier(
-                        rs.getString("id"),
-                        rs.getString("name"),
-                        rs.getString("contactInfo"),
-                        rs.getString("address"),
-                        rs.getString("email"),
-                        rs.getString("phone")
-                    );
-                }
-            }
+        try {
+            return supplierRepository.findById(id);
         } catch (SQLException e) {
             System.err.println("Error fetching supplier: " + e.getMessage());
             e.printStackTrace();
+            return null;
         }
-        
-        return null;
     }
     
-    public void saveSupplier(Supplier supplier) {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            if (getSupplierById(supplier.getId()) == null) {
-                // Insert new supplier
-                String query = "INSERT INTO suppliers (id, name, contactInfo, address, email, phone) " +
-                               "VALUES (?, ?, ?, ?, ?, ?)";
-                
-                try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                    stmt.setString(1, supplier.getId());
-                    stmt.setString(2, supplier.getName());
-                    stmt.setString(3, supplier.getContactInfo());
-                    stmt.setString(4, supplier.getAddress());
-                    stmt.setString(5, supplier.getEmail());
-                    stmt.setString(6, supplier.getPhone());
-                    
-                    stmt.executeUpdate();
-                }
-            } else {
-                // Update existing supplier
-                String query = "UPDATE suppliers SET name = ?, contactInfo = ?, address = ?, " +
-                               "email = ?, phone = ? WHERE id = ?";
-                
-                try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                    stmt.setString(1, supplier.getName());
-                    stmt.setString(2, supplier.getContactInfo());
-                    stmt.setString(3, supplier.getAddress());
-                    stmt.setString(4, supplier.getEmail());
-                    stmt.setString(5, supplier.getPhone());
-                    stmt.setString(6, supplier.getId());
-                    
-                    stmt.executeUpdate();
-                }
+    /**
+     * Insert a new supplier, or update an existing one if its row still has the
+     * version the supplier was read at. A successful update advances the supplier's version.
+     */
+    public SaveResult saveSupplier(Supplier supplier) {
+        try {
+            Long version = supplierRepository.save(supplier);
+            if (version == null) {
+                return SaveResult.CONFLICT;
+            }
+            supplier.setVersion(version);
+            // Supplier names label the facet counts
+            facetCache.clear();
+            supplierWrites.incrementAndGet();
+            for (ChangeListener listener : changeListeners) {
+                listener.supplierSaved(supplier);
             }
+            return SaveResult.SAVED;
         } catch (SQLException e) {
             System.err.println("Error saving supplier: " + e.getMessage());
             e.printStackTrace();
+            return SaveResult.FAILED;
         }
     }
     
     public void deleteSupplier(String id) {
-        // Check if the supplier is used by any stock items
-        String checkQuery = "SELECT COUNT(*) FROM stock_items WHERE supplier_id = ?";
-        
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
-            
-            checkStmt.setString(1, id);
-            
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                if (rs.next() && rs.getInt(1) > 0) {
-                    throw new SQLException("Cannot delete supplier: it is used by one or more stock items");
-                }
-            }
-            
-            // If not used, delete the supplier
-            String deleteQuery = "DELETE FROM suppliers WHERE id = ?";
-            
-            try (PreparedStatement deleteStmt = conn.prepareStatement(deleteQuery)) {
-                deleteStmt.setString(1, id);
-                deleteStmt.executeUpdate();
-            }
+        try {
+            supplierRepository.delete(id);
+            facetCache.clear();
+            supplierWrites.incrementAndGet();
         } catch (SQLException e) {
             System.err.println("Error deleting supplier: " + e.getMessage());
             e.printStackTrace();
@@ -279,47 +760,203 @@ public class StockController {
     
     // Search methods
     public List<StockItem> searchStockItems(String query) {
-        List<StockItem> items = new ArrayList<>();
-        String searchQuery = "SELECT i.*, s.name as supplier_name, s.contactInfo, s.address, " +
-                             "s.email, s.phone FROM stock_items i " +
-                             "LEFT JOIN suppliers s ON i.supplier_id = s.id " +
-                             "WHERE i.name LIKE ? OR i.description LIKE ?";
+        awaitPendingWrites();
+        try {
+            return itemRepository.search(query);
+        } catch (SQLException e) {
+            System.err.println("Error searching stock items: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Get the items matching every criterion set on the filter
+     */
+    public List<StockItem> filterStockItems(StockFilter filter) {
+        awaitPendingWrites();
+        try {
+            return itemRepository.filter(filter);
+        } catch (SQLException e) {
+            System.err.println("Error filtering stock items: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Count the items matching the filter per supplier, price band and stock level,
+     * keeping the counts for repeated filters until the next write
+     */
+    public FacetCounts getFacetCounts(StockFilter filter) {
+        awaitPendingWrites();
+        // Sorting does not change the counts
+        List<Object> signature = Arrays.asList(
+            filter.getText(), filter.getSupplierId(), filter.getMinPriceCents(), filter.getMaxPriceCents(),
+            filter.getMinQuantity(), filter.getMaxQuantity(), filter.getLowStockThreshold()
+        );
+        long writesBefore = itemWrites.get();
+        FacetCounts cached = facetCache.get(signature);
+        if (cached != null) {
+            return cached;
+        }
         
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(searchQuery)) {
-            
-            String searchPattern = "%" + query + "%";
-            stmt.setString(1, searchPattern);
-            stmt.setString(2, searchPattern);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Supplier supplier = new Supplier(
-                        rs.getString("supplier_id"),
-                        rs.getString("supplier_name"),
-                        rs.getString("contactInfo"),
-                        rs.getString("address"),
-                        rs.getString("email"),
-                        rs.getString("phone")
-                    );
-                    
-                    StockItem item = new StockItem(
-                        rs.getString("id"),
-                        rs.getString("name"),
-                        rs.getString("description"),
-                        rs.getDouble("price"),
-                        rs.getInt("quantity"),
-                        supplier
-                    );
-                    
-                    items.add(item);
-                }
+        FacetCounts facets;
+        try {
+            facets = itemRepository.countFacets(filter);
+        } catch (SQLException e) {
+            System.err.println("Error counting stock facets: " + e.getMessage());
+            e.printStackTrace();
+            return new FacetCounts();
+        }
+        
+        // Don't cache counts that a concurrent write may already have invalidated
+        if (itemWrites.get() == writesBefore) {
+            if (facetCache.size() >= FACET_CACHE_SIZE) {
+                facetCache.clear();
+            }
+            facetCache.put(signature, facets);
+        }
+        return facets;
+    }
+    
+    /**
+     * Typo-tolerant search over item names and descriptions, best matches first
+     */
+    public List<StockItem> fuzzySearchStockItems(String query, int limit) {
+        awaitPendingWrites();
+        FuzzyIndex index = getFuzzyIndex();
+        if (index == null) {
+            return new ArrayList<>();
+        }
+        
+        int[] docs = index.trigrams.search(query, limit, FUZZY_MIN_COVERAGE);
+        if (docs.length == 0) {
+            return new ArrayList<>();
+        }
+        
+        // Fetch the matching items together, then restore the ranking order
+        List<String> ids = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            ids.add(index.ids[doc]);
+        }
+        
+        Map<String, StockItem> byId = new HashMap<>();
+        try {
+            for (StockItem item : itemRepository.findByIds(ids)) {
+                byId.put(item.getId(), item);
             }
         } catch (SQLException e) {
-            System.err.println("Error searching stock items: " + e.getMessage());
+            System.err.println("Error fuzzy searching stock items: " + e.getMessage());
             e.printStackTrace();
         }
         
+        List<StockItem> items = new ArrayList<>(docs.length);
+        for (String id : ids) {
+            StockItem item = byId.get(id);
+            if (item != null) {
+                items.add(item);
+            }
+        }
         return items;
     }
-}
\ No newline at end of file
+    
+    private FuzzyIndex getFuzzyIndex() {
+        FuzzyIndex index = fuzzyIndex;
+        if (index != null) {
+            return index;
+        }
+        
+        long writesBefore = textWrites.get();
+        List<String> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+        try {
+            itemRepository.scanCatalog(new StockItemRepository.CatalogVisitor() {
+                @Override
+                public void suppliers(List<Supplier> suppliers) {
+                }
+                
+                @Override
+                public void item(String id, String name, String description, long priceCents, int quantity,
+                                 String supplierId) {
+                    ids.add(id);
+                    names.add(name);
+                    descriptions.add(description);
+                }
+            });
+        } catch (SQLException | IOException e) {
+            System.err.println("Error building fuzzy search index: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        
+        String[] idArray = ids.toArray(new String[0]);
+        String[] nameArray = names.toArray(new String[0]);
+        String[] descriptionArray = descriptions.toArray(new String[0]);
+        index = new FuzzyIndex(idArray, nameArray, descriptionArray,
+                               TrigramIndex.build(nameArray, descriptionArray));
+        // A text change during the rebuild makes this index stale; use it once but don't keep it
+        if (textWrites.get() == writesBefore) {
+            fuzzyIndex = index;
+        }
+        return index;
+    }
+    
+    // Changes whenever an item or supplier is written
+    private long dataVersion() {
+        return itemWrites.get() + supplierWrites.get();
+    }
+    
+    private void itemsChanged() {
+        itemWrites.incrementAndGet();
+        facetCache.clear();
+    }
+    
+    // Drops the fuzzy index after a write that changed which items exist or what they are called
+    private void textChanged() {
+        textWrites.incrementAndGet();
+        fuzzyIndex = null;
+    }
+    
+    /**
+     * Drop the fuzzy index only if a saved item is new or its name or description
+     * differs from what the index holds
+     */
+    private void itemTextSaved(StockItem item, boolean isNew) {
+        FuzzyIndex index = fuzzyIndex;
+        // With no index kept, one may be being built from text read before this save
+        if (isNew || index == null || !index.matches(item)) {
+            textChanged();
+        }
+    }
+    
+    /**
+     * Trigram index together with the item id and indexed text of each document
+     */
+    private static class FuzzyIndex {
+        final String[] ids;
+        final String[] names;
+        final String[] descriptions;
+        final IdIndex docs;
+        final TrigramIndex trigrams;
+        
+        FuzzyIndex(String[] ids, String[] names, String[] descriptions, TrigramIndex trigrams) {
+            this.ids = ids;
+            this.names = names;
+            this.descriptions = descriptions;
+            this.trigrams = trigrams;
+            docs = new IdIndex(ids.length);
+            for (int doc = 0; doc < ids.length; doc++) {
+                docs.put(ids[doc], doc);
+            }
+        }
+        
+        boolean matches(StockItem item) {
+            int doc = docs.get(item.getId());
+            return doc != IdIndex.NOT_FOUND
+                && Objects.equals(names[doc], item.getName())
+                && Objects.equals(descriptions[doc], item.getDescription());
+        }
+    }
+}
@@ -0,0 +1,393 @@
+// StockMovementLog.java
+package com.stockmanager.controllers;
+
+import com.stockmanager.models.StockMovement;
+import com.stockmanager.utils.DatabaseHelper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The append-only log of stock movements that item quantities are derived from.
+ * Every write that changes stock_items.quantity appends its movements in the
+ * same transaction, so the column always holds the running total of the log:
+ * a projection materialized for reading, never the record of truth.
+ *
+ * A snapshot stores each item's quantity as of a movement sequence number. One
+ * is taken whenever enough movements have piled up since the last, and when the
+ * log is closed, so rebuilding the projection on startup only has to add the
+ * movements after the last snapshot instead of replaying the whole history.
+ *
+ * A snapshot is also kept as a checkpoint once a day or every so many
+ * movements, so a quantity as of any past time is the nearest earlier
+ * checkpoint plus a bounded window of movements after it. Older checkpoints
+ * are thinned out to the first of each day for a month, then the first of
+ * each month; the movements between them are all kept, so thinning only
+ * widens the window a past quantity is added up over.
+ */
+public class StockMovementLog {
+    private static final long SNAPSHOT_CHECK_INTERVAL_MS = 60_000;
+
+    // Movements since the last snapshot that make the periodic check take a new one
+    private static final long SNAPSHOT_THRESHOLD = 1000;
+
+    // A snapshot becomes a checkpoint once the last one is this old or this many movements behind
+    private static final double CHECKPOINT_INTERVAL_DAYS = 1;
+    private static final long CHECKPOINT_THRESHOLD = 10_000;
+
+    // Checkpoints kept whatever their age, and the days back for which the first of each day is kept
+    private static final int RECENT_CHECKPOINTS_KEPT = 7;
+    private static final int DAILY_CHECKPOINT_DAYS = 31;
+
+    // Format of SQLite's CURRENT_TIMESTAMP, which is in UTC
+    private static final DateTimeFormatter SQLITE_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+
+    private static final String INSERT_MOVEMENT =
+        "INSERT INTO stock_movements (item_id, type, quantity_change, reference) VALUES (?, ?, ?, ?)";
+
+    private final ScheduledExecutorService snapshotter;
+
+    /**
+     * Rebuild item quantities from the last snapshot and the movements after
+     * it, then start taking snapshots in the background
+     */
+    public StockMovementLog() throws SQLException {
+        int corrected = rebuildProjection();
+        if (corrected > 0) {
+            System.err.println("Corrected the quantity of " + corrected + " stock items to match the movement log");
+        }
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "movement-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshotIfDue, 0, SNAPSHOT_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append one movement; call inside the inTransaction() work that applies it to stock_items
+     */
+    public static void append(Connection conn, String itemId, StockMovement.Type type, long quantityChange,
+                              String reference) throws SQLException {
+        append(conn, Collections.singletonList(new StockMovement(itemId, type, quantityChange, reference)));
+    }
+
+    /**
+     * Append movements in order, skipping those that change nothing; call inside
+     * the inTransaction() work that applies them to stock_items
+     */
+    public static void append(Connection conn, Collection<StockMovement> movements) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(INSERT_MOVEMENT)) {
+            for (StockMovement movement : movements) {
+                if (movement.getQuantityChange() == 0) {
+                    continue;
+                }
+                insert.setString(1, movement.getItemId());
+                insert.setString(2, movement.getType().name());
+                insert.setLong(3, movement.getQuantityChange());
+                insert.setString(4, movement.getReference());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Get the movements of an item, oldest first
+     */
+    public static List<StockMovement> getMovements(String itemId) {
+        List<StockMovement> movements = new ArrayList<>();
+        String query = "SELECT * FROM stock_movements WHERE item_id = ? ORDER BY seq";
+
+        try (PreparedStatement stmt = DatabaseHelper.getConnection().prepareStatement(query)) {
+            stmt.setString(1, itemId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    movements.add(new StockMovement(
+                        rs.getLong("seq"),
+                        rs.getString("item_id"),
+                        StockMovement.Type.valueOf(rs.getString("type")),
+                        rs.getLong("quantity_change"),
+                        rs.getString("reference"),
+                        rs.getTimestamp("created_at")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching stock movements: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return movements;
+    }
+
+    /**
+     * Get each item's quantity as of a past time: the nearest checkpoint at or
+     * before it plus the movements between the two. Items with no movement by
+     * then, including items created later, are left out. Call inside
+     * DatabaseHelper.readSnapshot() so the lookups agree with each other.
+     */
+    public static Map<String, Integer> getQuantitiesAsOf(Connection conn, Instant asOf) throws SQLException {
+        Map<String, Integer> quantities = new HashMap<>();
+
+        long toSeq;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT seq FROM stock_movements WHERE created_at <= ? ORDER BY created_at DESC, seq DESC LIMIT 1")) {
+            stmt.setString(1, SQLITE_TIMESTAMP.format(asOf));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return quantities;
+                }
+                toSeq = rs.getLong(1);
+            }
+        }
+
+        long checkpointSeq;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT seq FROM stock_checkpoints WHERE seq <= ? ORDER BY seq DESC LIMIT 1")) {
+            stmt.setLong(1, toSeq);
+            try (ResultSet rs = stmt.executeQuery()) {
+                checkpointSeq = rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT item_id, SUM(quantity) FROM (" +
+                 "SELECT item_id, quantity FROM stock_checkpoint_items WHERE checkpoint_seq = ? " +
+                 "UNION ALL " +
+                 "SELECT item_id, quantity_change FROM stock_movements WHERE seq > ? AND seq <= ?" +
+                 ") GROUP BY item_id")) {
+            stmt.setLong(1, checkpointSeq);
+            stmt.setLong(2, checkpointSeq);
+            stmt.setLong(3, toSeq);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    quantities.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Get one item's quantity as of a past time by adding up all its movements
+     * until then. Works on any database with a stock_movements table, such as a
+     * warehouse's file, and is cheap for a single item.
+     */
+    static long sumMovementsAsOf(Connection conn, String itemId, Instant asOf) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT COALESCE(SUM(quantity_change), 0) FROM stock_movements WHERE item_id = ? AND created_at <= ?")) {
+            stmt.setString(1, itemId);
+            stmt.setString(2, SQLITE_TIMESTAMP.format(asOf));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Fold the movements since the last snapshot into a new one now
+     */
+    public void snapshot() throws SQLException {
+        DatabaseHelper.inTransaction(conn -> {
+            takeSnapshot(conn);
+            return null;
+        });
+    }
+
+    /**
+     * Stop the background snapshots and take a final one, so the next startup replays nothing
+     */
+    public void close() {
+        snapshotter.shutdown();
+        try {
+            snapshot();
+        } catch (SQLException e) {
+            System.err.println("Error taking stock snapshot: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void snapshotIfDue() {
+        try {
+            // Checked on this thread's own connection first, so an idle log submits no writes
+            Connection reader = DatabaseHelper.getConnection();
+            if (lastSeq(reader) - lastSnapshotSeq(reader) < SNAPSHOT_THRESHOLD) {
+                return;
+            }
+            DatabaseHelper.inTransaction(conn -> {
+                if (lastSeq(conn) - lastSnapshotSeq(conn) >= SNAPSHOT_THRESHOLD) {
+                    takeSnapshot(conn);
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error taking stock snapshot: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Add each item's movements since the last snapshot to its snapshot quantity.
+     * Only the log feeds a snapshot, so a stock_items row changed behind its back
+     * cannot leak into one.
+     */
+    private static void takeSnapshot(Connection conn) throws SQLException {
+        long fromSeq = lastSnapshotSeq(conn);
+        long toSeq = lastSeq(conn);
+        if (toSeq == fromSeq) {
+            return;
+        }
+
+        try (PreparedStatement fold = conn.prepareStatement(
+                 "INSERT OR REPLACE INTO stock_snapshot (item_id, quantity) " +
+                 "SELECT m.item_id, COALESCE((SELECT s.quantity FROM stock_snapshot s WHERE s.item_id = m.item_id), 0) " +
+                 "+ SUM(m.quantity_change) FROM stock_movements m WHERE m.seq > ? AND m.seq <= ? GROUP BY m.item_id");
+             PreparedStatement position = conn.prepareStatement(
+                 "UPDATE stock_snapshot_state SET last_seq = ?, taken_at = CURRENT_TIMESTAMP WHERE id = 1");
+             Statement stmt = conn.createStatement()) {
+
+            fold.setLong(1, fromSeq);
+            fold.setLong(2, toSeq);
+            fold.executeUpdate();
+
+            // A deleted item's movements end at zero; its row is no longer needed
+            stmt.executeUpdate("DELETE FROM stock_snapshot WHERE quantity = 0 " +
+                               "AND item_id NOT IN (SELECT id FROM stock_items)");
+
+            position.setLong(1, toSeq);
+            position.executeUpdate();
+        }
+
+        if (isCheckpointDue(conn, toSeq)) {
+            try (PreparedStatement checkpoint = conn.prepareStatement(
+                     "INSERT INTO stock_checkpoints (seq, taken_at) VALUES (?, CURRENT_TIMESTAMP)");
+                 PreparedStatement items = conn.prepareStatement(
+                     "INSERT INTO stock_checkpoint_items (checkpoint_seq, item_id, quantity) " +
+                     "SELECT ?, item_id, quantity FROM stock_snapshot")) {
+                checkpoint.setLong(1, toSeq);
+                checkpoint.executeUpdate();
+                items.setLong(1, toSeq);
+                items.executeUpdate();
+            }
+            pruneCheckpoints(conn);
+        }
+    }
+
+    /**
+     * Delete the checkpoints that are neither among the most recent, nor the
+     * first of their day within the last month, nor the first of their month
+     */
+    static void pruneCheckpoints(Connection conn) throws SQLException {
+        List<Long> pruned = new ArrayList<>();
+        try (PreparedStatement find = conn.prepareStatement(
+                 "SELECT seq FROM stock_checkpoints " +
+                 "WHERE seq NOT IN (SELECT seq FROM stock_checkpoints ORDER BY seq DESC LIMIT ?) " +
+                 "AND seq NOT IN (SELECT MIN(seq) FROM stock_checkpoints WHERE taken_at >= datetime('now', ?) " +
+                 "GROUP BY date(taken_at)) " +
+                 "AND seq NOT IN (SELECT MIN(seq) FROM stock_checkpoints GROUP BY strftime('%Y-%m', taken_at))")) {
+            find.setInt(1, RECENT_CHECKPOINTS_KEPT);
+            find.setString(2, "-" + DAILY_CHECKPOINT_DAYS + " days");
+            try (ResultSet rs = find.executeQuery()) {
+                while (rs.next()) {
+                    pruned.add(rs.getLong(1));
+                }
+            }
+        }
+        if (pruned.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement items = conn.prepareStatement(
+                 "DELETE FROM stock_checkpoint_items WHERE checkpoint_seq = ?");
+             PreparedStatement checkpoint = conn.prepareStatement(
+                 "DELETE FROM stock_checkpoints WHERE seq = ?")) {
+            for (long seq : pruned) {
+                items.setLong(1, seq);
+                items.addBatch();
+                checkpoint.setLong(1, seq);
+                checkpoint.addBatch();
+            }
+            items.executeBatch();
+            checkpoint.executeBatch();
+        }
+    }
+
+    private static boolean isCheckpointDue(Connection conn, long seq) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT seq, julianday('now') - julianday(taken_at) FROM stock_checkpoints " +
+                 "ORDER BY seq DESC LIMIT 1")) {
+            if (!rs.next()) {
+                return true;
+            }
+            return seq - rs.getLong(1) >= CHECKPOINT_THRESHOLD || rs.getDouble(2) >= CHECKPOINT_INTERVAL_DAYS;
+        }
+    }
+
+    /**
+     * Set every item's quantity to its snapshot quantity plus its movements
+     * since, after recording the quantity of any item that has no history yet,
+     * such as one created before the log existed, as an opening balance
+     * @return the number of items whose quantity had to be corrected
+     */
+    private static int rebuildProjection() throws SQLException {
+        return DatabaseHelper.inTransaction(StockMovementLog::rebuildProjection);
+    }
+
+    // The rebuild itself, inside the caller's transaction
+    static int rebuildProjection(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                "INSERT INTO stock_movements (item_id, type, quantity_change, reference) " +
+                "SELECT i.id, 'ADJUSTMENT', i.quantity, 'Opening balance' FROM stock_items i " +
+                "WHERE i.quantity <> 0 " +
+                "AND NOT EXISTS (SELECT 1 FROM stock_movements m WHERE m.item_id = i.id) " +
+                "AND NOT EXISTS (SELECT 1 FROM stock_snapshot s WHERE s.item_id = i.id)");
+        }
+
+        String projected =
+            "(COALESCE((SELECT s.quantity FROM stock_snapshot s WHERE s.item_id = stock_items.id), 0) + " +
+            "COALESCE((SELECT SUM(m.quantity_change) FROM stock_movements m " +
+            "WHERE m.item_id = stock_items.id AND m.seq > ?), 0))";
+        try (PreparedStatement update = conn.prepareStatement(
+                 "UPDATE stock_items SET quantity = " + projected + ", version = version + 1 " +
+                 "WHERE quantity <> " + projected)) {
+            long fromSeq = lastSnapshotSeq(conn);
+            update.setLong(1, fromSeq);
+            update.setLong(2, fromSeq);
+            return update.executeUpdate();
+        }
+    }
+
+    private static long lastSnapshotSeq(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_seq FROM stock_snapshot_state WHERE id = 1")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static long lastSeq(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(seq), 0) FROM stock_movements")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+// WarehouseController.java
+package com.stockmanager.controllers;
+
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.StockMovement;
+import com.stockmanager.models.Supplier;
+import com.stockmanager.models.Warehouse;
+import com.stockmanager.utils.DatabaseHelper;
+import com.stockmanager.utils.ShardDatabase;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Controller for stock held in more than one warehouse. The main warehouse's
+ * stock is the quantity in stock_items, which the rest of the application
+ * works with. Every other warehouse keeps its stock levels in a database file
+ * of its own under warehouses/, with its own writer thread, so writes to
+ * different warehouses never wait on each other, and a log of the movements
+ * that make up those levels. Items are defined once, in
+ * stockmanager.db. A query across warehouses runs in all of them at once on a
+ * shared pool, and the results are merged here.
+ */
+public class WarehouseController {
+    public static final String MAIN_WAREHOUSE = "MAIN";
+
+    private static final Path WAREHOUSE_DIR = Paths.get("warehouses");
+    private static final Pattern CODE_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,16}");
+
+    private static final String[] WAREHOUSE_SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS stock_levels (" +
+        "item_id TEXT PRIMARY KEY, " +
+        "quantity INTEGER NOT NULL DEFAULT 0 CHECK (quantity >= 0), " +
+        "last_modified TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+        ")",
+        // The warehouse's own movement log, laid out as stockmanager.db's, so past levels can be worked out
+        "CREATE TABLE IF NOT EXISTS stock_movements (" +
+        "seq INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "item_id TEXT NOT NULL, " +
+        "type TEXT NOT NULL CHECK (type IN ('RECEIPT', 'SALE', 'ADJUSTMENT', 'TRANSFER')), " +
+        "quantity_change INTEGER NOT NULL, " +
+        "reference TEXT, " +
+        "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP " +
+        ")",
+        "CREATE INDEX IF NOT EXISTS idx_stock_movements_item ON stock_movements(item_id, seq)",
+        // Stock held before the log existed
+        "INSERT INTO stock_movements (item_id, type, quantity_change, reference) " +
+        "SELECT l.item_id, 'ADJUSTMENT', l.quantity, 'Opening balance' FROM stock_levels l " +
+        "WHERE l.quantity <> 0 " +
+        "AND NOT EXISTS (SELECT 1 FROM stock_movements m WHERE m.item_id = l.item_id)"
+    };
+
+    private static final int QUERY_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final StockController stockController;
+    private final ExecutorService queryPool;
+
+    // Guarded by this controller's monitor; the main warehouse first
+    private final Map<String, Warehouse> warehouses = new LinkedHashMap<>();
+
+    private final Map<String, ShardDatabase> shards = new ConcurrentHashMap<>();
+
+    // Read-held by an adjustment from its check that the item exists to its write, and
+    // write-held while items are archived, so no warehouse gains stock of an item moving out
+    private final ReadWriteLock adjustmentLock = new ReentrantReadWriteLock();
+
+    /**
+     * Open the database file of every registered warehouse
+     */
+    public WarehouseController(StockController stockController) {
+        this.stockController = stockController;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        queryPool = Executors.newFixedThreadPool(QUERY_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "warehouse-query-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        warehouses.put(MAIN_WAREHOUSE, new Warehouse(MAIN_WAREHOUSE, "Main"));
+        try (Statement stmt = DatabaseHelper.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT code, name FROM warehouses ORDER BY created_at, code")) {
+            while (rs.next()) {
+                Warehouse warehouse = new Warehouse(rs.getString("code"), rs.getString("name"));
+                shards.put(warehouse.getCode(), openShard(warehouse.getCode()));
+                warehouses.put(warehouse.getCode(), warehouse);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading warehouses: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        stockController.addChangeListener(new StockController.ChangeListener() {
+            @Override
+            public void itemSaved(StockItem item) {
+            }
+
+            @Override
+            public void itemDeleted(String id) {
+                // Off the caller's thread, since every warehouse's writer is involved
+                queryPool.execute(() -> removeItem(id));
+            }
+
+            @Override
+            public void supplierSaved(Supplier supplier) {
+            }
+        });
+    }
+
+    /**
+     * List the warehouses, the main one first
+     */
+    public synchronized List<Warehouse> getWarehouses() {
+        return new ArrayList<>(warehouses.values());
+    }
+
+    /**
+     * Register a warehouse and create its database file
+     * @return false if the code is not 1-16 letters, digits, '-' or '_', or is taken
+     */
+    public synchronized boolean addWarehouse(String code, String name) {
+        if (code == null || !CODE_PATTERN.matcher(code).matches() || name == null || name.trim().isEmpty()) {
+            return false;
+        }
+        // Codes name files, so they must differ in more than case
+        for (String existing : warehouses.keySet()) {
+            if (existing.equalsIgnoreCase(code)) {
+                return false;
+            }
+        }
+
+        try {
+            shards.put(code, openShard(code));
+            DatabaseHelper.inTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                         "INSERT INTO warehouses (code, name) VALUES (?, ?)")) {
+                    stmt.setString(1, code);
+                    stmt.setString(2, name.trim());
+                    return stmt.executeUpdate();
+                }
+            });
+            warehouses.put(code, new Warehouse(code, name.trim()));
+            return true;
+        } catch (SQLException e) {
+            ShardDatabase shard = shards.remove(code);
+            if (shard != null) {
+                shard.close();
+            }
+            System.err.println("Error adding warehouse: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Add delta units of an item in one warehouse; in the main one this is StockController.adjustQuantity()
+     * @return false if the item or warehouse does not exist or the quantity would go below zero
+     */
+    public boolean adjustQuantity(String warehouseCode, String itemId, long delta) {
+        if (MAIN_WAREHOUSE.equals(warehouseCode)) {
+            return stockController.adjustQuantity(itemId, delta);
+        }
+        ShardDatabase shard = shards.get(warehouseCode);
+        if (shard == null) {
+            return false;
+        }
+
+        adjustmentLock.readLock().lock();
+        try {
+            if (stockController.getStockItemById(itemId) == null) {
+                return false;
+            }
+            return shard.inTransaction(conn -> {
+                try (PreparedStatement insert = conn.prepareStatement(
+                         "INSERT OR IGNORE INTO stock_levels (item_id) VALUES (?)");
+                     PreparedStatement update = conn.prepareStatement(
+                         "UPDATE stock_levels SET quantity = quantity + ?, last_modified = CURRENT_TIMESTAMP " +
+                         "WHERE item_id = ? AND quantity + ? >= 0")) {
+                    insert.setString(1, itemId);
+                    insert.executeUpdate();
+                    update.setLong(1, delta);
+                    update.setString(2, itemId);
+                    update.setLong(3, delta);
+                    if (update.executeUpdate() == 0) {
+                        return false;
+                    }
+                }
+                StockMovement.Type type = delta > 0 ? StockMovement.Type.RECEIPT : StockMovement.Type.SALE;
+                StockMovementLog.append(conn, itemId, type, delta, "Adjusted");
+                return true;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error adjusting warehouse stock: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            adjustmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Run change while adjustments in the other warehouses wait, so which items
+     * they hold stock of cannot change until it is done
+     */
+    <T> T withAdjustmentsHeld(StockController.ItemChange<T> change) throws SQLException {
+        adjustmentLock.writeLock().lock();
+        try {
+            return change.run();
+        } finally {
+            adjustmentLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get an item's quantity in each warehouse, by warehouse code
+     */
+    public Map<String, Long> getQuantitiesByWarehouse(String itemId) {
+        try {
+            return fanOut(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                         "SELECT quantity FROM stock_levels WHERE item_id = ?")) {
+                    stmt.setString(1, itemId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        return rs.next() ? rs.getLong(1) : 0L;
+                    }
+                }
+            }, true);
+        } catch (SQLException e) {
+            System.err.println("Error getting warehouse quantities: " + e.getMessage());
+            e.printStackTrace();
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Get an item's quantity in each warehouse as it stood at a past time, by
+     * warehouse code, from each warehouse's movement log
+     */
+    public Map<String, Long> getQuantitiesByWarehouseAsOf(String itemId, Instant asOf) {
+        try {
+            return fanOut(conn -> StockMovementLog.sumMovementsAsOf(conn, itemId, asOf), true);
+        } catch (SQLException e) {
+            System.err.println("Error getting past warehouse quantities: " + e.getMessage());
+            e.printStackTrace();
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Get the value of the stock in each warehouse in cents, by warehouse
+     * code, each summed by the warehouse's own query against current prices
+     */
+    public Map<String, Long> getValueCentsByWarehouse() {
+        try {
+            return fanOut(conn -> {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(
+                         "SELECT COALESCE(SUM(l.quantity * i.price_cents), 0) FROM stock_levels l " +
+                         "JOIN stock_items i ON i.id = l.item_id")) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            }, true);
+        } catch (SQLException e) {
+            System.err.println("Error getting warehouse values: " + e.getMessage());
+            e.printStackTrace();
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Get the ids of items with stock in any warehouse other than the main one
+     */
+    Set<String> getItemsStockedOutsideMain() throws SQLException {
+        Set<String> ids = new HashSet<>();
+        for (List<String> stocked : fanOut(conn -> {
+                 List<String> result = new ArrayList<>();
+                 try (Statement stmt = conn.createStatement();
+                      ResultSet rs = stmt.executeQuery("SELECT item_id FROM stock_levels WHERE quantity > 0")) {
+                     while (rs.next()) {
+                         result.add(rs.getString(1));
+                     }
+                 }
+                 return result;
+             }, false).values()) {
+            ids.addAll(stocked);
+        }
+        return ids;
+    }
+
+    /**
+     * Stop the query pool and close every warehouse file after its queued writes
+     */
+    public void shutdown() {
+        queryPool.shutdown();
+        for (ShardDatabase shard : shards.values()) {
+            shard.close();
+        }
+    }
+
+    /**
+     * Run a query in each warehouse in parallel, each inside a read
+     * transaction of its own, and wait for all of them
+     * @return the results by warehouse code, in the order of getWarehouses()
+     */
+    private <T> Map<String, T> fanOut(DatabaseHelper.TransactionWork<T> query, boolean includeMain)
+            throws SQLException {
+        Map<String, Future<T>> futures = new LinkedHashMap<>();
+        for (Warehouse warehouse : getWarehouses()) {
+            String code = warehouse.getCode();
+            if (MAIN_WAREHOUSE.equals(code)) {
+                if (includeMain) {
+                    stockController.awaitPendingWrites();
+                    futures.put(code, queryPool.submit(() -> DatabaseHelper.readSnapshot(query)));
+                }
+            } else {
+                ShardDatabase shard = shards.get(code);
+                futures.put(code, queryPool.submit(() -> shard.readSnapshot(query)));
+            }
+        }
+
+        Map<String, T> results = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Warehouse query failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for warehouse queries", e);
+        } finally {
+            // Drops the queries not yet started when one fails
+            for (Future<T> future : futures.values()) {
+                future.cancel(false);
+            }
+        }
+        return results;
+    }
+
+    private void removeItem(String itemId) {
+        for (ShardDatabase shard : shards.values()) {
+            try {
+                shard.inTransaction(conn -> {
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                             "DELETE FROM stock_levels WHERE item_id = ?")) {
+                        stmt.setString(1, itemId);
+                        return stmt.executeUpdate();
+                    }
+                });
+            } catch (SQLException e) {
+                System.err.println("Error removing item from warehouse: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static ShardDatabase openShard(String code) throws SQLException {
+        return new ShardDatabase(warehouseFile(code), code, WAREHOUSE_SCHEMA);
+    }
+
+    /**
+     * The database file of a warehouse other than the main one
+     */
+    static Path warehouseFile(String code) {
+        return WAREHOUSE_DIR.resolve(code + ".db");
+    }
+
+    /**
+     * The warehouse database files on disk, by warehouse code
+     */
+    static Map<String, Path> warehouseFiles() throws IOException {
+        Map<String, Path> files = new TreeMap<>();
+        if (!Files.isDirectory(WAREHOUSE_DIR)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(WAREHOUSE_DIR, "*.db")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                files.put(name.substring(0, name.length() - ".db".length()), file);
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,519 @@
+// WriteBehindQueue.java
+package com.stockmanager.controllers;
+
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.Supplier;
+import com.stockmanager.utils.DatabaseHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Acknowledges stock item saves and deletes once they are forced to a local
+ * journal, and applies them to the database on a background thread, many per
+ * transaction. Until a write is applied the queue keeps it, so a read of the
+ * item by id sees it; reads that cannot be answered that way call awaitApplied().
+ *
+ * As with QuantityAccumulator, each journal record carries a sequence number and
+ * every applied batch records the last one it covers in the same transaction,
+ * so on startup exactly the acknowledged but unapplied writes are replayed.
+ * Records are framed by their length and a checksum; replay stops at the first
+ * one a crash left short, zeroed or damaged, and cuts the journal there.
+ *
+ * A write that fails to apply stays pending and in the journal and is retried
+ * with growing delays. One that conflicts with a newer change, or still fails
+ * after MAX_ATTEMPTS, is handed to the failure listener, since the user was
+ * already told it was saved.
+ */
+public class WriteBehindQueue {
+    private static final Path JOURNAL_FILE = Paths.get("writebehind.journal");
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MS = 500;
+
+    private static final byte UPDATE = 1;
+    private static final byte DELETE = 2;
+    private static final byte INSERT = 3;
+
+    // Length and CRC32 in front of every record
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    /**
+     * Writes one pending write to the database
+     */
+    public interface Applier {
+        /**
+         * @return false if the write conflicted with a newer change and was not applied
+         */
+        boolean apply(Connection conn, PendingWrite write) throws SQLException;
+    }
+
+    /**
+     * Receives acknowledged writes that were given up. Called on the queue's
+     * thread once the write is no longer pending, so it must not wait for the queue.
+     */
+    public interface FailureListener {
+        void writeFailed(PendingWrite write, String reason);
+    }
+
+    /**
+     * A journaled write that may not be applied yet
+     */
+    public static class PendingWrite {
+        final long seq;
+        final String id;
+        // The item as saved, at its new version; null for a delete
+        final StockItem item;
+        // True if the item is new, so there is no row to update
+        final boolean insert;
+        // Version the saved copy was read at
+        final long expectedVersion;
+
+        PendingWrite(long seq, String id, StockItem item, boolean insert, long expectedVersion) {
+            this.seq = seq;
+            this.id = id;
+            this.item = item;
+            this.insert = insert;
+            this.expectedVersion = expectedVersion;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public StockItem getItem() {
+            return item;
+        }
+
+        public long getExpectedVersion() {
+            return expectedVersion;
+        }
+
+        public boolean isDelete() {
+            return item == null;
+        }
+
+        public boolean isInsert() {
+            return insert;
+        }
+    }
+
+    private final Applier applier;
+    private final FailureListener failureListener;
+
+    // Latest unapplied write for each item id
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+    // Guarded by journalLock, which is also notified whenever appliedSeq advances
+    private final Object journalLock = new Object();
+    private FileChannel journal;
+    private long lastSeq;
+    private long appliedSeq;
+
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Replay whatever an earlier run acknowledged but did not apply, then start accepting writes
+     */
+    public WriteBehindQueue(Applier applier, FailureListener failureListener) throws IOException, SQLException {
+        this.applier = applier;
+        this.failureListener = failureListener;
+        replayJournal();
+        journal = FileChannel.open(JOURNAL_FILE, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.APPEND);
+
+        thread = new Thread(this::run, "write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Journal the insert of a new item. The item is copied, so the caller may keep changing it.
+     */
+    public void insert(StockItem item) throws IOException {
+        append(item.getId(), new StockItem(item), true, 0);
+    }
+
+    /**
+     * Journal an update of item, which was read at expectedVersion and is now at
+     * its new version. The item is copied, so the caller may keep changing it.
+     */
+    public void update(StockItem item, long expectedVersion) throws IOException {
+        append(item.getId(), new StockItem(item), false, expectedVersion);
+    }
+
+    /**
+     * Journal a delete of the item with the given id
+     */
+    public void delete(String id) throws IOException {
+        append(id, null, false, 0);
+    }
+
+    /**
+     * Get the unapplied write for an item, or null if every write to it has been applied
+     */
+    public PendingWrite getPending(String id) {
+        return pending.get(id);
+    }
+
+    /**
+     * Wait until every write acknowledged so far has been applied
+     */
+    public void awaitApplied() {
+        synchronized (journalLock) {
+            long target = lastSeq;
+            while (appliedSeq < target && !closed) {
+                try {
+                    journalLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply the remaining writes, then stop the background thread
+     */
+    public void close() {
+        awaitApplied();
+        closed = true;
+        thread.interrupt();
+        synchronized (journalLock) {
+            journalLock.notifyAll();
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing write-behind journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private void append(String id, StockItem item, boolean insert, long expectedVersion) throws IOException {
+        synchronized (journalLock) {
+            if (closed) {
+                throw new IOException("Write-behind queue is closed");
+            }
+            PendingWrite write = new PendingWrite(lastSeq + 1, id, item, insert, expectedVersion);
+
+            ByteBuffer buffer = ByteBuffer.wrap(formatRecord(write));
+            long end = journal.size();
+            try {
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+                journal.force(false);
+            } catch (IOException e) {
+                // Cut off the partial record, or replay would stop at it and miss later ones
+                journal.truncate(end);
+                throw e;
+            }
+
+            // Only acknowledged once durable
+            lastSeq = write.seq;
+            pending.put(id, write);
+            queue.add(write);
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; // close() sets closed first
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+            Map<PendingWrite, String> failures = new LinkedHashMap<>();
+            int done = applyBatch(batch, failures);
+
+            // Writes left undone by closing stay pending and in the journal for the next start
+            if (done > 0) {
+                for (PendingWrite write : batch.subList(0, done)) {
+                    pending.remove(write.id, write);
+                }
+                synchronized (journalLock) {
+                    appliedSeq = batch.get(done - 1).seq;
+                    if (appliedSeq == lastSeq) {
+                        truncateJournal();
+                    }
+                    journalLock.notifyAll();
+                }
+            }
+            batch.clear();
+            reportFailures(failures);
+        }
+    }
+
+    /**
+     * Apply writes in one transaction, or one at a time if that fails. A write
+     * that fails is retried until it applies or runs out of attempts, so a
+     * passing error loses nothing and a lasting one does not block the rest.
+     * @param failures receives the writes given up, with the reason
+     * @return how many writes from the start of the batch were dealt with;
+     *         fewer than all only if the queue was closed while retrying
+     */
+    private int applyBatch(List<PendingWrite> batch, Map<PendingWrite, String> failures) {
+        try {
+            apply(batch, failures);
+            return batch.size();
+        } catch (SQLException e) {
+            // Find the writes that fail by applying them one at a time
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingWrite write = batch.get(i);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    apply(Collections.singletonList(write), failures);
+                    break;
+                } catch (SQLException e) {
+                    if (attempt == MAX_ATTEMPTS) {
+                        failures.put(write, e.getMessage());
+                        break;
+                    }
+                    System.err.println("Error applying write-behind change to item " + write.id +
+                                       ", retrying: " + e.getMessage());
+                    if (!pause(RETRY_DELAY_MS << (attempt - 1))) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return batch.size();
+    }
+
+    private void apply(List<PendingWrite> writes, Map<PendingWrite, String> failures) throws SQLException {
+        long seq = writes.get(writes.size() - 1).seq;
+        List<PendingWrite> conflicts = DatabaseHelper.inTransaction(conn -> {
+            List<PendingWrite> conflicted = new ArrayList<>();
+            for (PendingWrite write : writes) {
+                if (!applier.apply(conn, write)) {
+                    conflicted.add(write);
+                }
+            }
+            try (PreparedStatement position = conn.prepareStatement(
+                     "UPDATE write_behind_state SET last_applied_seq = ? WHERE id = 1")) {
+                position.setLong(1, seq);
+                position.executeUpdate();
+            }
+            return conflicted;
+        });
+
+        for (PendingWrite write : conflicts) {
+            failures.put(write, "the item was changed or deleted elsewhere after the save was accepted");
+        }
+    }
+
+    /**
+     * Wait before a retry
+     * @return false if the queue was closed meanwhile
+     */
+    private boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // close() sets closed first
+        }
+        return !closed;
+    }
+
+    private void reportFailures(Map<PendingWrite, String> failures) {
+        for (Map.Entry<PendingWrite, String> failure : failures.entrySet()) {
+            System.err.println("Error applying write-behind change to item " + failure.getKey().id + ": " +
+                               failure.getValue());
+            failureListener.writeFailed(failure.getKey(), failure.getValue());
+        }
+    }
+
+    private void truncateJournal() {
+        try {
+            journal.truncate(0);
+        } catch (IOException e) {
+            // Harmless: replay skips records that were already applied
+            System.err.println("Error truncating write-behind journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apply journal records newer than the database's recorded position, then empty the journal
+     */
+    private void replayJournal() throws IOException, SQLException {
+        long applied;
+        try (Statement stmt = DatabaseHelper.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_applied_seq FROM write_behind_state WHERE id = 1")) {
+            applied = rs.next() ? rs.getLong(1) : 0;
+        }
+
+        List<PendingWrite> writes = new ArrayList<>();
+        long maxSeq = applied;
+        if (Files.exists(JOURNAL_FILE)) {
+            byte[] content = Files.readAllBytes(JOURNAL_FILE);
+            List<PendingWrite> records = new ArrayList<>();
+            int end = parseRecords(content, records);
+            if (end < content.length) {
+                System.err.println("Cut " + (content.length - end) +
+                                   " damaged bytes from the end of the write-behind journal");
+                try (FileChannel damaged = FileChannel.open(JOURNAL_FILE, StandardOpenOption.WRITE)) {
+                    damaged.truncate(end);
+                }
+            }
+            for (PendingWrite write : records) {
+                if (write.seq > applied) {
+                    writes.add(write);
+                }
+                maxSeq = Math.max(maxSeq, write.seq);
+            }
+        }
+
+        // Nothing can close the queue yet, so every write is either applied or given up
+        Map<PendingWrite, String> failures = new LinkedHashMap<>();
+        if (!writes.isEmpty()) {
+            applyBatch(writes, failures);
+        }
+        Files.deleteIfExists(JOURNAL_FILE);
+        reportFailures(failures);
+        lastSeq = maxSeq;
+        appliedSeq = maxSeq;
+    }
+
+    /**
+     * The journal file, if there is one on disk
+     */
+    static List<Path> journalFiles() {
+        return Files.exists(JOURNAL_FILE) ? Collections.singletonList(JOURNAL_FILE) : Collections.emptyList();
+    }
+
+    /**
+     * Frame a write as a journal record: its length, a CRC32 of its bytes, then the bytes
+     */
+    static byte[] formatRecord(PendingWrite write) throws IOException {
+        byte[] record = encode(write);
+        return ByteBuffer.allocate(RECORD_HEADER_BYTES + record.length)
+                         .putInt(record.length)
+                         .putInt((int) checksum(record))
+                         .put(record)
+                         .array();
+    }
+
+    /**
+     * Read the records of a journal up to its end or the first record a crash
+     * left damaged: cut short, zero-filled, failing its checksum or not
+     * parsing. Nothing after it is read, since its length cannot be trusted to
+     * find the next record.
+     * @param records receives the whole records, in journal order
+     * @return the length of the journal taken up by those records
+     */
+    static int parseRecords(byte[] journal, List<PendingWrite> records) {
+        ByteBuffer buffer = ByteBuffer.wrap(journal);
+        int end = 0;
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(record);
+            if ((int) checksum(record) != checksum) {
+                break;
+            }
+            try {
+                records.add(decode(record));
+            } catch (IOException e) {
+                break;
+            }
+            end = buffer.position();
+        }
+        return end;
+    }
+
+    private static long checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return crc.getValue();
+    }
+
+    private static byte[] encode(PendingWrite write) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(write.seq);
+            out.writeUTF(write.id);
+            if (write.item == null) {
+                out.writeByte(DELETE);
+            } else {
+                StockItem item = write.item;
+                out.writeByte(write.insert ? INSERT : UPDATE);
+                out.writeUTF(item.getName());
+                writeNullable(out, item.getDescription());
+                out.writeLong(item.getPriceCents());
+                out.writeInt(item.getQuantity());
+                writeNullable(out, item.getSupplier() != null ? item.getSupplier().getId() : null);
+                out.writeLong(item.getVersion());
+                out.writeLong(write.expectedVersion);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static PendingWrite decode(byte[] record) throws IOException {
+        try (DataInputStream fields = new DataInputStream(new ByteArrayInputStream(record))) {
+            long seq = fields.readLong();
+            String id = fields.readUTF();
+            byte type = fields.readByte();
+            if (type == DELETE) {
+                return new PendingWrite(seq, id, null, false, 0);
+            }
+
+            String name = fields.readUTF();
+            String description = readNullable(fields);
+            long priceCents = fields.readLong();
+            int quantity = fields.readInt();
+            String supplierId = readNullable(fields);
+            // Applying only needs the supplier's id
+            Supplier supplier = new Supplier(supplierId, null, null, null, null, null);
+            StockItem item = new StockItem(id, name, description, priceCents, quantity, supplier);
+            item.setVersion(fields.readLong());
+            return new PendingWrite(seq, id, item, type == INSERT, fields.readLong());
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,34 @@
+// BackupSet.java
+package com.stockmanager.models;
+
+import java.time.Instant;
+
+/**
+ * One backup of the database, kept as a file in the backup directory
+ */
+public class BackupSet {
+    private final String name;
+    private final Instant createdAt;
+    private final long sizeBytes;
+
+    public BackupSet(String name, Instant createdAt, long sizeBytes) {
+        this.name = name;
+        this.createdAt = createdAt;
+        this.sizeBytes = sizeBytes;
+    }
+
+    /**
+     * The backup's file name, which identifies it
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+}
@@ -0,0 +1,219 @@
+// ColumnarInventory.java
+package com.stockmanager.models;
+
+import com.stockmanager.utils.IdIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Struct-of-arrays copy of the inventory for analytics.
+ * Each item is one row across parallel primitive columns; names and
+ * descriptions are dictionary codes and suppliers are slots, so aggregations
+ * are plain loops over arrays with no boxing or per-item objects.
+ * All methods are synchronized, so deltas and scans never interleave.
+ */
+public class ColumnarInventory implements InventoryView {
+    private static final int NO_SUPPLIER = -1;
+    private static final String NO_SUPPLIER_NAME = "No Supplier";
+
+    private int size;
+    private String[] ids = new String[16];
+    private int[] nameCodes = new int[16];
+    private int[] descriptionCodes = new int[16];
+    private long[] priceCents = new long[16];
+    private int[] quantities = new int[16];
+    private int[] supplierSlots = new int[16];
+    private final IdIndex rowsById = new IdIndex();
+
+    // Dictionary of names and descriptions
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringCodes = new HashMap<>();
+
+    // Supplier table
+    private final List<Supplier> suppliers = new ArrayList<>();
+    private final IdIndex supplierSlotsById = new IdIndex();
+
+    /**
+     * Build the columns from a compact catalog
+     */
+    public static ColumnarInventory from(CompactCatalog catalog) {
+        ColumnarInventory inventory = new ColumnarInventory();
+        for (Supplier supplier : catalog.getSuppliers()) {
+            inventory.upsertSupplier(supplier);
+        }
+        inventory.ensureCapacity(catalog.size());
+        for (CompactStockItem item : catalog.getItems()) {
+            Supplier supplier = catalog.getSupplier(item.getSupplierSlot());
+            int slot = supplier == null ? NO_SUPPLIER : inventory.supplierSlotsById.get(supplier.getId());
+            inventory.append(item.getId(), item.getName(), item.getDescription(),
+                             item.getPriceCents(), item.getQuantity(), slot);
+        }
+        return inventory;
+    }
+
+    /**
+     * Apply an inserted or updated item
+     */
+    public synchronized void upsert(StockItem item) {
+        int slot = NO_SUPPLIER;
+        if (item.getSupplier() != null && item.getSupplier().getId() != null) {
+            int known = supplierSlotsById.get(item.getSupplier().getId());
+            slot = known != IdIndex.NOT_FOUND ? known : upsertSupplier(item.getSupplier());
+        }
+
+        int row = rowsById.get(item.getId());
+        if (row == IdIndex.NOT_FOUND) {
+            append(item.getId(), item.getName(), item.getDescription(), item.getPriceCents(), item.getQuantity(), slot);
+        } else {
+            nameCodes[row] = code(item.getName());
+            descriptionCodes[row] = code(item.getDescription());
+            priceCents[row] = item.getPriceCents();
+            quantities[row] = item.getQuantity();
+            supplierSlots[row] = slot;
+        }
+    }
+
+    /**
+     * Apply a deleted item by moving the last row into its place
+     */
+    public synchronized void remove(String id) {
+        int row = rowsById.remove(id);
+        if (row == IdIndex.NOT_FOUND) {
+            return;
+        }
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            nameCodes[row] = nameCodes[last];
+            descriptionCodes[row] = descriptionCodes[last];
+            priceCents[row] = priceCents[last];
+            quantities[row] = quantities[last];
+            supplierSlots[row] = supplierSlots[last];
+            rowsById.put(ids[row], row);
+        }
+        ids[last] = null;
+    }
+
+    /**
+     * Register a new supplier or replace the details of a known one
+     * @return the supplier's slot
+     */
+    public synchronized int upsertSupplier(Supplier supplier) {
+        int slot = supplierSlotsById.get(supplier.getId());
+        if (slot == IdIndex.NOT_FOUND) {
+            slot = suppliers.size();
+            suppliers.add(supplier);
+            supplierSlotsById.put(supplier.getId(), slot);
+        } else {
+            suppliers.set(slot, supplier);
+        }
+        return slot;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized long getTotalValueCents() {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += priceCents[row] * quantities[row];
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized Map<String, Double> getValueBySupplier() {
+        // Slot 0 of the sums collects items without a supplier
+        long[] sums = new long[suppliers.size() + 1];
+        boolean[] present = new boolean[sums.length];
+        for (int row = 0; row < size; row++) {
+            int bucket = supplierSlots[row] + 1;
+            sums[bucket] += priceCents[row] * quantities[row];
+            present[bucket] = true;
+        }
+
+        Map<String, Double> result = new HashMap<>();
+        for (int bucket = 0; bucket < sums.length; bucket++) {
+            if (present[bucket]) {
+                String name = bucket == 0 ? NO_SUPPLIER_NAME : suppliers.get(bucket - 1).getName();
+                result.merge(name, sums[bucket] / 100.0, Double::sum);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized Map<String, Integer> getQuantitiesByName() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int row = 0; row < size; row++) {
+            result.merge(strings.get(nameCodes[row]), quantities[row], Integer::sum);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<StockItem> getItemsBelow(int threshold) {
+        List<StockItem> result = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            if (quantities[row] < threshold) {
+                result.add(toStockItem(row));
+            }
+        }
+        return result;
+    }
+
+    private StockItem toStockItem(int row) {
+        int slot = supplierSlots[row];
+        return new StockItem(
+            ids[row],
+            strings.get(nameCodes[row]),
+            strings.get(descriptionCodes[row]),
+            priceCents[row],
+            quantities[row],
+            slot == NO_SUPPLIER ? new Supplier(null, null, null, null, null, null) : suppliers.get(slot)
+        );
+    }
+
+    private void append(String id, String name, String description, long cents, int quantity, int supplierSlot) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        ids[row] = id;
+        nameCodes[row] = code(name);
+        descriptionCodes[row] = code(description);
+        priceCents[row] = cents;
+        quantities[row] = quantity;
+        supplierSlots[row] = supplierSlot;
+        rowsById.put(id, row);
+    }
+
+    private int code(String value) {
+        Integer code = stringCodes.get(value);
+        if (code == null) {
+            code = strings.size();
+            strings.add(value);
+            stringCodes.put(value, code);
+        }
+        return code;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        nameCodes = Arrays.copyOf(nameCodes, newCapacity);
+        descriptionCodes = Arrays.copyOf(descriptionCodes, newCapacity);
+        priceCents = Arrays.copyOf(priceCents, newCapacity);
+        quantities = Arrays.copyOf(quantities, newCapacity);
+        supplierSlots = Arrays.copyOf(supplierSlots, newCapacity);
+    }
+}
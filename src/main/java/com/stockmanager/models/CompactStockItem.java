@@ -0,0 +1,63 @@
+// CompactStockItem.java
+package com.stockmanager.models;
+
+/**
+ * Read-only, memory-lean form of a stock item for bulk in-memory work.
+ * The supplier is referenced by its slot in the owning CompactCatalog and the
+ * price is held in cents, so an instance is a single 40-byte object plus its
+ * id string; names and descriptions are shared through the catalog's pool.
+ */
+public final class CompactStockItem {
+    private final String id;
+    private final String name;
+    private final String description;
+    private final long priceCents;
+    private final int quantity;
+    private final int supplierSlot;
+
+    CompactStockItem(String id, String name, String description, long priceCents, int quantity, int supplierSlot) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.priceCents = priceCents;
+        this.quantity = quantity;
+        this.supplierSlot = supplierSlot;
+    }
+
+    // Getters
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Slot of the supplier in the owning catalog, or -1 when the item has none
+     */
+    public int getSupplierSlot() {
+        return supplierSlot;
+    }
+
+    public long getTotalValueCents() {
+        return priceCents * quantity;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,89 @@
+// FacetCounts.java
+package com.stockmanager.models;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Item counts of a result set broken down by supplier, price band and stock level
+ */
+public class FacetCounts {
+    // Exclusive upper bounds of the price bands in cents; the last band is open-ended
+    public static final long[] PRICE_BAND_LIMITS = {1000, 10000, 50000};
+    public static final String[] PRICE_BAND_LABELS = {"Under $10", "$10-$100", "$100-$500", "$500+"};
+
+    // Exclusive upper bounds of the low and medium stock levels
+    public static final int[] STOCK_LEVEL_LIMITS = {10, 20};
+    public static final String[] STOCK_LEVEL_LABELS = {"Low", "Medium", "High"};
+
+    private static final String NO_SUPPLIER = "No Supplier";
+
+    private final Map<String, Integer> supplierCounts = new LinkedHashMap<>();
+    private final int[] priceBandCounts = new int[PRICE_BAND_LABELS.length];
+    private final int[] stockLevelCounts = new int[STOCK_LEVEL_LABELS.length];
+    private int total;
+
+    /**
+     * Add a group of items sharing the same supplier, price band and stock level
+     */
+    public void add(String supplierName, int priceBand, int stockLevel, int count) {
+        supplierCounts.merge(supplierName == null ? NO_SUPPLIER : supplierName, count, Integer::sum);
+        priceBandCounts[priceBand] += count;
+        stockLevelCounts[stockLevel] += count;
+        total += count;
+    }
+
+    /**
+     * Count the facets of items already in memory
+     */
+    public static FacetCounts fromItems(List<StockItem> items) {
+        FacetCounts facets = new FacetCounts();
+        for (StockItem item : items) {
+            String supplierName = item.getSupplier() == null ? null : item.getSupplier().getName();
+            facets.add(supplierName, priceBand(item.getPriceCents()), stockLevel(item.getQuantity()), 1);
+        }
+        return facets;
+    }
+
+    public static int priceBand(long priceCents) {
+        int band = 0;
+        while (band < PRICE_BAND_LIMITS.length && priceCents >= PRICE_BAND_LIMITS[band]) {
+            band++;
+        }
+        return band;
+    }
+
+    public static int stockLevel(int quantity) {
+        int level = 0;
+        while (level < STOCK_LEVEL_LIMITS.length && quantity >= STOCK_LEVEL_LIMITS[level]) {
+            level++;
+        }
+        return level;
+    }
+
+    // Getters
+    public Map<String, Integer> getSupplierCounts() {
+        return supplierCounts;
+    }
+
+    public Map<String, Integer> getPriceBandCounts() {
+        return toMap(PRICE_BAND_LABELS, priceBandCounts);
+    }
+
+    public Map<String, Integer> getStockLevelCounts() {
+        return toMap(STOCK_LEVEL_LABELS, stockLevelCounts);
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    private static Map<String, Integer> toMap(String[] labels, int[] counts) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            map.put(labels[i], counts[i]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,59 @@
+// InventorySummary.java
+package com.stockmanager.models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The inventory figures a dashboard or analytics refresh shows, all taken
+ * from the same state of the inventory so they agree with each other
+ */
+public class InventorySummary {
+    private final int itemCount;
+    private final long totalValueCents;
+    private final List<StockItem> lowStockItems;
+    private final Map<String, Double> valueBySupplier;
+    private final Map<String, Integer> quantitiesByName;
+
+    public InventorySummary(int itemCount, long totalValueCents, List<StockItem> lowStockItems,
+                            Map<String, Double> valueBySupplier, Map<String, Integer> quantitiesByName) {
+        this.itemCount = itemCount;
+        this.totalValueCents = totalValueCents;
+        this.lowStockItems = lowStockItems;
+        this.valueBySupplier = valueBySupplier;
+        this.quantitiesByName = quantitiesByName;
+    }
+
+    /**
+     * Summarize the current state of an inventory view
+     */
+    public static InventorySummary of(InventoryView view, int lowStockThreshold) {
+        return new InventorySummary(
+            view.size(),
+            view.getTotalValueCents(),
+            view.getItemsBelow(lowStockThreshold),
+            view.getValueBySupplier(),
+            view.getQuantitiesByName()
+        );
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public long getTotalValueCents() {
+        return totalValueCents;
+    }
+
+    public List<StockItem> getLowStockItems() {
+        return lowStockItems;
+    }
+
+    public Map<String, Double> getValueBySupplier() {
+        return valueBySupplier;
+    }
+
+    public Map<String, Integer> getQuantitiesByName() {
+        return quantitiesByName;
+    }
+}
@@ -0,0 +1,29 @@
+// InventoryView.java
+package com.stockmanager.models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only aggregations over a bulk in-memory copy of the inventory
+ */
+public interface InventoryView {
+    int size();
+
+    long getTotalValueCents();
+
+    /**
+     * Sum of price times quantity per supplier name
+     */
+    Map<String, Double> getValueBySupplier();
+
+    /**
+     * Quantity per item name, with items of the same name added together
+     */
+    Map<String, Integer> getQuantitiesByName();
+
+    /**
+     * Materialize the items whose quantity is below the threshold
+     */
+    List<StockItem> getItemsBelow(int threshold);
+}
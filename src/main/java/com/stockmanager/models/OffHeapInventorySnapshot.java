@@ -0,0 +1,363 @@
+// OffHeapInventorySnapshot.java
+package com.stockmanager.models;
+
+import com.stockmanager.utils.IdIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copy of the inventory held in memory-mapped temporary files rather than on the heap.
+ * Only quantities change after it is built, patched in place by its owner.
+ * Items are fixed-width records, sorted by id, in one file; ids, names and descriptions are
+ * length-prefixed UTF-8 in a second file the records point into. Looking up an id is a binary
+ * search over the records, so the heap cost is the supplier table only, whatever the row count.
+ * Each mapping is limited to 2 GB, which is roughly 60 million records.
+ */
+public class OffHeapInventorySnapshot implements InventoryView, Closeable {
+    private static final String NO_SUPPLIER_NAME = "No Supplier";
+    private static final int NO_SUPPLIER = -1;
+    private static final int NO_STRING = -1;
+
+    // Record layout: priceCents, quantity, supplierSlot, then offsets into the string file
+    private static final int RECORD_SIZE = 32;
+    private static final int PRICE_CENTS = 0;
+    private static final int QUANTITY = 8;
+    private static final int SUPPLIER_SLOT = 12;
+    private static final int ID_OFFSET = 16;
+    private static final int NAME_OFFSET = 20;
+    private static final int DESCRIPTION_OFFSET = 24;
+
+    private final Path recordsFile;
+    private final Path stringsFile;
+    private final ByteBuffer records;
+    private final ByteBuffer strings;
+    private final int size;
+    private final List<Supplier> suppliers;
+    private volatile long version;
+
+    private OffHeapInventorySnapshot(Path recordsFile, Path stringsFile, List<Supplier> suppliers, long version)
+            throws IOException {
+        this.recordsFile = recordsFile;
+        this.stringsFile = stringsFile;
+        this.records = map(recordsFile, FileChannel.MapMode.READ_WRITE);
+        this.strings = map(stringsFile, FileChannel.MapMode.READ_ONLY);
+        this.size = records.capacity() / RECORD_SIZE;
+        this.suppliers = suppliers;
+        this.version = version;
+    }
+
+    /**
+     * Start writing a snapshot. Items must be added in ascending order of their ids' UTF-8 bytes,
+     * which is SQLite's default ordering for text.
+     * @param version caller-defined marker of the data the snapshot reflects
+     */
+    public static Writer writer(List<Supplier> suppliers, long version) throws IOException {
+        return new Writer(suppliers, version);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Row accessors
+    public String getId(int row) {
+        return readString(records.getInt(row * RECORD_SIZE + ID_OFFSET));
+    }
+
+    public String getName(int row) {
+        return readString(records.getInt(row * RECORD_SIZE + NAME_OFFSET));
+    }
+
+    public String getDescription(int row) {
+        return readString(records.getInt(row * RECORD_SIZE + DESCRIPTION_OFFSET));
+    }
+
+    public long getPriceCents(int row) {
+        return records.getLong(row * RECORD_SIZE + PRICE_CENTS);
+    }
+
+    public int getQuantity(int row) {
+        return records.getInt(row * RECORD_SIZE + QUANTITY);
+    }
+
+    /**
+     * Overwrite the quantities of items already in the snapshot and move it to a new version.
+     * Readers scanning meanwhile may see some of the new quantities and not others.
+     * @return false, changing nothing, if any of the items is not in the snapshot
+     */
+    public synchronized boolean patchQuantities(Map<String, Integer> quantities, long newVersion) {
+        Map<Integer, Integer> rows = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            int row = findRow(entry.getKey());
+            if (row < 0) {
+                return false;
+            }
+            rows.put(row, entry.getValue());
+        }
+        for (Map.Entry<Integer, Integer> entry : rows.entrySet()) {
+            records.putInt(entry.getKey() * RECORD_SIZE + QUANTITY, entry.getValue());
+        }
+        version = newVersion;
+        return true;
+    }
+
+    /**
+     * Supplier of a row, or null when the item has none
+     */
+    public Supplier getSupplier(int row) {
+        int slot = records.getInt(row * RECORD_SIZE + SUPPLIER_SLOT);
+        return slot == NO_SUPPLIER ? null : suppliers.get(slot);
+    }
+
+    /**
+     * Find the row holding an id
+     * @return the row, or -1 if the id is not in the snapshot
+     */
+    public int findRow(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareString(records.getInt(mid * RECORD_SIZE + ID_OFFSET), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Materialize one row as a StockItem
+     */
+    public StockItem toStockItem(int row) {
+        Supplier supplier = getSupplier(row);
+        return new StockItem(
+            getId(row),
+            getName(row),
+            getDescription(row),
+            getPriceCents(row),
+            getQuantity(row),
+            supplier != null ? supplier : new Supplier(null, null, null, null, null, null)
+        );
+    }
+
+    @Override
+    public long getTotalValueCents() {
+        long total = 0;
+        for (int base = 0; base < size * RECORD_SIZE; base += RECORD_SIZE) {
+            total += records.getLong(base + PRICE_CENTS) * records.getInt(base + QUANTITY);
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Double> getValueBySupplier() {
+        // Slot 0 of the sums collects items without a supplier
+        long[] sums = new long[suppliers.size() + 1];
+        boolean[] present = new boolean[sums.length];
+        for (int base = 0; base < size * RECORD_SIZE; base += RECORD_SIZE) {
+            int bucket = records.getInt(base + SUPPLIER_SLOT) + 1;
+            sums[bucket] += records.getLong(base + PRICE_CENTS) * records.getInt(base + QUANTITY);
+            present[bucket] = true;
+        }
+
+        Map<String, Double> result = new HashMap<>();
+        for (int bucket = 0; bucket < sums.length; bucket++) {
+            if (present[bucket]) {
+                String name = bucket == 0 ? NO_SUPPLIER_NAME : suppliers.get(bucket - 1).getName();
+                result.merge(name, sums[bucket] / 100.0, Double::sum);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Integer> getQuantitiesByName() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int row = 0; row < size; row++) {
+            result.merge(getName(row), getQuantity(row), Integer::sum);
+        }
+        return result;
+    }
+
+    @Override
+    public List<StockItem> getItemsBelow(int threshold) {
+        List<StockItem> result = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            if (getQuantity(row) < threshold) {
+                result.add(toStockItem(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Delete the backing files. Readers still holding the snapshot keep working
+     * until the mappings are garbage collected, where the platform allows it.
+     */
+    @Override
+    public void close() {
+        deleteQuietly(recordsFile);
+        deleteQuietly(stringsFile);
+    }
+
+    private String readString(int offset) {
+        if (offset == NO_STRING) {
+            return null;
+        }
+        int length = strings.getInt(offset);
+        byte[] bytes = new byte[length];
+        ByteBuffer view = strings.duplicate();
+        view.position(offset + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Unsigned byte-wise comparison, the same order as SQLite's BINARY collation
+    private int compareString(int offset, byte[] key) {
+        int length = strings.getInt(offset);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(strings.get(offset + 4 + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static MappedByteBuffer map(Path file, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+            ? new StandardOpenOption[] { StandardOpenOption.READ }
+            : new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE };
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file exceeds 2 GB: " + file);
+            }
+            return channel.map(mode, 0, channel.size());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still mapped on platforms that lock mapped files
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Streams items into the snapshot files without keeping them on the heap
+     */
+    public static class Writer implements Closeable {
+        private final List<Supplier> suppliers;
+        private final IdIndex supplierSlots = new IdIndex();
+        private final long version;
+        private final Path recordsFile;
+        private final Path stringsFile;
+        private final DataOutputStream recordsOut;
+        private final DataOutputStream stringsOut;
+        private long stringsSize;
+        private boolean finished;
+
+        private Writer(List<Supplier> suppliers, long version) throws IOException {
+            this.suppliers = Collections.unmodifiableList(new ArrayList<>(suppliers));
+            for (int slot = 0; slot < suppliers.size(); slot++) {
+                supplierSlots.put(suppliers.get(slot).getId(), slot);
+            }
+            this.version = version;
+            this.recordsFile = Files.createTempFile("stock-records", ".bin");
+            this.stringsFile = Files.createTempFile("stock-strings", ".bin");
+            recordsFile.toFile().deleteOnExit();
+            stringsFile.toFile().deleteOnExit();
+            this.recordsOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(recordsFile)));
+            this.stringsOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stringsFile)));
+        }
+
+        /**
+         * Append an item from raw column values
+         * @param supplierId id of one of the snapshot's suppliers, or null
+         */
+        public void add(String id, String name, String description, long priceCents, int quantity, String supplierId)
+                throws IOException {
+            int slot = supplierId == null ? NO_SUPPLIER : supplierSlots.get(supplierId);
+            int idOffset = writeString(id);
+            int nameOffset = writeString(name);
+            int descriptionOffset = writeString(description);
+
+            recordsOut.writeLong(priceCents);
+            recordsOut.writeInt(quantity);
+            recordsOut.writeInt(slot);
+            recordsOut.writeInt(idOffset);
+            recordsOut.writeInt(nameOffset);
+            recordsOut.writeInt(descriptionOffset);
+            recordsOut.writeInt(0); // Padding to RECORD_SIZE
+        }
+
+        /**
+         * Flush the files and map them
+         */
+        public OffHeapInventorySnapshot finish() throws IOException {
+            recordsOut.close();
+            stringsOut.close();
+            OffHeapInventorySnapshot snapshot = new OffHeapInventorySnapshot(recordsFile, stringsFile, suppliers, version);
+            finished = true;
+            return snapshot;
+        }
+
+        /**
+         * Discard the files if the snapshot was not finished
+         */
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                recordsOut.close();
+                stringsOut.close();
+                deleteQuietly(recordsFile);
+                deleteQuietly(stringsFile);
+            }
+        }
+
+        private int writeString(String value) throws IOException {
+            if (value == null) {
+                return NO_STRING;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (stringsSize + 4 + bytes.length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot strings exceed 2 GB");
+            }
+            int offset = (int) stringsSize;
+            stringsOut.writeInt(bytes.length);
+            stringsOut.write(bytes);
+            stringsSize += 4 + bytes.length;
+            return offset;
+        }
+    }
+}
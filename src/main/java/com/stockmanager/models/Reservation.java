@@ -0,0 +1,30 @@
+// Reservation.java
+package com.stockmanager.models;
+
+/**
+ * Units of an item held against an order while it is picked; they are
+ * already taken out of the item's quantity
+ */
+public class Reservation {
+    private final String id;
+    private final String itemId;
+    private final int quantity;
+
+    public Reservation(String id, String itemId, int quantity) {
+        this.id = id;
+        this.itemId = itemId;
+        this.quantity = quantity;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+}
@@ -0,0 +1,202 @@
+// StockFilter.java
+package com.stockmanager.models;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Criteria and sort order for listing stock items.
+ * Every criterion left as null matches all items.
+ */
+public class StockFilter {
+    /**
+     * Sortable columns, in the order the stock list displays them
+     */
+    public enum SortColumn {
+        ID, NAME, DESCRIPTION, PRICE, QUANTITY, SUPPLIER, TOTAL_VALUE
+    }
+
+    private String text;
+    private String supplierId;
+    private Long minPriceCents;
+    private Long maxPriceCents;
+    private Integer minQuantity;
+    private Integer maxQuantity;
+    private Integer lowStockThreshold;
+    private SortColumn sortColumn;
+    private boolean sortDescending;
+
+    // Default constructor, matches everything
+    public StockFilter() {
+    }
+
+    // Copy constructor
+    public StockFilter(StockFilter other) {
+        this.text = other.text;
+        this.supplierId = other.supplierId;
+        this.minPriceCents = other.minPriceCents;
+        this.maxPriceCents = other.maxPriceCents;
+        this.minQuantity = other.minQuantity;
+        this.maxQuantity = other.maxQuantity;
+        this.lowStockThreshold = other.lowStockThreshold;
+        this.sortColumn = other.sortColumn;
+        this.sortDescending = other.sortDescending;
+    }
+
+    // Getters and setters
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Free text matched against name and description; blank text is treated as unset
+     */
+    public void setText(String text) {
+        this.text = text == null || text.trim().isEmpty() ? null : text.trim();
+    }
+
+    public String getSupplierId() {
+        return supplierId;
+    }
+
+    public void setSupplierId(String supplierId) {
+        this.supplierId = supplierId;
+    }
+
+    public Long getMinPriceCents() {
+        return minPriceCents;
+    }
+
+    public void setMinPriceCents(Long minPriceCents) {
+        this.minPriceCents = minPriceCents;
+    }
+
+    public Long getMaxPriceCents() {
+        return maxPriceCents;
+    }
+
+    public void setMaxPriceCents(Long maxPriceCents) {
+        this.maxPriceCents = maxPriceCents;
+    }
+
+    public Integer getMinQuantity() {
+        return minQuantity;
+    }
+
+    public void setMinQuantity(Integer minQuantity) {
+        this.minQuantity = minQuantity;
+    }
+
+    public Integer getMaxQuantity() {
+        return maxQuantity;
+    }
+
+    public void setMaxQuantity(Integer maxQuantity) {
+        this.maxQuantity = maxQuantity;
+    }
+
+    public Integer getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    /**
+     * Only keep items with a quantity below the threshold; null disables the low-stock criterion
+     */
+    public void setLowStockThreshold(Integer lowStockThreshold) {
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    public SortColumn getSortColumn() {
+        return sortColumn;
+    }
+
+    /**
+     * Column to order results by; null keeps the database's natural order
+     */
+    public void setSortColumn(SortColumn sortColumn) {
+        this.sortColumn = sortColumn;
+    }
+
+    public boolean isSortDescending() {
+        return sortDescending;
+    }
+
+    public void setSortDescending(boolean sortDescending) {
+        this.sortDescending = sortDescending;
+    }
+
+    /**
+     * The sort order for items already in memory, or null if no sort column
+     * is set. Sorts as the SQL generated by SqliteStockItemRepository does:
+     * nulls first, with the id breaking ties.
+     */
+    public Comparator<StockItem> comparator() {
+        if (sortColumn == null) {
+            return null;
+        }
+        Comparator<StockItem> order = sortKey(sortColumn).thenComparing(StockItem::getId);
+        return sortDescending ? order.reversed() : order;
+    }
+
+    /**
+     * Check if no criterion is set. The sort order is not a criterion.
+     */
+    public boolean isEmpty() {
+        return text == null && supplierId == null && minPriceCents == null && maxPriceCents == null &&
+               minQuantity == null && maxQuantity == null && lowStockThreshold == null;
+    }
+
+    /**
+     * Evaluate the filter against an item already in memory.
+     * Mirrors the SQL generated by SqliteStockItemRepository for the same
+     * criteria; the in-memory repository filters with it.
+     */
+    public boolean matches(StockItem item) {
+        if (text != null) {
+            String needle = text.toLowerCase(Locale.ROOT);
+            boolean inName = item.getName() != null && item.getName().toLowerCase(Locale.ROOT).contains(needle);
+            boolean inDescription = item.getDescription() != null &&
+                                    item.getDescription().toLowerCase(Locale.ROOT).contains(needle);
+            if (!inName && !inDescription) {
+                return false;
+            }
+        }
+        if (supplierId != null && (item.getSupplier() == null || !supplierId.equals(item.getSupplier().getId()))) {
+            return false;
+        }
+        if (minPriceCents != null && item.getPriceCents() < minPriceCents) {
+            return false;
+        }
+        if (maxPriceCents != null && item.getPriceCents() > maxPriceCents) {
+            return false;
+        }
+        if (minQuantity != null && item.getQuantity() < minQuantity) {
+            return false;
+        }
+        if (maxQuantity != null && item.getQuantity() > maxQuantity) {
+            return false;
+        }
+        return lowStockThreshold == null || item.getQuantity() < lowStockThreshold;
+    }
+
+    private static Comparator<StockItem> sortKey(SortColumn column) {
+        Comparator<String> text = Comparator.nullsFirst(Comparator.naturalOrder());
+        switch (column) {
+            case ID:
+                return Comparator.comparing(StockItem::getId);
+            case NAME:
+                return Comparator.comparing(StockItem::getName, text);
+            case DESCRIPTION:
+                return Comparator.comparing(StockItem::getDescription, text);
+            case PRICE:
+                return Comparator.comparingLong(StockItem::getPriceCents);
+            case QUANTITY:
+                return Comparator.comparingInt(StockItem::getQuantity);
+            case SUPPLIER:
+                return Comparator.comparing(
+                    item -> item.getSupplier() == null ? null : item.getSupplier().getName(), text);
+            default:
+                return Comparator.comparingLong(StockItem::getTotalValueCents);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 // StockItem.java - Complete implementation
 package com.stockmanager.models;
 
-import java.util.UUID;
+import com.stockmanager.utils.IdGenerator;
 
 /**
  * Represents a stock item in the inventory
@@ -10,35 +10,47 @@ public class StockItem {
     private String id;
     private String name;
     private String description;
-    private double price;
+    private long priceCents;
     private int quantity;
     private Supplier supplier;
+    private long version;
     
     // Default constructor
     public StockItem() {
-        this.id = UUID.randomUUID().toString();
+        this.id = IdGenerator.newId();
     }
     
     // Constructor with parameters
-    public StockItem(String name, String description, double price, int quantity, Supplier supplier) {
-        this.id = UUID.randomUUID().toString();
+    public StockItem(String name, String description, long priceCents, int quantity, Supplier supplier) {
+        this.id = IdGenerator.newId();
         this.name = name;
         this.description = description;
-        this.price = price;
+        this.priceCents = priceCents;
         this.quantity = quantity;
         this.supplier = supplier;
     }
     
     // Constructor with all parameters including ID
-    public StockItem(String id, String name, String description, double price, int quantity, Supplier supplier) {
+    public StockItem(String id, String name, String description, long priceCents, int quantity, Supplier supplier) {
         this.id = id;
         this.name = name;
         this.description = description;
-        this.price = price;
+        this.priceCents = priceCents;
         this.quantity = quantity;
         this.supplier = supplier;
     }
     
+    // Copy constructor; the supplier is shared
+    public StockItem(StockItem other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.priceCents = other.priceCents;
+        this.quantity = other.quantity;
+        this.supplier = other.supplier;
+        this.version = other.version;
+    }
+    
     // Getters and setters
     public String getId() {
         return id;
@@ -64,12 +76,15 @@ public class StockItem {
         this.description = description;
     }
     
-    public double getPrice() {
-        return price;
+    /**
+     * Unit price in cents
+     */
+    public long getPriceCents() {
+        return priceCents;
     }
     
-    public void setPrice(double price) {
-        this.price = price;
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
     }
     
     public int getQuantity() {
@@ -88,8 +103,19 @@ public class StockItem {
         this.supplier = supplier;
     }
     
-    public double getTotalValue() {
-        return price * quantity;
+    /**
+     * Row version this copy was read at; a save only succeeds while the row still has it
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public long getTotalValueCents() {
+        return priceCents * quantity;
     }
     
     @Override
@@ -0,0 +1,64 @@
+// StockMovement.java
+package com.stockmanager.models;
+
+import java.sql.Timestamp;
+
+/**
+ * One change to an item's quantity, as recorded in the movement log
+ */
+public class StockMovement {
+    public enum Type {
+        RECEIPT, SALE, ADJUSTMENT, TRANSFER
+    }
+
+    private final long seq;
+    private final String itemId;
+    private final Type type;
+    private final long quantityChange;
+    private final String reference;
+    private final Timestamp createdAt;
+
+    /**
+     * A movement about to be appended; the log assigns its sequence number and time
+     */
+    public StockMovement(String itemId, Type type, long quantityChange, String reference) {
+        this(0, itemId, type, quantityChange, reference, null);
+    }
+
+    public StockMovement(long seq, String itemId, Type type, long quantityChange, String reference,
+                         Timestamp createdAt) {
+        this.seq = seq;
+        this.itemId = itemId;
+        this.type = type;
+        this.quantityChange = quantityChange;
+        this.reference = reference;
+        this.createdAt = createdAt;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Units added to the item's quantity; negative for units taken out
+     */
+    public long getQuantityChange() {
+        return quantityChange;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -1,7 +1,7 @@
 // Supplier.java - Complete implementation
 package com.stockmanager.models;
 
-import java.util.UUID;
+import com.stockmanager.utils.IdGenerator;
 
 /**
  * Represents a supplier of stock items
@@ -13,15 +13,16 @@ public class Supplier {
     private String address;
     private String email;
     private String phone;
+    private long version;
     
     // Default constructor
     public Supplier() {
-        this.id = UUID.randomUUID().toString();
+        this.id = IdGenerator.newId();
     }
     
     // Constructor with parameters
     public Supplier(String name, String contactInfo) {
-        this.id = UUID.randomUUID().toString();
+        this.id = IdGenerator.newId();
         this.name = name;
         this.contactInfo = contactInfo;
     }
@@ -85,6 +86,17 @@ public class Supplier {
         this.phone = phone;
     }
     
+    /**
+     * Row version this copy was read at; a save only succeeds while the row still has it
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
     @Override
     public String toString() {
         return name;
@@ -1,7 +1,8 @@
 // User.java
 package com.stockmanager.models;
 
-import java.util.UUID;
+import com.stockmanager.utils.IdGenerator;
+
 import java.sql.Timestamp;
 
 /**
@@ -18,12 +19,12 @@ public class User {
     
     // Default constructor
     public User() {
-        this.id = UUID.randomUUID().toString();
+        this.id = IdGenerator.newId();
     }
     
     // Constructor with basic parameters
     public User(String username, String password) {
-        this.id = UUID.randomUUID().toString();
+        this.id = IdGenerator.newId();
         this.username = username;
         this.password = password;
         this.role = "user";
@@ -0,0 +1,31 @@
+// Warehouse.java
+package com.stockmanager.models;
+
+/**
+ * A location that holds stock
+ */
+public class Warehouse {
+    private final String code;
+    private final String name;
+
+    public Warehouse(String code, String name) {
+        this.code = code;
+        this.name = name;
+    }
+
+    /**
+     * Short identifier, also the name of the warehouse's database file
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + code + ")";
+    }
+}
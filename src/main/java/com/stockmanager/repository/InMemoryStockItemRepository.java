@@ -0,0 +1,373 @@
+// InMemoryStockItemRepository.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.FacetCounts;
+import com.stockmanager.models.Reservation;
+import com.stockmanager.models.StockFilter;
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.StockMovement;
+import com.stockmanager.models.Supplier;
+import com.stockmanager.utils.IdGenerator;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock items kept in memory. Filters are evaluated with StockFilter.matches()
+ * and sorted the way the SQLite repository's ORDER BY sorts them.
+ */
+public class InMemoryStockItemRepository implements StockItemRepository {
+    private final InMemoryStore store;
+
+    InMemoryStockItemRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean isInDatabase() {
+        return false;
+    }
+
+    @Override
+    public List<StockItem> findAll() {
+        return resolve(storedItems());
+    }
+
+    /**
+     * Current items with the sum of their movements up to that time, by name
+     */
+    @Override
+    public List<StockItem> findAllAsOf(Instant asOf) {
+        Map<String, Long> quantities = new HashMap<>();
+        List<StockItem> stored;
+        store.lock.readLock().lock();
+        try {
+            for (StockMovement movement : store.movements) {
+                if (movement.getCreatedAt().toInstant().isAfter(asOf)) {
+                    break;
+                }
+                quantities.merge(movement.getItemId(), movement.getQuantityChange(), Long::sum);
+            }
+            stored = new ArrayList<>(store.items.values());
+        } finally {
+            store.lock.readLock().unlock();
+        }
+
+        List<StockItem> items = new ArrayList<>();
+        for (StockItem item : resolve(stored)) {
+            Long quantity = quantities.get(item.getId());
+            if (quantity != null) {
+                item.setQuantity(quantity.intValue());
+                items.add(item);
+            }
+        }
+        items.sort(Comparator.comparing(StockItem::getName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return items;
+    }
+
+    @Override
+    public StockItem findById(String id) {
+        StockItem stored = store.items.get(id);
+        return stored == null ? null : resolve(stored);
+    }
+
+    @Override
+    public List<StockItem> findByIds(Collection<String> ids) {
+        List<StockItem> items = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            StockItem item = findById(id);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public List<StockItem> search(String text) {
+        StockFilter filter = new StockFilter();
+        filter.setText(text);
+        return filter(filter);
+    }
+
+    @Override
+    public List<StockItem> filter(StockFilter filter) {
+        List<StockItem> items = new ArrayList<>();
+        for (StockItem item : findAll()) {
+            if (filter.matches(item)) {
+                items.add(item);
+            }
+        }
+
+        if (filter.getSortColumn() != null) {
+            items.sort(filter.comparator());
+        }
+        return items;
+    }
+
+    @Override
+    public FacetCounts countFacets(StockFilter filter) {
+        StockFilter criteria = new StockFilter(filter);
+        criteria.setSortColumn(null);
+        return FacetCounts.fromItems(filter(criteria));
+    }
+
+    @Override
+    public void scanCatalog(CatalogVisitor visitor) throws IOException {
+        List<StockItem> stored;
+        List<Supplier> suppliers = new ArrayList<>();
+        store.lock.readLock().lock();
+        try {
+            stored = new ArrayList<>(store.items.values());
+            for (Supplier supplier : store.suppliers.values()) {
+                suppliers.add(InMemorySupplierRepository.copy(supplier));
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+
+        visitor.suppliers(suppliers);
+        stored.sort(Comparator.comparing(StockItem::getId));
+        for (StockItem item : stored) {
+            visitor.item(item.getId(), item.getName(), item.getDescription(), item.getPriceCents(),
+                         item.getQuantity(), item.getSupplier().getId());
+        }
+    }
+
+    @Override
+    public Long insert(StockItem item) {
+        store.lock.writeLock().lock();
+        try {
+            if (store.items.containsKey(item.getId())) {
+                return null;
+            }
+            StockItem stored = storedCopy(item, 0);
+            store.appendMovement(item.getId(), StockMovement.Type.RECEIPT, item.getQuantity(), "New item");
+            store.items.put(stored.getId(), stored);
+            return stored.getVersion();
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Long update(StockItem item) {
+        store.lock.writeLock().lock();
+        try {
+            StockItem current = store.items.get(item.getId());
+            if (current == null || current.getVersion() != item.getVersion()) {
+                return null;
+            }
+            StockItem stored = storedCopy(item, current.getVersion() + 1);
+            store.appendMovement(item.getId(), StockMovement.Type.ADJUSTMENT,
+                                 item.getQuantity() - current.getQuantity(), "Edited");
+            store.items.put(stored.getId(), stored);
+            return stored.getVersion();
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        store.lock.writeLock().lock();
+        try {
+            StockItem current = store.items.remove(id);
+            if (current == null) {
+                return false;
+            }
+            // Write off the remaining stock, so the item's movements add up to zero
+            store.appendMovement(id, StockMovement.Type.ADJUSTMENT, -current.getQuantity(), "Item deleted");
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean adjustQuantity(String id, long delta) {
+        store.lock.writeLock().lock();
+        try {
+            StockItem current = store.items.get(id);
+            if (current == null) {
+                return false;
+            }
+            long quantity = current.getQuantity() + delta;
+            if (quantity < 0 || quantity > Integer.MAX_VALUE) {
+                return false;
+            }
+            replaceQuantity(current, quantity);
+            StockMovement.Type type = delta > 0 ? StockMovement.Type.RECEIPT : StockMovement.Type.SALE;
+            store.appendMovement(id, type, delta, "Adjusted");
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean transfer(String fromId, String toId, int quantity) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            StockItem from = store.items.get(fromId);
+            if (from == null || from.getQuantity() < quantity) {
+                return false;
+            }
+            StockItem to = store.items.get(toId);
+            if (to == null) {
+                throw new SQLException("No item has the ID " + toId);
+            }
+
+            // The target first, so an overflow there leaves both unchanged
+            replaceQuantity(to, (long) to.getQuantity() + quantity);
+            replaceQuantity(from, from.getQuantity() - quantity);
+            String reference = "Transfer " + IdGenerator.newId();
+            store.appendMovement(fromId, StockMovement.Type.TRANSFER, -quantity, reference);
+            store.appendMovement(toId, StockMovement.Type.TRANSFER, quantity, reference);
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StockMovement> findMovements(String itemId) {
+        List<StockMovement> movements = new ArrayList<>();
+        store.lock.readLock().lock();
+        try {
+            for (StockMovement movement : store.movements) {
+                if (movement.getItemId().equals(itemId)) {
+                    movements.add(movement);
+                }
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        return movements;
+    }
+
+    @Override
+    public List<Reservation> reserve(Map<String, Integer> lines) {
+        store.lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Integer> line : lines.entrySet()) {
+                StockItem current = store.items.get(line.getKey());
+                if (current == null || current.getQuantity() < line.getValue()) {
+                    return null;
+                }
+            }
+
+            List<Reservation> reservations = new ArrayList<>();
+            for (Map.Entry<String, Integer> line : lines.entrySet()) {
+                StockItem current = store.items.get(line.getKey());
+                replaceQuantity(current, current.getQuantity() - line.getValue());
+                Reservation reservation = new Reservation(IdGenerator.newId(), line.getKey(), line.getValue());
+                store.reservations.put(reservation.getId(), reservation);
+                store.appendMovement(line.getKey(), StockMovement.Type.SALE, -line.getValue(),
+                                     "Reservation " + reservation.getId());
+                reservations.add(reservation);
+            }
+            return reservations;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Reservation> closeReservations(Collection<String> reservationIds, boolean restock) {
+        store.lock.writeLock().lock();
+        try {
+            List<Reservation> closed = new ArrayList<>();
+            for (String reservationId : reservationIds) {
+                Reservation reservation = store.reservations.remove(reservationId);
+                if (reservation == null) {
+                    continue;
+                }
+                closed.add(reservation);
+                StockItem current = store.items.get(reservation.getItemId());
+                if (restock && current != null) {
+                    replaceQuantity(current, (long) current.getQuantity() + reservation.getQuantity());
+                    store.appendMovement(reservation.getItemId(), StockMovement.Type.ADJUSTMENT,
+                                         reservation.getQuantity(), "Released reservation " + reservationId);
+                }
+            }
+            return closed;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Reservation> findReservations(String itemId) {
+        List<Reservation> reservations = new ArrayList<>();
+        store.lock.readLock().lock();
+        try {
+            for (Reservation reservation : store.reservations.values()) {
+                if (reservation.getItemId().equals(itemId)) {
+                    reservations.add(reservation);
+                }
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        return reservations;
+    }
+
+    /**
+     * Copy an item for storing at the given version. Only the supplier's id
+     * is kept; reads fill in its current details.
+     */
+    private static StockItem storedCopy(StockItem item, long version) {
+        StockItem stored = new StockItem(item);
+        stored.setSupplier(new Supplier(item.getSupplier().getId(), null, null, null, null, null));
+        stored.setVersion(version);
+        return stored;
+    }
+
+    // Call holding the write lock
+    private void replaceQuantity(StockItem current, long quantity) {
+        StockItem stored = new StockItem(current);
+        // Throws rather than wrap round to a wrong quantity
+        stored.setQuantity(Math.toIntExact(quantity));
+        stored.setVersion(current.getVersion() + 1);
+        store.items.put(stored.getId(), stored);
+    }
+
+    private List<StockItem> storedItems() {
+        store.lock.readLock().lock();
+        try {
+            return new ArrayList<>(store.items.values());
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    private List<StockItem> resolve(List<StockItem> stored) {
+        List<StockItem> items = new ArrayList<>(stored.size());
+        for (StockItem item : stored) {
+            items.add(resolve(item));
+        }
+        return items;
+    }
+
+    /**
+     * Copy a stored item with its supplier's current details, as a join would
+     */
+    private StockItem resolve(StockItem stored) {
+        String supplierId = stored.getSupplier().getId();
+        Supplier supplier = supplierId == null ? null : store.suppliers.get(supplierId);
+
+        StockItem item = new StockItem(stored);
+        item.setSupplier(supplier != null
+            ? InMemorySupplierRepository.copy(supplier)
+            : new Supplier(supplierId, null, null, null, null, null));
+        return item;
+    }
+}
@@ -0,0 +1,45 @@
+// InMemoryStore.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.Reservation;
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.StockMovement;
+import com.stockmanager.models.Supplier;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The state shared by the in-memory item and supplier repositories.
+ * Stored items and suppliers are private copies that are replaced on a
+ * write, never changed, so looking one up needs no lock. Writes hold the
+ * write lock, which keeps the movement log in step with the quantities and
+ * lets a write check one map against the other; reads spanning many entries
+ * hold the read lock, so they see the state between two writes.
+ */
+class InMemoryStore {
+    final Map<String, StockItem> items = new ConcurrentHashMap<>();
+    final Map<String, Supplier> suppliers = new ConcurrentHashMap<>();
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    final List<StockMovement> movements = new ArrayList<>();
+    // Open reservations by id, oldest first; guarded by lock
+    final Map<String, Reservation> reservations = new LinkedHashMap<>();
+
+    /**
+     * Log a movement unless it changes nothing; call holding the write lock
+     */
+    void appendMovement(String itemId, StockMovement.Type type, long quantityChange, String reference) {
+        if (quantityChange != 0) {
+            movements.add(new StockMovement(movements.size() + 1, itemId, type, quantityChange, reference,
+                                            new Timestamp(System.currentTimeMillis())));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+// InMemorySupplierRepository.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.Supplier;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Suppliers kept in memory, sharing a store with the in-memory items
+ * so a supplier still in use cannot be deleted
+ */
+public class InMemorySupplierRepository implements SupplierRepository {
+    private final InMemoryStore store;
+
+    InMemorySupplierRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<Supplier> findAll() {
+        List<Supplier> suppliers = new ArrayList<>();
+        for (Supplier supplier : store.suppliers.values()) {
+            suppliers.add(copy(supplier));
+        }
+        return suppliers;
+    }
+
+    @Override
+    public Supplier findById(String id) {
+        Supplier supplier = store.suppliers.get(id);
+        return supplier == null ? null : copy(supplier);
+    }
+
+    @Override
+    public Long save(Supplier supplier) {
+        store.lock.writeLock().lock();
+        try {
+            Supplier current = store.suppliers.get(supplier.getId());
+            if (current != null && current.getVersion() != supplier.getVersion()) {
+                return null;
+            }
+
+            Supplier stored = copy(supplier);
+            stored.setVersion(current == null ? 0 : current.getVersion() + 1);
+            store.suppliers.put(stored.getId(), stored);
+            return stored.getVersion();
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String id) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            for (StockItem item : store.items.values()) {
+                if (id.equals(item.getSupplier().getId())) {
+                    throw new SQLException("Cannot delete supplier: it is used by one or more stock items");
+                }
+            }
+            store.suppliers.remove(id);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    static Supplier copy(Supplier supplier) {
+        Supplier copy = new Supplier(
+            supplier.getId(),
+            supplier.getName(),
+            supplier.getContactInfo(),
+            supplier.getAddress(),
+            supplier.getEmail(),
+            supplier.getPhone()
+        );
+        copy.setVersion(supplier.getVersion());
+        return copy;
+    }
+}
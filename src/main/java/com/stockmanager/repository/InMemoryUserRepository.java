@@ -0,0 +1,64 @@
+// InMemoryUserRepository.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.User;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * User accounts kept in memory, starting with the same admin account a new database gets
+ */
+public class InMemoryUserRepository implements UserRepository {
+    // Private copies by username, replaced on a write
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+
+    InMemoryUserRepository() {
+        users.put("admin", new User("U001", "admin", "admin123", "System Administrator", null, "admin",
+                                    new Timestamp(System.currentTimeMillis())));
+    }
+
+    @Override
+    public User findByCredentials(String username, String password) {
+        User user = users.get(username);
+        return user != null && user.getPassword().equals(password) ? copy(user) : null;
+    }
+
+    @Override
+    public boolean insert(User user) {
+        return users.putIfAbsent(user.getUsername(), copy(user)) == null;
+    }
+
+    @Override
+    public boolean updateProfile(String id, String fullName, String email) {
+        return update(id, user -> {
+            user.setFullName(fullName);
+            user.setEmail(email);
+        });
+    }
+
+    @Override
+    public boolean updatePassword(String id, String password) {
+        return update(id, user -> user.setPassword(password));
+    }
+
+    private boolean update(String id, Consumer<User> change) {
+        for (User user : users.values()) {
+            if (user.getId().equals(id)) {
+                return users.computeIfPresent(user.getUsername(), (username, current) -> {
+                    User updated = copy(current);
+                    change.accept(updated);
+                    return updated;
+                }) != null;
+            }
+        }
+        return false;
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(), user.getFullName(),
+                        user.getEmail(), user.getRole(), user.getCreatedAt());
+    }
+}
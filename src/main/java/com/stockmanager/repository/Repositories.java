@@ -0,0 +1,57 @@
+// Repositories.java
+package com.stockmanager.repository;
+
+/**
+ * Chooses, once per run, where items, suppliers and users are stored. The
+ * default is the SQLite database; -Dstockmanager.storage=memory keeps them
+ * in memory instead, starting with only the admin account, so load tests and
+ * UI profiling run without disk I/O. Nothing kept in memory outlives the process.
+ */
+public final class Repositories {
+    private static final boolean IN_MEMORY = "memory".equalsIgnoreCase(System.getProperty("stockmanager.storage"));
+
+    private static StockItemRepository stockItems;
+    private static SupplierRepository suppliers;
+    private static UserRepository users;
+
+    private Repositories() {
+    }
+
+    /**
+     * Check if storage is in memory, so features that work on the database file are unavailable
+     */
+    public static boolean isInMemory() {
+        return IN_MEMORY;
+    }
+
+    public static synchronized StockItemRepository stockItems() {
+        initialize();
+        return stockItems;
+    }
+
+    public static synchronized SupplierRepository suppliers() {
+        initialize();
+        return suppliers;
+    }
+
+    public static synchronized UserRepository users() {
+        initialize();
+        return users;
+    }
+
+    private static void initialize() {
+        if (stockItems != null) {
+            return;
+        }
+        if (IN_MEMORY) {
+            InMemoryStore store = new InMemoryStore();
+            stockItems = new InMemoryStockItemRepository(store);
+            suppliers = new InMemorySupplierRepository(store);
+            users = new InMemoryUserRepository();
+        } else {
+            stockItems = new SqliteStockItemRepository();
+            suppliers = new SqliteSupplierRepository();
+            users = new SqliteUserRepository();
+        }
+    }
+}
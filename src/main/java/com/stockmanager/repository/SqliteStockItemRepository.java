@@ -0,0 +1,705 @@
+// SqliteStockItemRepository.java
+package com.stockmanager.repository;
+
+import com.stockmanager.controllers.StockMovementLog;
+import com.stockmanager.models.FacetCounts;
+import com.stockmanager.models.Reservation;
+import com.stockmanager.models.StockFilter;
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.StockMovement;
+import com.stockmanager.models.Supplier;
+import com.stockmanager.utils.DatabaseHelper;
+import com.stockmanager.utils.IdGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stock items in the stock_items table of the SQLite database. Writes run
+ * through DatabaseHelper.inTransaction() and append their movements to the
+ * movement log in the same transaction.
+ */
+public class SqliteStockItemRepository implements StockItemRepository {
+    private static final String ITEM_SELECT = itemSelect("stock_items");
+
+    // Filter criteria, one bit each in a filter's shape
+    private static final int FILTER_TEXT = 1;
+    private static final int FILTER_SUPPLIER = 1 << 1;
+    private static final int FILTER_MIN_PRICE = 1 << 2;
+    private static final int FILTER_MAX_PRICE = 1 << 3;
+    private static final int FILTER_MIN_QUANTITY = 1 << 4;
+    private static final int FILTER_MAX_QUANTITY = 1 << 5;
+    private static final int FILTER_LOW_STOCK = 1 << 6;
+    private static final int FILTER_CRITERIA_MASK = (1 << 7) - 1;
+
+    // Sort order bits of a filter's shape: column ordinal + 1, then the direction
+    private static final int SORT_COLUMN_SHIFT = 8;
+    private static final int SORT_DESCENDING = 1 << 16;
+
+    // Compiled SQL per filter shape
+    private final Map<Integer, String> filterSqlCache = new ConcurrentHashMap<>();
+    private final Map<Integer, String> facetSqlCache = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isInDatabase() {
+        return true;
+    }
+
+    @Override
+    public List<StockItem> findAll() throws SQLException {
+        List<StockItem> items = new ArrayList<>();
+        try (Statement stmt = DatabaseHelper.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery(ITEM_SELECT)) {
+            while (rs.next()) {
+                items.add(mapStockItem(rs));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Rebuilt from the movement log, with archived items included. Only
+     * quantities have history: names, prices and suppliers are the current
+     * ones, and items deleted since are left out.
+     */
+    @Override
+    public List<StockItem> findAllAsOf(Instant asOf) throws SQLException {
+        List<StockItem> items = new ArrayList<>();
+        DatabaseHelper.readSnapshot(conn -> {
+            Map<String, Integer> quantities = StockMovementLog.getQuantitiesAsOf(conn, asOf);
+            if (quantities.isEmpty()) {
+                return null;
+            }
+
+            for (String table : new String[] {"stock_items", "archived_stock_items"}) {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(itemSelect(table) + " ORDER BY i.name")) {
+                    while (rs.next()) {
+                        Integer quantity = quantities.get(rs.getString("id"));
+                        if (quantity != null) {
+                            StockItem item = mapStockItem(rs);
+                            item.setQuantity(quantity);
+                            items.add(item);
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        return items;
+    }
+
+    @Override
+    public StockItem findById(String id) throws SQLException {
+        try (PreparedStatement stmt = DatabaseHelper.getConnection().prepareStatement(ITEM_SELECT + " WHERE i.id = ?")) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapStockItem(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Fetch the rows in one query
+     */
+    @Override
+    public List<StockItem> findByIds(Collection<String> ids) throws SQLException {
+        List<StockItem> items = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return items;
+        }
+
+        StringBuilder sql = new StringBuilder(ITEM_SELECT).append(" WHERE i.id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement stmt = DatabaseHelper.getConnection().prepareStatement(sql.toString())) {
+            int index = 1;
+            for (String id : ids) {
+                stmt.setString(index++, id);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(mapStockItem(rs));
+                }
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public List<StockItem> search(String text) throws SQLException {
+        List<StockItem> items = new ArrayList<>();
+        String searchQuery = ITEM_SELECT + " WHERE i.name LIKE ? OR i.description LIKE ?";
+
+        try (PreparedStatement stmt = DatabaseHelper.getConnection().prepareStatement(searchQuery)) {
+            String searchPattern = "%" + text + "%";
+            stmt.setString(1, searchPattern);
+            stmt.setString(2, searchPattern);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(mapStockItem(rs));
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Filters with the same set of criteria share one SQL statement, so the
+     * prepared statement is reused and only the parameters change.
+     */
+    @Override
+    public List<StockItem> filter(StockFilter filter) throws SQLException {
+        List<StockItem> items = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        int shape = filterShape(filter, params);
+        String sql = filterSqlCache.computeIfAbsent(shape, SqliteStockItemRepository::compileFilter);
+
+        PreparedStatement stmt = DatabaseHelper.prepareCached(sql);
+        for (int i = 0; i < params.size(); i++) {
+            stmt.setObject(i + 1, params.get(i));
+        }
+
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                items.add(mapStockItem(rs));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * All three facets come out of a single grouped scan of the matching rows
+     */
+    @Override
+    public FacetCounts countFacets(StockFilter filter) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        // Sorting does not change the counts
+        int shape = filterShape(filter, params) & FILTER_CRITERIA_MASK;
+        String sql = facetSqlCache.computeIfAbsent(shape, SqliteStockItemRepository::compileFacets);
+
+        FacetCounts facets = new FacetCounts();
+        PreparedStatement stmt = DatabaseHelper.prepareCached(sql);
+        for (int i = 0; i < params.size(); i++) {
+            stmt.setObject(i + 1, params.get(i));
+        }
+
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                facets.add(
+                    rs.getString("supplier_name"),
+                    rs.getInt("price_band"),
+                    rs.getInt("stock_level"),
+                    rs.getInt("item_count")
+                );
+            }
+        }
+        return facets;
+    }
+
+    /**
+     * Suppliers are read once rather than joined per row, and both are read in
+     * one snapshot, so every item's supplier is among them
+     */
+    @Override
+    public void scanCatalog(CatalogVisitor visitor) throws SQLException, IOException {
+        try {
+            DatabaseHelper.readSnapshot(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    visitor.suppliers(SqliteSupplierRepository.findAll(conn));
+
+                    try (ResultSet rs = stmt.executeQuery(
+                             "SELECT id, name, description, price_cents, quantity, supplier_id FROM stock_items ORDER BY id")) {
+                        while (rs.next()) {
+                            visitor.item(
+                                rs.getString(1),
+                                rs.getString(2),
+                                rs.getString(3),
+                                rs.getLong(4),
+                                rs.getInt(5),
+                                rs.getString(6)
+                            );
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Long insert(StockItem item) throws SQLException {
+        return DatabaseHelper.inTransaction(conn -> insertStockItem(conn, item));
+    }
+
+    @Override
+    public Long update(StockItem item) throws SQLException {
+        return DatabaseHelper.inTransaction(conn -> updateStockItem(conn, item, item.getVersion()));
+    }
+
+    /**
+     * Insert a new item, logging its quantity as a receipt; call inside inTransaction()
+     * @return the row's version, or null if a live or archived item already has the id
+     */
+    public static Long insertStockItem(Connection conn, StockItem item) throws SQLException {
+        // An archived id stays taken, so restoring that item cannot collide with this one
+        String query = "INSERT OR IGNORE INTO stock_items (id, name, description, price_cents, quantity, supplier_id) " +
+                       "SELECT ?, ?, ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM archived_stock_items WHERE id = ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, item.getId());
+            stmt.setString(2, item.getName());
+            stmt.setString(3, item.getDescription());
+            stmt.setLong(4, item.getPriceCents());
+            stmt.setInt(5, item.getQuantity());
+            stmt.setString(6, item.getSupplier().getId());
+            stmt.setString(7, item.getId());
+
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+        }
+        StockMovementLog.append(conn, item.getId(), StockMovement.Type.RECEIPT, item.getQuantity(), "New item");
+        return 0L;
+    }
+
+    /**
+     * Update the item if its row is still at expectedVersion, logging the
+     * change in quantity as a movement; call inside inTransaction()
+     * @return the row's version after the write, or null if the row was changed or is gone
+     */
+    public static Long updateStockItem(Connection conn, StockItem item, long expectedVersion) throws SQLException {
+        // A row deleted or archived meanwhile is a conflict, not something to bring back
+        Integer currentQuantity = currentQuantity(conn, item.getId());
+        if (currentQuantity == null) {
+            return null;
+        }
+
+        String query = "UPDATE stock_items SET name = ?, description = ?, price_cents = ?, " +
+                       "quantity = ?, supplier_id = ?, version = version + 1, last_modified = CURRENT_TIMESTAMP " +
+                       "WHERE id = ? AND version = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, item.getName());
+            stmt.setString(2, item.getDescription());
+            stmt.setLong(3, item.getPriceCents());
+            stmt.setInt(4, item.getQuantity());
+            stmt.setString(5, item.getSupplier().getId());
+            stmt.setString(6, item.getId());
+            stmt.setLong(7, expectedVersion);
+
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+        }
+        StockMovementLog.append(conn, item.getId(), StockMovement.Type.ADJUSTMENT,
+                                item.getQuantity() - currentQuantity, "Edited");
+        return expectedVersion + 1;
+    }
+
+    @Override
+    public boolean delete(String id) throws SQLException {
+        return DatabaseHelper.inTransaction(conn -> deleteStockItem(conn, id)) > 0;
+    }
+
+    /**
+     * Delete the item's row, writing off its remaining stock so its movements
+     * add up to zero; call inside inTransaction()
+     * @return the number of rows deleted
+     */
+    public static int deleteStockItem(Connection conn, String id) throws SQLException {
+        Integer quantity = currentQuantity(conn, id);
+        if (quantity != null) {
+            StockMovementLog.append(conn, id, StockMovement.Type.ADJUSTMENT, -quantity, "Item deleted");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM stock_items WHERE id = ?")) {
+            stmt.setString(1, id);
+            return stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public boolean adjustQuantity(String id, long delta) throws SQLException {
+        return DatabaseHelper.inTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE stock_items SET quantity = quantity + ?, version = version + 1, " +
+                     "last_modified = CURRENT_TIMESTAMP WHERE id = ? AND quantity + ? BETWEEN 0 AND ?")) {
+                stmt.setLong(1, delta);
+                stmt.setString(2, id);
+                stmt.setLong(3, delta);
+                stmt.setInt(4, Integer.MAX_VALUE);
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            StockMovement.Type type = delta > 0 ? StockMovement.Type.RECEIPT : StockMovement.Type.SALE;
+            StockMovementLog.append(conn, id, type, delta, "Adjusted");
+            return true;
+        });
+    }
+
+    @Override
+    public boolean transfer(String fromId, String toId, int quantity) throws SQLException {
+        return DatabaseHelper.inTransaction(conn -> {
+            try (PreparedStatement take = conn.prepareStatement(
+                     "UPDATE stock_items SET quantity = quantity - ?, version = version + 1, last_modified = CURRENT_TIMESTAMP " +
+                     "WHERE id = ? AND quantity >= ?");
+                 PreparedStatement give = conn.prepareStatement(
+                     "UPDATE stock_items SET quantity = quantity + ?, version = version + 1, " +
+                     "last_modified = CURRENT_TIMESTAMP WHERE id = ?")) {
+
+                take.setInt(1, quantity);
+                take.setString(2, fromId);
+                take.setInt(3, quantity);
+                give.setInt(1, quantity);
+                give.setString(2, toId);
+                // Nothing is written when the source is short, so only a missing target needs undoing
+                if (take.executeUpdate() == 0) {
+                    return false;
+                }
+                if (give.executeUpdate() == 0) {
+                    throw new SQLException("No item has the ID " + toId);
+                }
+            }
+
+            String reference = "Transfer " + IdGenerator.newId();
+            StockMovementLog.append(conn, Arrays.asList(
+                new StockMovement(fromId, StockMovement.Type.TRANSFER, -quantity, reference),
+                new StockMovement(toId, StockMovement.Type.TRANSFER, quantity, reference)
+            ));
+            return true;
+        });
+    }
+
+    @Override
+    public List<StockMovement> findMovements(String itemId) throws SQLException {
+        return StockMovementLog.getMovements(itemId);
+    }
+
+    /**
+     * Each line is a conditional update that only succeeds while enough stock
+     * is left, so concurrent pickers can never drive a quantity below zero
+     */
+    @Override
+    public List<Reservation> reserve(Map<String, Integer> lines) throws SQLException {
+        try {
+            return DatabaseHelper.inTransaction(conn -> {
+                try (PreparedStatement take = conn.prepareStatement(
+                         "UPDATE stock_items SET quantity = quantity - ?, version = version + 1, last_modified = CURRENT_TIMESTAMP " +
+                         "WHERE id = ? AND quantity >= ?");
+                     PreparedStatement insert = conn.prepareStatement(
+                         "INSERT INTO reservations (id, item_id, quantity) VALUES (?, ?, ?)")) {
+
+                    List<Reservation> reservations = new ArrayList<>();
+                    List<StockMovement> movements = new ArrayList<>();
+                    for (Map.Entry<String, Integer> line : lines.entrySet()) {
+                        take.setInt(1, line.getValue());
+                        take.setString(2, line.getKey());
+                        take.setInt(3, line.getValue());
+                        take.addBatch();
+
+                        Reservation reservation = new Reservation(IdGenerator.newId(), line.getKey(), line.getValue());
+                        insert.setString(1, reservation.getId());
+                        insert.setString(2, reservation.getItemId());
+                        insert.setInt(3, reservation.getQuantity());
+                        insert.addBatch();
+                        reservations.add(reservation);
+                        movements.add(new StockMovement(line.getKey(), StockMovement.Type.SALE, -line.getValue(),
+                                                        "Reservation " + reservation.getId()));
+                    }
+
+                    // A line that updated no row lacked stock; rolling back undoes the others
+                    for (int count : take.executeBatch()) {
+                        if (count == 0) {
+                            throw new InsufficientStock();
+                        }
+                    }
+                    insert.executeBatch();
+                    StockMovementLog.append(conn, movements);
+                    return reservations;
+                }
+            });
+        } catch (InsufficientStock e) {
+            return null;
+        }
+    }
+
+    @Override
+    public List<Reservation> closeReservations(Collection<String> reservationIds, boolean restock)
+            throws SQLException {
+        return DatabaseHelper.inTransaction(conn -> {
+            try (PreparedStatement find = conn.prepareStatement(
+                     "SELECT item_id, quantity FROM reservations WHERE id = ?");
+                 PreparedStatement delete = conn.prepareStatement(
+                     "DELETE FROM reservations WHERE id = ?");
+                 PreparedStatement restore = conn.prepareStatement(
+                     "UPDATE stock_items SET quantity = quantity + ?, version = version + 1, " +
+                     "last_modified = CURRENT_TIMESTAMP WHERE id = ?")) {
+
+                List<Reservation> closed = new ArrayList<>();
+                List<StockMovement> movements = new ArrayList<>();
+                // A repeated id must not return its units twice
+                for (String reservationId : new LinkedHashSet<>(reservationIds)) {
+                    Reservation reservation;
+                    find.setString(1, reservationId);
+                    try (ResultSet rs = find.executeQuery()) {
+                        if (!rs.next()) {
+                            continue; // Already released or committed
+                        }
+                        reservation = new Reservation(reservationId, rs.getString("item_id"), rs.getInt("quantity"));
+                    }
+                    delete.setString(1, reservationId);
+                    delete.executeUpdate();
+                    closed.add(reservation);
+
+                    if (restock) {
+                        restore.setInt(1, reservation.getQuantity());
+                        restore.setString(2, reservation.getItemId());
+                        // An item archived meanwhile has no row to return the units to, so nothing moved
+                        if (restore.executeUpdate() > 0) {
+                            movements.add(new StockMovement(reservation.getItemId(), StockMovement.Type.ADJUSTMENT,
+                                                            reservation.getQuantity(),
+                                                            "Released reservation " + reservationId));
+                        }
+                    }
+                }
+                StockMovementLog.append(conn, movements);
+                return closed;
+            }
+        });
+    }
+
+    @Override
+    public List<Reservation> findReservations(String itemId) throws SQLException {
+        List<Reservation> reservations = new ArrayList<>();
+        try (PreparedStatement stmt = DatabaseHelper.getConnection().prepareStatement(
+                 "SELECT id, quantity FROM reservations WHERE item_id = ? ORDER BY created_at, id")) {
+            stmt.setString(1, itemId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    reservations.add(new Reservation(rs.getString(1), itemId, rs.getInt(2)));
+                }
+            }
+        }
+        return reservations;
+    }
+
+    /**
+     * Compute the bit set of criteria present on the filter and collect their
+     * parameters in the order compileFilter() emits the placeholders
+     */
+    private static int filterShape(StockFilter filter, List<Object> params) {
+        int shape = 0;
+        if (filter.getText() != null) {
+            shape |= FILTER_TEXT;
+            String pattern = "%" + filter.getText() + "%";
+            params.add(pattern);
+            params.add(pattern);
+        }
+        if (filter.getSupplierId() != null) {
+            shape |= FILTER_SUPPLIER;
+            params.add(filter.getSupplierId());
+        }
+        if (filter.getMinPriceCents() != null) {
+            shape |= FILTER_MIN_PRICE;
+            params.add(filter.getMinPriceCents());
+        }
+        if (filter.getMaxPriceCents() != null) {
+            shape |= FILTER_MAX_PRICE;
+            params.add(filter.getMaxPriceCents());
+        }
+        if (filter.getMinQuantity() != null) {
+            shape |= FILTER_MIN_QUANTITY;
+            params.add(filter.getMinQuantity());
+        }
+        if (filter.getMaxQuantity() != null) {
+            shape |= FILTER_MAX_QUANTITY;
+            params.add(filter.getMaxQuantity());
+        }
+        if (filter.getLowStockThreshold() != null) {
+            shape |= FILTER_LOW_STOCK;
+            params.add(filter.getLowStockThreshold());
+        }
+        if (filter.getSortColumn() != null) {
+            shape |= (filter.getSortColumn().ordinal() + 1) << SORT_COLUMN_SHIFT;
+            if (filter.isSortDescending()) {
+                shape |= SORT_DESCENDING;
+            }
+        }
+        return shape;
+    }
+
+    private static String compileFilter(int shape) {
+        return ITEM_SELECT + compileConditions(shape) + compileOrder(shape);
+    }
+
+    /**
+     * Build the ORDER BY clause for a filter shape. Every column except the
+     * description and the joined supplier name is indexed, so SQLite can walk
+     * the index in order instead of sorting; the id breaks ties.
+     */
+    private static String compileOrder(int shape) {
+        int column = (shape >> SORT_COLUMN_SHIFT) & 0xff;
+        if (column == 0) {
+            return "";
+        }
+
+        String direction = (shape & SORT_DESCENDING) != 0 ? " DESC" : "";
+        String expression;
+        switch (StockFilter.SortColumn.values()[column - 1]) {
+            case ID:
+                return " ORDER BY i.id" + direction;
+            case NAME:
+                expression = "i.name";
+                break;
+            case DESCRIPTION:
+                expression = "i.description";
+                break;
+            case PRICE:
+                expression = "i.price_cents";
+                break;
+            case QUANTITY:
+                expression = "i.quantity";
+                break;
+            case SUPPLIER:
+                expression = "s.name";
+                break;
+            default:
+                expression = "i.total_value_cents";
+                break;
+        }
+
+        return " ORDER BY " + expression + direction + ", i.id" + direction;
+    }
+
+    /**
+     * Build the parameterised WHERE clause for a filter shape. Range criteria are
+     * plain comparisons on indexed columns so SQLite can pick an index range scan.
+     */
+    private static String compileConditions(int shape) {
+        List<String> conditions = new ArrayList<>();
+        if ((shape & FILTER_TEXT) != 0) {
+            conditions.add("(i.name LIKE ? OR i.description LIKE ?)");
+        }
+        if ((shape & FILTER_SUPPLIER) != 0) {
+            conditions.add("i.supplier_id = ?");
+        }
+        if ((shape & FILTER_MIN_PRICE) != 0) {
+            conditions.add("i.price_cents >= ?");
+        }
+        if ((shape & FILTER_MAX_PRICE) != 0) {
+            conditions.add("i.price_cents <= ?");
+        }
+        if ((shape & FILTER_MIN_QUANTITY) != 0) {
+            conditions.add("i.quantity >= ?");
+        }
+        if ((shape & FILTER_MAX_QUANTITY) != 0) {
+            conditions.add("i.quantity <= ?");
+        }
+        if ((shape & FILTER_LOW_STOCK) != 0) {
+            conditions.add("i.quantity < ?");
+        }
+
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Build the grouped facet query for a filter shape, with the band
+     * boundaries taken from FacetCounts
+     */
+    private static String compileFacets(int shape) {
+        StringBuilder priceBand = new StringBuilder("CASE");
+        for (int band = 0; band < FacetCounts.PRICE_BAND_LIMITS.length; band++) {
+            priceBand.append(" WHEN i.price_cents < ").append(FacetCounts.PRICE_BAND_LIMITS[band])
+                     .append(" THEN ").append(band);
+        }
+        priceBand.append(" ELSE ").append(FacetCounts.PRICE_BAND_LIMITS.length).append(" END");
+
+        StringBuilder stockLevel = new StringBuilder("CASE");
+        for (int level = 0; level < FacetCounts.STOCK_LEVEL_LIMITS.length; level++) {
+            stockLevel.append(" WHEN i.quantity < ").append(FacetCounts.STOCK_LEVEL_LIMITS[level])
+                      .append(" THEN ").append(level);
+        }
+        stockLevel.append(" ELSE ").append(FacetCounts.STOCK_LEVEL_LIMITS.length).append(" END");
+
+        return "SELECT s.name AS supplier_name, " + priceBand + " AS price_band, " +
+               stockLevel + " AS stock_level, COUNT(*) AS item_count " +
+               "FROM stock_items i LEFT JOIN suppliers s ON i.supplier_id = s.id" +
+               compileConditions(shape) +
+               " GROUP BY i.supplier_id, price_band, stock_level";
+    }
+
+    // The item's quantity, or null if there is no such item
+    private static Integer currentQuantity(Connection conn, String id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT quantity FROM stock_items WHERE id = ?")) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Select items with their suppliers from stock_items or a table of the same shape, aliased i
+     */
+    public static String itemSelect(String table) {
+        return "SELECT i.*, s.name as supplier_name, s.contactInfo, s.address, " +
+               "s.email, s.phone, s.version as supplier_version FROM " + table + " i " +
+               "LEFT JOIN suppliers s ON i.supplier_id = s.id";
+    }
+
+    /**
+     * Map a row selected by itemSelect()
+     */
+    public static StockItem mapStockItem(ResultSet rs) throws SQLException {
+        Supplier supplier = new Supplier(
+            rs.getString("supplier_id"),
+            rs.getString("supplier_name"),
+            rs.getString("contactInfo"),
+            rs.getString("address"),
+            rs.getString("email"),
+            rs.getString("phone")
+        );
+        supplier.setVersion(rs.getLong("supplier_version"));
+
+        StockItem item = new StockItem(
+            rs.getString("id"),
+            rs.getString("name"),
+            rs.getString("description"),
+            rs.getLong("price_cents"),
+            rs.getInt("quantity"),
+            supplier
+        );
+        item.setVersion(rs.getLong("version"));
+        return item;
+    }
+
+    // Aborts a reservation transaction when a line lacks stock
+    private static class InsufficientStock extends RuntimeException {
+        InsufficientStock() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+// SqliteSupplierRepository.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.Supplier;
+import com.stockmanager.utils.DatabaseHelper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Suppliers in the suppliers table of the SQLite database
+ */
+public class SqliteSupplierRepository implements SupplierRepository {
+    @Override
+    public List<Supplier> findAll() throws SQLException {
+        return findAll(DatabaseHelper.getConnection());
+    }
+
+    static List<Supplier> findAll(Connection conn) throws SQLException {
+        List<Supplier> suppliers = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM suppliers")) {
+            while (rs.next()) {
+                suppliers.add(mapSupplier(rs));
+            }
+        }
+        return suppliers;
+    }
+
+    @Override
+    public Supplier findById(String id) throws SQLException {
+        try (PreparedStatement stmt = DatabaseHelper.getConnection().prepareStatement("SELECT * FROM suppliers WHERE id = ?")) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapSupplier(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public Long save(Supplier supplier) throws SQLException {
+        return DatabaseHelper.inTransaction(conn -> writeSupplier(conn, supplier));
+    }
+
+    private static Long writeSupplier(Connection conn, Supplier supplier) throws SQLException {
+        if (!exists(conn, supplier.getId())) {
+            // Insert new supplier
+            String query = "INSERT INTO suppliers (id, name, contactInfo, address, email, phone) " +
+                           "VALUES (?, ?, ?, ?, ?, ?)";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, supplier.getId());
+                stmt.setString(2, supplier.getName());
+                stmt.setString(3, supplier.getContactInfo());
+                stmt.setString(4, supplier.getAddress());
+                stmt.setString(5, supplier.getEmail());
+                stmt.setString(6, supplier.getPhone());
+
+                stmt.executeUpdate();
+            }
+            return 0L;
+        } else {
+            // Update existing supplier
+            String query = "UPDATE suppliers SET name = ?, contactInfo = ?, address = ?, " +
+                           "email = ?, phone = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, supplier.getName());
+                stmt.setString(2, supplier.getContactInfo());
+                stmt.setString(3, supplier.getAddress());
+                stmt.setString(4, supplier.getEmail());
+                stmt.setString(5, supplier.getPhone());
+                stmt.setString(6, supplier.getId());
+                stmt.setLong(7, supplier.getVersion());
+
+                if (stmt.executeUpdate() == 0) {
+                    return null;
+                }
+            }
+            return supplier.getVersion() + 1;
+        }
+    }
+
+    @Override
+    public void delete(String id) throws SQLException {
+        DatabaseHelper.inTransaction(conn -> {
+            // Check if the supplier is used by any stock items
+            try (PreparedStatement checkStmt = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM stock_items WHERE supplier_id = ?")) {
+                checkStmt.setString(1, id);
+                try (ResultSet rs = checkStmt.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) > 0) {
+                        throw new SQLException("Cannot delete supplier: it is used by one or more stock items");
+                    }
+                }
+            }
+
+            // If not used, delete the supplier
+            try (PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM suppliers WHERE id = ?")) {
+                deleteStmt.setString(1, id);
+                return deleteStmt.executeUpdate();
+            }
+        });
+    }
+
+    private static boolean exists(Connection conn, String id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM suppliers WHERE id = ?")) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static Supplier mapSupplier(ResultSet rs) throws SQLException {
+        Supplier supplier = new Supplier(
+            rs.getString("id"),
+            rs.getString("name"),
+            rs.getString("contactInfo"),
+            rs.getString("address"),
+            rs.getString("email"),
+            rs.getString("phone")
+        );
+        supplier.setVersion(rs.getLong("version"));
+        return supplier;
+    }
+}
@@ -0,0 +1,91 @@
+// SqliteUserRepository.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.User;
+import com.stockmanager.utils.DatabaseHelper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * User accounts in the users table of the SQLite database
+ */
+public class SqliteUserRepository implements UserRepository {
+    @Override
+    public User findByCredentials(String username, String password) throws SQLException {
+        String query = "SELECT * FROM users WHERE username = ? AND password = ?";
+
+        try (PreparedStatement stmt = DatabaseHelper.getConnection().prepareStatement(query)) {
+            stmt.setString(1, username);
+            stmt.setString(2, password); // In real app, would compare hashed passwords
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new User(
+                        rs.getString("id"),
+                        rs.getString("username"),
+                        rs.getString("password"),
+                        rs.getString("fullName"),
+                        rs.getString("email"),
+                        rs.getString("role"),
+                        rs.getTimestamp("created_at")
+                    );
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean insert(User user) throws SQLException {
+        String query = "INSERT INTO users (id, username, password, fullName, email, role) VALUES (?, ?, ?, ?, ?, ?)";
+
+        return DatabaseHelper.inTransaction(conn -> {
+            try (PreparedStatement checkStmt = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM users WHERE username = ?");
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+
+                // Check if username already exists
+                checkStmt.setString(1, user.getUsername());
+                try (ResultSet rs = checkStmt.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) > 0) {
+                        return false;
+                    }
+                }
+
+                stmt.setString(1, user.getId());
+                stmt.setString(2, user.getUsername());
+                stmt.setString(3, user.getPassword()); // In real app, should hash password
+                stmt.setString(4, user.getFullName());
+                stmt.setString(5, user.getEmail());
+                stmt.setString(6, user.getRole());
+
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public boolean updateProfile(String id, String fullName, String email) throws SQLException {
+        return DatabaseHelper.inTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("UPDATE users SET fullName = ?, email = ? WHERE id = ?")) {
+                stmt.setString(1, fullName);
+                stmt.setString(2, email);
+                stmt.setString(3, id);
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public boolean updatePassword(String id, String password) throws SQLException {
+        return DatabaseHelper.inTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("UPDATE users SET password = ? WHERE id = ?")) {
+                stmt.setString(1, password); // In real app, should hash password
+                stmt.setString(2, id);
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+}
@@ -0,0 +1,134 @@
+// StockItemRepository.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.FacetCounts;
+import com.stockmanager.models.Reservation;
+import com.stockmanager.models.StockFilter;
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.StockMovement;
+import com.stockmanager.models.Supplier;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage for stock items and the movements their quantities are made of.
+ * Items come back as new copies with their current supplier filled in; an
+ * item whose supplier is gone gets a supplier with only the id set.
+ * Every change to a quantity is logged as a movement with the change.
+ */
+public interface StockItemRepository {
+    /**
+     * Receives the suppliers once and then every item, in id order,
+     * all as they stood at one moment
+     */
+    interface CatalogVisitor {
+        void suppliers(List<Supplier> suppliers) throws IOException;
+
+        void item(String id, String name, String description, long priceCents, int quantity,
+                  String supplierId) throws IOException;
+    }
+
+    /**
+     * Whether the items are kept in the database file, which the movement log
+     * snapshots, quantity journal and write-behind queue work on directly
+     */
+    boolean isInDatabase();
+
+    List<StockItem> findAll() throws SQLException;
+
+    /**
+     * Get the items with the quantity each had at a past time; items with
+     * no movement by then are left out
+     */
+    List<StockItem> findAllAsOf(Instant asOf) throws SQLException;
+
+    /**
+     * @return the item, or null if there is no such item
+     */
+    StockItem findById(String id) throws SQLException;
+
+    /**
+     * Get the items with the given ids, in no particular order; unknown ids are skipped
+     */
+    List<StockItem> findByIds(Collection<String> ids) throws SQLException;
+
+    /**
+     * Get the items whose name or description contains the text, ignoring case
+     */
+    List<StockItem> search(String text) throws SQLException;
+
+    /**
+     * Get the items matching every criterion set on the filter, in its sort order
+     */
+    List<StockItem> filter(StockFilter filter) throws SQLException;
+
+    /**
+     * Count the items matching the filter per supplier, price band and stock level
+     */
+    FacetCounts countFacets(StockFilter filter) throws SQLException;
+
+    void scanCatalog(CatalogVisitor visitor) throws SQLException, IOException;
+
+    /**
+     * Insert a new item
+     * @return the item's version, or null if an item with its id already exists
+     */
+    Long insert(StockItem item) throws SQLException;
+
+    /**
+     * Update the item if it is still at the item's version
+     * @return the item's version after the write, or null if it was changed or deleted meanwhile
+     */
+    Long update(StockItem item) throws SQLException;
+
+    /**
+     * Delete the item, writing off its remaining stock
+     * @return false if there was no such item
+     */
+    boolean delete(String id) throws SQLException;
+
+    /**
+     * Add to the item's quantity, or take from it if delta is negative
+     * @return false if there is no such item or its quantity would go below
+     *         zero or above Integer.MAX_VALUE
+     */
+    boolean adjustQuantity(String id, long delta) throws SQLException;
+
+    /**
+     * Move units from one item to another as a pair of transfer movements
+     * @return false if the source item does not exist or is short of stock
+     * @throws SQLException if the target item does not exist; nothing is moved
+     */
+    boolean transfer(String fromId, String toId, int quantity) throws SQLException;
+
+    /**
+     * Get the movements of an item, oldest first
+     */
+    List<StockMovement> findMovements(String itemId) throws SQLException;
+
+    /**
+     * Take units of several items out of stock and hold them as reservations,
+     * logging a sale per line; either every line is reserved or none is
+     * @param lines quantity to reserve, by item id
+     * @return the reservations in the iteration order of lines, or null if
+     *         any item does not exist or does not have enough stock left
+     */
+    List<Reservation> reserve(Map<String, Integer> lines) throws SQLException;
+
+    /**
+     * Close reservations, putting their units back in stock if restock is set.
+     * The units of a reservation whose item has gone are not put back.
+     * @return the reservations that were open and are now closed
+     */
+    List<Reservation> closeReservations(Collection<String> reservationIds, boolean restock) throws SQLException;
+
+    /**
+     * Get the open reservations of an item, oldest first
+     */
+    List<Reservation> findReservations(String itemId) throws SQLException;
+}
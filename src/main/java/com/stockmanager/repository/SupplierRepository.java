@@ -0,0 +1,30 @@
+// SupplierRepository.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.Supplier;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Storage for suppliers. Suppliers come back as new copies.
+ */
+public interface SupplierRepository {
+    List<Supplier> findAll() throws SQLException;
+
+    /**
+     * @return the supplier, or null if there is no such supplier
+     */
+    Supplier findById(String id) throws SQLException;
+
+    /**
+     * Insert the supplier, or update it if it is still at the supplier's version
+     * @return the supplier's version after the write, or null if the update conflicted
+     */
+    Long save(Supplier supplier) throws SQLException;
+
+    /**
+     * @throws SQLException if any stock item still uses the supplier; nothing is deleted
+     */
+    void delete(String id) throws SQLException;
+}
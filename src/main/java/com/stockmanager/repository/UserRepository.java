@@ -0,0 +1,31 @@
+// UserRepository.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.User;
+
+import java.sql.SQLException;
+
+/**
+ * Storage for user accounts
+ */
+public interface UserRepository {
+    /**
+     * @return the user with this username and password, or null if there is none
+     */
+    User findByCredentials(String username, String password) throws SQLException;
+
+    /**
+     * @return false if another user already has the username; nothing is stored
+     */
+    boolean insert(User user) throws SQLException;
+
+    /**
+     * @return false if there is no such user
+     */
+    boolean updateProfile(String id, String fullName, String email) throws SQLException;
+
+    /**
+     * @return false if there is no such user
+     */
+    boolean updatePassword(String id, String password) throws SQLException;
+}
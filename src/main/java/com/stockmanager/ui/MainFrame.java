@@ -7,16 +7,24 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 
 import com.stockmanager.controllers.AnalyticsController;
+import com.stockmanager.controllers.ArchiveController;
 import com.stockmanager.controllers.AuthController;
+import com.stockmanager.controllers.BackupController;
+import com.stockmanager.controllers.ReservationController;
 import com.stockmanager.controllers.StockController;
+import com.stockmanager.controllers.WarehouseController;
 import com.stockmanager.models.User;
+import com.stockmanager.repository.Repositories;
 import com.stockmanager.ui.analytics.AnalyticsPanel;
 import com.stockmanager.ui.auth.AuthDialog;
+import com.stockmanager.ui.backup.BackupPanel;
 import com.stockmanager.ui.dashboard.DashboardPanel;
 import com.stockmanager.ui.stock.StockListPanel;
 import com.stockmanager.ui.theme.DraculaTheme;
 import com.stockmanager.ui.user.UserProfilePanel;
 import com.stockmanager.utils.DatabaseHelper;
+import com.stockmanager.utils.DatabaseMaintenance;
+import com.stockmanager.utils.Money;
 import com.stockmanager.utils.UIUtils;
 
 /**
@@ -31,36 +39,84 @@ public class MainFrame extends JFrame {
     private AuthController authController;
     private StockController stockController;
     private AnalyticsController analyticsController;
+    private ArchiveController archiveController;
+    private WarehouseController warehouseController;
+    private BackupController backupController;
+    private ReservationController reservationController;
+    
+    private DatabaseMaintenance databaseMaintenance;
     
     // Panels
     private DashboardPanel dashboardPanel;
     private StockListPanel stockListPanel;
     private AnalyticsPanel analyticsPanel;
     private UserProfilePanel userProfilePanel;
+    private BackupPanel backupPanel;
     
     // User info components
     private JLabel userNameLabel;
     private JButton logoutButton;
     
     public MainFrame() {
-        // Initialize database
-        DatabaseHelper.initializeDatabase();
+        // Items, suppliers and users kept in memory leave no database for the features that work on it
+        boolean onDatabase = !Repositories.isInMemory();
+        String restoreMessage = null;
+        if (onDatabase) {
+            // Restore a backup chosen in the last session, before anything opens the database
+            restoreMessage = BackupController.applyPendingRestore();
+            
+            // Initialize database
+            DatabaseHelper.initializeDatabase();
+        }
         
         // Initialize controllers
         authController = new AuthController();
         stockController = new StockController();
-        analyticsController = new AnalyticsController(stockController);
+        reservationController = new ReservationController(stockController);
+        if (onDatabase) {
+            warehouseController = new WarehouseController(stockController);
+            archiveController = new ArchiveController(stockController, warehouseController);
+            backupController = new BackupController(stockController);
+            
+            // Checkpoint, analyze and vacuum the database in the background while the app is idle
+            databaseMaintenance = new DatabaseMaintenance();
+        }
+        analyticsController = new AnalyticsController(stockController, warehouseController);
         
         // Initialize the UI
         initializeUI();
         
+        // Saves acknowledged in write-behind mode that later failed are lost unless the user makes them again
+        stockController.setWriteFailureListener((id, item, reason) -> SwingUtilities.invokeLater(() ->
+            JOptionPane.showMessageDialog(
+                this,
+                item != null
+                    ? "Your changes to \"" + item.getName() + "\" could not be saved: " + reason + ".\n" +
+                      "They were: quantity " + item.getQuantity() + ", price " + Money.format(item.getPriceCents()) +
+                      ". Please enter them again."
+                    : "Item " + id + " could not be deleted: " + reason + ".",
+                "Change Not Saved",
+                JOptionPane.ERROR_MESSAGE
+            )));
+        
+        if (restoreMessage != null) {
+            JOptionPane.showMessageDialog(this, restoreMessage, "Restore", JOptionPane.INFORMATION_MESSAGE);
+        }
+        
         // Show login dialog on startup
         showLoginDialog();
         
-        // Add window closing listener to close database connection
+        // Add window closing listener to flush pending changes and close database connection
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
+                if (databaseMaintenance != null) {
+                    databaseMaintenance.shutdown();
+                    backupController.shutdown();
+                    archiveController.shutdown();
+                    warehouseController.shutdown();
+                }
+                stockController.shutdown();
                 DatabaseHelper.closeConnection();
             }
         });
@@ -91,15 +147,22 @@ public class MainFrame extends JFrame {
         
         // Create the panels
         dashboardPanel = new DashboardPanel(stockController, analyticsController);
-        stockListPanel = new StockListPanel(stockController);
+        stockListPanel = new StockListPanel(stockController, archiveController, warehouseController,
+                                            reservationController);
         analyticsPanel = new AnalyticsPanel(analyticsController);
         userProfilePanel = new UserProfilePanel(authController);
+        if (backupController != null) {
+            backupPanel = new BackupPanel(backupController, databaseMaintenance);
+        }
         
         // Add panels to card layout
         contentPanel.add(dashboardPanel, "dashboard");
         contentPanel.add(stockListPanel, "stock");
         contentPanel.add(analyticsPanel, "analytics");
         contentPanel.add(userProfilePanel, "profile");
+        if (backupPanel != null) {
+            contentPanel.add(backupPanel, "backups");
+        }
         
         add(contentPanel, BorderLayout.CENTER);
         
@@ -143,6 +206,10 @@ public class MainFrame extends JFrame {
         navButtonsPanel.add(analyticsButton);
         navButtonsPanel.add(Box.createRigidArea(new Dimension(0, 10)));
         navButtonsPanel.add(profileButton);
+        if (backupController != null) {
+            navButtonsPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+            navButtonsPanel.add(createNavButton("Backups", "backups"));
+        }
         navButtonsPanel.add(Box.createVerticalGlue());
         
         // Bottom section with user info and logout
@@ -172,6 +239,18 @@ public class MainFrame extends JFrame {
         return panel;
     }
     
+    private void showCard(String cardName) {
+        // Summary panels take fresh figures each time they are opened
+        if ("dashboard".equals(cardName)) {
+            dashboardPanel.refreshData();
+        } else if ("analytics".equals(cardName)) {
+            analyticsPanel.refreshData();
+        } else if ("backups".equals(cardName)) {
+            backupPanel.refreshData();
+        }
+        cardLayout.show(contentPanel, cardName);
+    }
+    
     private JButton createNavButton(String text, String cardName) {
         JButton button = new JButton(text);
         button.setMaximumSize(new Dimension(180, 40));
@@ -182,7 +261,7 @@ public class MainFrame extends JFrame {
         button.setBorderPainted(false);
         button.setFont(new Font("Dialog", Font.BOLD, 14));
         
-        button.addActionListener(e -> cardLayout.show(contentPanel, cardName));
+        button.addActionListener(e -> showCard(cardName));
         
         // Add hover effect
         button.addMouseListener(new java.awt.event.MouseAdapter() {
@@ -233,8 +312,8 @@ public class MainFrame extends JFrame {
             userNameLabel.setText(user.getUsername());
             
             // Refresh user profile panel
+            contentPanel.remove(userProfilePanel);  // Remove existing profile panel
             userProfilePanel = new UserProfilePanel(authController);
-            contentPanel.remove(contentPanel.getComponent(3));  // Remove existing profile panel
             contentPanel.add(userProfilePanel, "profile");
         }
     }
@@ -4,17 +4,23 @@ package com.stockmanager.ui.analytics;
 import javax.swing.*;
 import java.awt.*;
 import java.text.NumberFormat;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Locale;
 import java.util.Map;
 
 import com.stockmanager.controllers.AnalyticsController;
+import com.stockmanager.models.InventorySummary;
 import com.stockmanager.ui.theme.DraculaTheme;
+import com.stockmanager.utils.AsOfDate;
 import com.stockmanager.utils.UIUtils;
 
 /**
  * Panel for displaying analytics and data visualization
  */
 public class AnalyticsPanel extends JPanel {
+    private static final int LOW_STOCK_THRESHOLD = 10;
+
     private AnalyticsController controller;
 
     private JPanel chartPanel1;
@@ -22,8 +28,21 @@ public class AnalyticsPanel extends JPanel {
     private JPanel chartPanel3;
     private JPanel chartPanel4;
 
+    // Inventory figures the charts draw, taken together by refreshData()
+    private InventorySummary summary;
+
+    // Stock value per warehouse, or null when showing a past time, which warehouses keep no history for
+    private Map<String, Double> valueByWarehouse;
+
+    // Past time whose inventory the charts show, or null for current stock
+    private Instant asOf;
+    private JCheckBox asOfCheckBox;
+    private JTextField asOfField;
+
     public AnalyticsPanel(AnalyticsController controller) {
         this.controller = controller;
+        this.summary = controller.getInventorySummary(LOW_STOCK_THRESHOLD);
+        this.valueByWarehouse = controller.getInventoryValueByWarehouse();
 
         // Initialize the UI
         initializeUI();
@@ -36,9 +55,14 @@ public class AnalyticsPanel extends JPanel {
         setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
         // Create header
+        JPanel headerPanel = new JPanel(new BorderLayout(10, 0));
+        headerPanel.setBackground(DraculaTheme.BACKGROUND);
+        headerPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 20, 0));
+
         JLabel headerLabel = UIUtils.createHeaderLabel("Analytics Dashboard");
-        headerLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 20, 0));
-        add(headerLabel, BorderLayout.NORTH);
+        headerPanel.add(headerLabel, BorderLayout.WEST);
+        headerPanel.add(createAsOfPanel(), BorderLayout.EAST);
+        add(headerPanel, BorderLayout.NORTH);
 
         // Create main content panel
         JPanel contentPanel = new JPanel(new GridLayout(2, 2, 20, 20));
@@ -47,7 +71,7 @@ public class AnalyticsPanel extends JPanel {
         // Create chart panels
         chartPanel1 = createMonthlySalesChart();
         chartPanel2 = createInventoryBySupplierChart();
-        chartPanel3 = createInventoryByCategoryChart();
+        chartPanel3 = createInventoryByWarehouseChart();
         chartPanel4 = createInventoryLevelsChart();
 
         contentPanel.add(chartPanel1);
@@ -58,6 +82,44 @@ public class AnalyticsPanel extends JPanel {
         add(contentPanel, BorderLayout.CENTER);
     }
 
+    private JPanel createAsOfPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        panel.setBackground(DraculaTheme.BACKGROUND);
+
+        asOfCheckBox = new JCheckBox("As of");
+        asOfCheckBox.setBackground(DraculaTheme.BACKGROUND);
+        asOfCheckBox.setForeground(DraculaTheme.FOREGROUND);
+        asOfField = UIUtils.createStyledTextField();
+        asOfField.setPreferredSize(new Dimension(120, 30));
+        asOfField.setToolTipText(AsOfDate.FORMAT_HINT);
+
+        panel.add(asOfCheckBox);
+        panel.add(asOfField);
+
+        asOfCheckBox.addActionListener(e -> applyAsOf());
+        asOfField.addActionListener(e -> {
+            asOfCheckBox.setSelected(true);
+            applyAsOf();
+        });
+
+        return panel;
+    }
+
+    private void applyAsOf() {
+        if (!asOfCheckBox.isSelected()) {
+            asOf = null;
+        } else {
+            try {
+                asOf = AsOfDate.parse(asOfField.getText());
+            } catch (DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(this, "Please enter a date as " + AsOfDate.FORMAT_HINT + ".", "Validation Error", JOptionPane.ERROR_MESSAGE);
+                asOfCheckBox.setSelected(false);
+                asOf = null;
+            }
+        }
+        refreshData();
+    }
+
     private JPanel createMonthlySalesChart() {
         JPanel panel = UIUtils.createPanelWithTitle("Monthly Sales");
         panel.setLayout(new BorderLayout());
@@ -149,7 +211,7 @@ public class AnalyticsPanel extends JPanel {
                 super.paintComponent(g);
 
                 // Get the data
-                Map<String, Double> data = controller.getSalesBySupplier();
+                Map<String, Double> data = summary.getValueBySupplier();
 
                 // Find total value
                 double total = data.values().stream().mapToDouble(Double::doubleValue).sum();
@@ -221,27 +283,31 @@ public class AnalyticsPanel extends JPanel {
         return panel;
     }
 
-    private JPanel createInventoryByCategoryChart() {
-        JPanel panel = UIUtils.createPanelWithTitle("Inventory by Category");
+    private JPanel createInventoryByWarehouseChart() {
+        JPanel panel = UIUtils.createPanelWithTitle("Inventory by Warehouse");
         panel.setLayout(new BorderLayout());
 
-        // Create a chart panel for the category distribution
+        // Create a chart panel for the warehouse distribution
         JPanel chartPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
 
+                // Draw title
+                g.setColor(DraculaTheme.FOREGROUND);
+                g.setFont(new Font("Dialog", Font.BOLD, 12));
+                g.drawString("Inventory Distribution by Warehouse", 10, 20);
+
                 // Get the data
-                Map<String, Double> data = controller.getInventoryValueByCategory();
+                Map<String, Double> data = valueByWarehouse;
+                if (data == null) {
+                    g.drawString("Not available for past dates", 10, 50);
+                    return;
+                }
 
                 // Find total value
                 double total = data.values().stream().mapToDouble(Double::doubleValue).sum();
 
-                // Draw title
-                g.setColor(DraculaTheme.FOREGROUND);
-                g.setFont(new Font("Dialog", Font.BOLD, 12));
-                g.drawString("Inventory Distribution by Category", 10, 20);
-
                 // Draw bars
                 int barHeight = 30;
                 int maxWidth = getWidth() - 200;
@@ -254,7 +320,7 @@ public class AnalyticsPanel extends JPanel {
 
                 int i = 0;
                 for (Map.Entry<String, Double> entry : data.entrySet()) {
-                    String category = entry.getKey();
+                    String warehouse = entry.getKey();
                     double value = entry.getValue();
 
                     // Calculate width proportional to value
@@ -264,9 +330,9 @@ public class AnalyticsPanel extends JPanel {
                     g.setColor(getColorForIndex(i));
                     g.fillRect(150, y, width, barHeight);
 
-                    // Draw category label
+                    // Draw warehouse label
                     g.setColor(DraculaTheme.FOREGROUND);
-                    g.drawString(category, 10, y + barHeight/2 + 5);
+                    g.drawString(warehouse, 10, y + barHeight/2 + 5);
 
                     // Draw value label
                     String valueStr = currencyFormat.format(value) + " (" + percentFormat.format(value/total) + ")";
@@ -303,7 +369,7 @@ public class AnalyticsPanel extends JPanel {
                 super.paintComponent(g);
 
                 // Get the data
-                Map<String, Integer> data = controller.getInventoryLevels();
+                Map<String, Integer> data = summary.getQuantitiesByName();
 
                 // Find max value
                 int maxValue = data.values().stream().mapToInt(Integer::intValue).max().orElse(0);
@@ -389,6 +455,11 @@ public class AnalyticsPanel extends JPanel {
     }
     
     public void refreshData() {
+        summary = asOf != null
+            ? controller.getInventorySummaryAsOf(asOf, LOW_STOCK_THRESHOLD)
+            : controller.getInventorySummary(LOW_STOCK_THRESHOLD);
+        valueByWarehouse = asOf != null ? null : controller.getInventoryValueByWarehouse();
+
         // Force a repaint to refresh the chart data
         chartPanel1.repaint();
         chartPanel2.repaint();
@@ -0,0 +1,354 @@
+// BackupPanel.java
+package com.stockmanager.ui.backup;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutionException;
+
+import com.stockmanager.controllers.BackupController;
+import com.stockmanager.models.BackupSet;
+import com.stockmanager.ui.theme.DraculaTheme;
+import com.stockmanager.utils.DatabaseMaintenance;
+import com.stockmanager.utils.UIUtils;
+
+/**
+ * Panel for taking database backups and choosing one to restore, and for
+ * following and running database maintenance
+ */
+public class BackupPanel extends JPanel {
+    private static final String[] COLUMN_NAMES = {"Backup", "Taken", "Size (MB)"};
+    private static final String[] MAINTENANCE_COLUMN_NAMES =
+        {"Task", "Runs", "Failed", "Last Run", "Last (ms)", "Total (ms)"};
+    private static final DateTimeFormatter TAKEN_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    // How often the progress bar follows a running backup
+    private static final int PROGRESS_INTERVAL_MS = 250;
+
+    private BackupController backupController;
+    private DatabaseMaintenance databaseMaintenance;
+
+    private JTable backupTable;
+    private DefaultTableModel tableModel;
+    private JProgressBar progressBar;
+    private JLabel statusLabel;
+    private JButton backupButton;
+    private JButton restoreButton;
+    private DefaultTableModel maintenanceModel;
+    private JButton maintenanceButton;
+    private JButton rebuildButton;
+
+    public BackupPanel(BackupController backupController, DatabaseMaintenance databaseMaintenance) {
+        this.backupController = backupController;
+        this.databaseMaintenance = databaseMaintenance;
+
+        // Initialize the UI
+        initializeUI();
+
+        // Load backups
+        refreshData();
+    }
+
+    private void initializeUI() {
+        // Set up the panel
+        setBackground(DraculaTheme.BACKGROUND);
+        setLayout(new BorderLayout(20, 20));
+        setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        // Create header
+        JLabel headerLabel = UIUtils.createHeaderLabel("Backups");
+        add(headerLabel, BorderLayout.NORTH);
+
+        // Create table
+        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        backupTable = UIUtils.createStyledTable(tableModel);
+        backupTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        JScrollPane scrollPane = new JScrollPane(backupTable);
+        scrollPane.getViewport().setBackground(DraculaTheme.BACKGROUND);
+
+        JPanel centerPanel = new JPanel(new BorderLayout(10, 10));
+        centerPanel.setBackground(DraculaTheme.BACKGROUND);
+        centerPanel.add(scrollPane, BorderLayout.CENTER);
+        centerPanel.add(createMaintenancePanel(), BorderLayout.SOUTH);
+        add(centerPanel, BorderLayout.CENTER);
+
+        // Create status and buttons panel
+        JPanel bottomPanel = new JPanel(new BorderLayout(10, 10));
+        bottomPanel.setBackground(DraculaTheme.BACKGROUND);
+
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+
+        statusLabel = UIUtils.createStyledLabel(" ");
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.setBackground(DraculaTheme.BACKGROUND);
+
+        backupButton = UIUtils.createStyledButton("Back Up Now");
+        restoreButton = UIUtils.createStyledButton("Restore Selected");
+        JButton refreshButton = UIUtils.createStyledButton("Refresh");
+
+        buttonPanel.add(backupButton);
+        buttonPanel.add(restoreButton);
+        buttonPanel.add(refreshButton);
+
+        bottomPanel.add(progressBar, BorderLayout.NORTH);
+        bottomPanel.add(statusLabel, BorderLayout.CENTER);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
+
+        add(bottomPanel, BorderLayout.SOUTH);
+
+        // Set action listeners
+        backupButton.addActionListener(e -> backUpNow());
+        restoreButton.addActionListener(e -> restoreSelectedBackup());
+        refreshButton.addActionListener(e -> refreshData());
+    }
+
+    private JPanel createMaintenancePanel() {
+        JPanel panel = UIUtils.createPanelWithTitle("Database Maintenance");
+        panel.setLayout(new BorderLayout(10, 10));
+
+        maintenanceModel = new DefaultTableModel(MAINTENANCE_COLUMN_NAMES, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable maintenanceTable = UIUtils.createStyledTable(maintenanceModel);
+        maintenanceTable.setPreferredScrollableViewportSize(new Dimension(0, 150));
+
+        JScrollPane scrollPane = new JScrollPane(maintenanceTable);
+        scrollPane.getViewport().setBackground(DraculaTheme.BACKGROUND);
+        panel.add(scrollPane, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.setBackground(DraculaTheme.BACKGROUND);
+
+        maintenanceButton = UIUtils.createStyledButton("Run Maintenance Now");
+        rebuildButton = UIUtils.createStyledButton("Rebuild Database");
+        buttonPanel.add(maintenanceButton);
+        buttonPanel.add(rebuildButton);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        maintenanceButton.addActionListener(e -> runMaintenanceNow());
+        rebuildButton.addActionListener(e -> rebuildDatabase());
+        return panel;
+    }
+
+    /**
+     * Reload the list of backups and show any restore waiting for a restart
+     */
+    public void refreshData() {
+        tableModel.setRowCount(0);
+        for (BackupSet backup : backupController.listBackups()) {
+            tableModel.addRow(new Object[] {
+                backup.getName(),
+                TAKEN_FORMAT.format(backup.getCreatedAt()),
+                String.format("%.1f", backup.getSizeBytes() / (1024.0 * 1024.0))
+            });
+        }
+
+        String pending = backupController.getPendingRestore();
+        statusLabel.setText(pending == null ? " " : pending + " will be restored when the application is restarted.");
+
+        refreshMaintenance();
+    }
+
+    private void refreshMaintenance() {
+        maintenanceModel.setRowCount(0);
+        for (DatabaseMaintenance.TaskMetrics metrics : databaseMaintenance.getMetrics()) {
+            maintenanceModel.addRow(new Object[] {
+                metrics.getName(),
+                metrics.getRuns(),
+                metrics.getFailures(),
+                metrics.getLastRunMillis() == 0
+                    ? "Never" : TAKEN_FORMAT.format(Instant.ofEpochMilli(metrics.getLastRunMillis())),
+                metrics.getLastDurationMillis(),
+                metrics.getTotalDurationMillis()
+            });
+        }
+    }
+
+    private void runMaintenanceNow() {
+        maintenanceButton.setEnabled(false);
+        statusLabel.setText("Running database maintenance...");
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                databaseMaintenance.runNow().get();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                maintenanceButton.setEnabled(true);
+                refreshMaintenance();
+                statusLabel.setText("Database maintenance finished.");
+            }
+        }.execute();
+    }
+
+    private void rebuildDatabase() {
+        int choice = JOptionPane.showConfirmDialog(
+            this,
+            "Rebuild the database file to give all of its free space back?\n" +
+            "Changes cannot be saved until it is done, which can take a while on a large database.",
+            "Confirm Rebuild",
+            JOptionPane.YES_NO_OPTION
+        );
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        rebuildButton.setEnabled(false);
+        statusLabel.setText("Rebuilding the database...");
+
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() throws Exception {
+                return databaseMaintenance.rebuildNow().get();
+            }
+
+            @Override
+            protected void done() {
+                rebuildButton.setEnabled(true);
+                refreshMaintenance();
+
+                boolean rebuilt;
+                try {
+                    rebuilt = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    rebuilt = false;
+                }
+                if (rebuilt) {
+                    statusLabel.setText("The database was rebuilt.");
+                } else {
+                    statusLabel.setText(" ");
+                    JOptionPane.showMessageDialog(
+                        BackupPanel.this,
+                        "The database could not be rebuilt. It is unchanged.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        }.execute();
+    }
+
+    private void backUpNow() {
+        backupButton.setEnabled(false);
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+
+        // The backup runs on the controller's thread; this only follows it
+        Timer progressTimer = new Timer(PROGRESS_INTERVAL_MS, e -> {
+            double progress = backupController.getBackupProgress();
+            if (progress >= 0) {
+                progressBar.setValue((int) (progress * 100));
+            }
+        });
+        progressTimer.start();
+
+        new SwingWorker<BackupSet, Void>() {
+            @Override
+            protected BackupSet doInBackground() throws Exception {
+                return backupController.backupNow().get();
+            }
+
+            @Override
+            protected void done() {
+                progressTimer.stop();
+                progressBar.setVisible(false);
+                backupButton.setEnabled(true);
+
+                try {
+                    BackupSet backup = get();
+                    refreshData();
+                    statusLabel.setText("Backed up to " + backup.getName() + ".");
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(
+                        BackupPanel.this,
+                        "The backup failed: " + cause.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        }.execute();
+    }
+
+    private void restoreSelectedBackup() {
+        int selectedRow = backupTable.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(
+                this,
+                "Please select a backup to restore.",
+                "No Selection",
+                JOptionPane.INFORMATION_MESSAGE
+            );
+            return;
+        }
+
+        String name = (String) tableModel.getValueAt(selectedRow, 0);
+        int choice = JOptionPane.showConfirmDialog(
+            this,
+            "Replace the database with " + name + " when the application is next started?\n" +
+            "Changes made after the backup was taken will be lost; the current database is kept as a backup.",
+            "Confirm Restore",
+            JOptionPane.YES_NO_OPTION
+        );
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        restoreButton.setEnabled(false);
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() {
+                // Checking a large backup's integrity takes a while
+                return backupController.scheduleRestore(name);
+            }
+
+            @Override
+            protected void done() {
+                restoreButton.setEnabled(true);
+                boolean scheduled;
+                try {
+                    scheduled = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    scheduled = false;
+                }
+
+                if (scheduled) {
+                    refreshData();
+                    JOptionPane.showMessageDialog(
+                        BackupPanel.this,
+                        "The backup passed its integrity check and will be restored when the application is restarted.",
+                        "Restore Scheduled",
+                        JOptionPane.INFORMATION_MESSAGE
+                    );
+                } else {
+                    JOptionPane.showMessageDialog(
+                        BackupPanel.this,
+                        "The backup could not be restored because it is missing or failed its integrity check.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        }.execute();
+    }
+}
@@ -10,8 +10,10 @@ import java.util.Map;
 
 import com.stockmanager.controllers.AnalyticsController;
 import com.stockmanager.controllers.StockController;
+import com.stockmanager.models.InventorySummary;
 import com.stockmanager.models.StockItem;
 import com.stockmanager.ui.theme.DraculaTheme;
+import com.stockmanager.utils.Money;
 import com.stockmanager.utils.UIUtils;
 
 /**
@@ -28,6 +30,9 @@ public class DashboardPanel extends JPanel {
     private JPanel summaryPanel;
     private JPanel lowStockPanel;
     
+    // Figures shown by the labels and charts, taken together by refreshData()
+    private InventorySummary summary;
+    
     public DashboardPanel(StockController stockController, AnalyticsController analyticsController) {
         this.stockController = stockController;
         this.analyticsController = analyticsController;
@@ -189,7 +194,7 @@ public class DashboardPanel extends JPanel {
                 super.paintComponent(g);
                 
                 // Get the data
-                Map<String, Double> data = analyticsController.getSalesBySupplier();
+                Map<String, Double> data = summary.getValueBySupplier();
                 
                 // Find total value
                 double total = data.values().stream().mapToDouble(Double::doubleValue).sum();
@@ -242,16 +247,14 @@ public class DashboardPanel extends JPanel {
         return panel;
     }
     
-    private void refreshData() {
-        // Update summary metrics
-        List<StockItem> allItems = stockController.getAllStockItems();
-        totalItemsLabel.setText(String.valueOf(allItems.size()));
+    public void refreshData() {
+        // Update summary metrics, all from the same state of the inventory
+        summary = analyticsController.getInventorySummary(10);
+        totalItemsLabel.setText(String.valueOf(summary.getItemCount()));
         
-        double totalValue = analyticsController.getTotalInventoryValue();
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-        totalValueLabel.setText(currencyFormat.format(totalValue));
+        totalValueLabel.setText(Money.format(summary.getTotalValueCents()));
         
-        List<StockItem> lowStockItems = analyticsController.getLowStockItems(10);
+        List<StockItem> lowStockItems = summary.getLowStockItems();
         lowStockCountLabel.setText(String.valueOf(lowStockItems.size()));
         
         // Update low stock panel
@@ -0,0 +1,59 @@
+// SnapshotTableModel.java
+package com.stockmanager.ui.stock;
+
+import javax.swing.table.AbstractTableModel;
+
+import com.stockmanager.models.OffHeapInventorySnapshot;
+import com.stockmanager.models.Supplier;
+import com.stockmanager.utils.Money;
+
+/**
+ * Read-only table model over an off-heap inventory snapshot.
+ * Cells are decoded from the snapshot when the table asks for them,
+ * so only the visible rows ever exist as Java objects.
+ */
+public class SnapshotTableModel extends AbstractTableModel {
+    private final String[] columnNames;
+    private final OffHeapInventorySnapshot snapshot;
+
+    public SnapshotTableModel(String[] columnNames, OffHeapInventorySnapshot snapshot) {
+        this.columnNames = columnNames;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public int getRowCount() {
+        return snapshot.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0:
+                return snapshot.getId(row);
+            case 1:
+                return snapshot.getName(row);
+            case 2:
+                return snapshot.getDescription(row);
+            case 3:
+                return Money.format(snapshot.getPriceCents(row));
+            case 4:
+                return snapshot.getQuantity(row);
+            case 5:
+                Supplier supplier = snapshot.getSupplier(row);
+                return supplier != null ? supplier.getName() : null;
+            default:
+                return Money.format(snapshot.getPriceCents(row) * snapshot.getQuantity(row));
+        }
+    }
+}
@@ -7,10 +7,12 @@ import java.awt.event.ActionEvent;
 import java.text.NumberFormat;
 import java.text.ParseException;
 
+import com.stockmanager.controllers.ArchiveController;
 import com.stockmanager.controllers.StockController;
 import com.stockmanager.models.StockItem;
 import com.stockmanager.models.Supplier;
 import com.stockmanager.ui.theme.DraculaTheme;
+import com.stockmanager.utils.Money;
 import com.stockmanager.utils.UIUtils;
 
 /**
@@ -18,6 +20,7 @@ import com.stockmanager.utils.UIUtils;
  */
 public class StockFormPanel extends JPanel {
     private StockController controller;
+    private ArchiveController archiveController;
     
     private JTextField idField;
     private JTextField nameField;
@@ -31,8 +34,9 @@ public class StockFormPanel extends JPanel {
     
     private StockItem currentItem;
     
-    public StockFormPanel(StockController controller) {
+    public StockFormPanel(StockController controller, ArchiveController archiveController) {
         this.controller = controller;
+        this.archiveController = archiveController;
         
         // Initialize the UI
         initializeUI();
@@ -172,7 +176,7 @@ public class StockFormPanel extends JPanel {
         idField.setText(item.getId());
         nameField.setText(item.getName());
         descriptionArea.setText(item.getDescription());
-        priceField.setText(String.valueOf(item.getPrice()));
+        priceField.setText(Money.toPlainString(item.getPriceCents()));
         quantityField.setText(String.valueOf(item.getQuantity()));
         
         // Select the correct supplier in the combo box
@@ -213,10 +217,10 @@ public class StockFormPanel extends JPanel {
             return;
         }
         
-        double price = 0;
+        long priceCents = 0;
         try {
-            price = Double.parseDouble(priceField.getText().trim());
-            if (price < 0) {
+            priceCents = Money.parse(priceField.getText());
+            if (priceCents < 0) {
                 throw new NumberFormatException("Price cannot be negative");
             }
         } catch (NumberFormatException ex) {
@@ -248,22 +252,27 @@ public class StockFormPanel extends JPanel {
             StockItem newItem = new StockItem(
                 nameField.getText().trim(),
                 descriptionArea.getText().trim(),
-                price,
+                priceCents,
                 quantity,
                 supplier
             );
             
-            controller.saveStockItem(newItem);
+            if (controller.addStockItem(newItem) != StockController.SaveResult.SAVED) {
+                JOptionPane.showMessageDialog(this, "The item could not be saved.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             JOptionPane.showMessageDialog(this, "Item saved successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
         } else {
             // Update existing item
             currentItem.setName(nameField.getText().trim());
             currentItem.setDescription(descriptionArea.getText().trim());
-            currentItem.setPrice(price);
+            currentItem.setPriceCents(priceCents);
             currentItem.setQuantity(quantity);
             currentItem.setSupplier(supplier);
             
-            controller.saveStockItem(currentItem);
+            if (!updateCurrentItem()) {
+                return;
+            }
             JOptionPane.showMessageDialog(this, "Item updated successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
         }
         
@@ -284,4 +293,93 @@ public class StockFormPanel extends JPanel {
             panel.dispatchEvent(new ActionEvent(this, ActionEvent.ACTION_PERFORMED, "refresh"));
         }
     }
+    
+    /**
+     * Save the edited item. If someone else changed it since it was loaded,
+     * let the user overwrite their change, reload the form, or keep editing.
+     * @return true if the item was saved
+     */
+    private boolean updateCurrentItem() {
+        StockController.SaveResult result = controller.saveStockItem(currentItem);
+        while (result == StockController.SaveResult.CONFLICT) {
+            StockItem latest = controller.getStockItemById(currentItem.getId());
+            if (latest == null && archiveController != null && archiveController.isArchived(currentItem.getId())) {
+                return restoreArchivedItem();
+            }
+            String message = latest != null
+                ? "Another user changed this item after you opened it.\n" +
+                  "It now has quantity " + latest.getQuantity() + " and price " + Money.format(latest.getPriceCents()) + "."
+                : "Another user deleted this item after you opened it.";
+            String[] options = {"Overwrite", "Reload", "Cancel"};
+            int choice = JOptionPane.showOptionDialog(
+                this,
+                message,
+                "Edit Conflict",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.WARNING_MESSAGE,
+                null,
+                options,
+                options[2]
+            );
+            
+            if (choice == 0) {
+                // Save over the latest version; a deleted item is saved again as new
+                if (latest != null) {
+                    currentItem.setVersion(latest.getVersion());
+                    result = controller.saveStockItem(currentItem);
+                } else {
+                    result = controller.addStockItem(currentItem);
+                }
+            } else {
+                if (choice == 1) {
+                    if (latest != null) {
+                        setItem(latest);
+                    } else {
+                        clearForm();
+                    }
+                }
+                return false;
+            }
+        }
+        
+        if (result == StockController.SaveResult.FAILED) {
+            JOptionPane.showMessageDialog(this, "The item could not be saved.", "Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * The edited item was archived after it was loaded. Let the user restore it
+     * and save the edit over it, or keep editing.
+     * @return true if the item was saved
+     */
+    private boolean restoreArchivedItem() {
+        String[] options = {"Restore and Save", "Cancel"};
+        int choice = JOptionPane.showOptionDialog(
+            this,
+            "This item was archived after you opened it.",
+            "Edit Conflict",
+            JOptionPane.DEFAULT_OPTION,
+            JOptionPane.WARNING_MESSAGE,
+            null,
+            options,
+            options[1]
+        );
+        if (choice != 0) {
+            return false;
+        }
+        
+        StockItem restored = archiveController.restoreItem(currentItem.getId())
+            ? controller.getStockItemById(currentItem.getId())
+            : null;
+        if (restored != null) {
+            currentItem.setVersion(restored.getVersion());
+            if (controller.saveStockItem(currentItem) == StockController.SaveResult.SAVED) {
+                return true;
+            }
+        }
+        JOptionPane.showMessageDialog(this, "The item could not be saved.", "Error", JOptionPane.ERROR_MESSAGE);
+        return false;
+    }
 }
\ No newline at end of file
@@ -2,23 +2,56 @@
 package com.stockmanager.ui.stock;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.text.NumberFormat;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
+import com.stockmanager.controllers.ArchiveController;
+import com.stockmanager.controllers.ReservationController;
 import com.stockmanager.controllers.StockController;
+import com.stockmanager.controllers.WarehouseController;
+import com.stockmanager.models.FacetCounts;
+import com.stockmanager.models.OffHeapInventorySnapshot;
+import com.stockmanager.models.Reservation;
+import com.stockmanager.models.StockFilter;
 import com.stockmanager.models.StockItem;
+import com.stockmanager.models.StockMovement;
+import com.stockmanager.models.Supplier;
+import com.stockmanager.models.Warehouse;
 import com.stockmanager.ui.theme.DraculaTheme;
+import com.stockmanager.utils.AsOfDate;
+import com.stockmanager.utils.Money;
+import com.stockmanager.utils.PrefixIndex;
 import com.stockmanager.utils.UIUtils;
 
 /**
  * Panel for displaying and managing the list of stock items
  */
 public class StockListPanel extends JPanel {
+    // Pause after the last keystroke before the full database search runs
+    private static final int SEARCH_DEBOUNCE_MS = 250;
+    private static final int INSTANT_RESULT_LIMIT = 50;
+    private static final int FUZZY_RESULT_LIMIT = 50;
+    private static final int LOW_STOCK_THRESHOLD = 10;
+    
+    // Column order matches StockFilter.SortColumn
+    private static final String[] COLUMN_NAMES = {"ID", "Name", "Description", "Price", "Quantity", "Supplier", "Total Value"};
+    
     private StockController controller;
+    private ArchiveController archiveController;
+    private WarehouseController warehouseController;
+    private ReservationController reservationController;
     
     private JTable stockTable;
     private DefaultTableModel tableModel;
@@ -26,8 +59,37 @@ public class StockListPanel extends JPanel {
     
     private StockFormPanel formPanel;
     
-    public StockListPanel(StockController controller) {
+    // Filter controls and the criteria last applied from them
+    private JComboBox<Supplier> supplierFilterComboBox;
+    private JTextField minPriceField;
+    private JTextField maxPriceField;
+    private JTextField minQuantityField;
+    private JTextField maxQuantityField;
+    private JCheckBox lowStockCheckBox;
+    private JCheckBox archivedCheckBox;
+    private JCheckBox asOfCheckBox;
+    private JTextField asOfField;
+    private JLabel facetLabel;
+    private JTextField scanField;
+    private JComboBox<String> scanModeComboBox;
+    private JLabel scanStatusLabel;
+    private StockFilter activeFilter = new StockFilter();
+    
+    // Past time whose quantities the list shows, or null for current stock
+    private Instant asOf;
+    
+    // Search-as-you-type state
+    private PrefixIndex<StockItem> searchIndex = new PrefixIndex.Builder<StockItem>().build();
+    private Timer searchDebounceTimer;
+    private SwingWorker<SearchResult, Void> searchWorker;
+    private int searchGeneration;
+    
+    public StockListPanel(StockController controller, ArchiveController archiveController,
+                          WarehouseController warehouseController, ReservationController reservationController) {
         this.controller = controller;
+        this.archiveController = archiveController;
+        this.warehouseController = warehouseController;
+        this.reservationController = reservationController;
         
         // Initialize the UI
         initializeUI();
@@ -75,7 +137,7 @@ public class StockListPanel extends JPanel {
         JPanel tablePanel = createTablePanel();
         
         // Create form panel
-        formPanel = new StockFormPanel(controller);
+        formPanel = new StockFormPanel(controller, archiveController);
         formPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
         
         splitPane.setLeftComponent(tablePanel);
@@ -86,6 +148,26 @@ public class StockListPanel extends JPanel {
         // Set action listeners
         searchButton.addActionListener(this::searchStockItems);
         searchField.addActionListener(this::searchStockItems);
+        
+        // Search as you type: instant prefix matches, then the full query once typing pauses
+        searchDebounceTimer = new Timer(SEARCH_DEBOUNCE_MS, e -> runFullSearch());
+        searchDebounceTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                onSearchTextChanged();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                onSearchTextChanged();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                onSearchTextChanged();
+            }
+        });
     }
     
     private JPanel createTablePanel() {
@@ -99,18 +181,50 @@ public class StockListPanel extends JPanel {
         JButton addButton = UIUtils.createStyledButton("Add New");
         JButton editButton = UIUtils.createStyledButton("Edit");
         JButton deleteButton = UIUtils.createStyledButton("Delete");
+        JButton historyButton = UIUtils.createStyledButton("History");
+        JButton warehousesButton = UIUtils.createStyledButton("Warehouses");
+        JButton reservationsButton = UIUtils.createStyledButton("Reservations");
+        JButton restoreButton = UIUtils.createStyledButton("Restore");
         JButton refreshButton = UIUtils.createStyledButton("Refresh");
         
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(historyButton);
+        buttonPanel.add(reservationsButton);
+        // Warehouses and the archive are kept on the database, so storage in memory has neither
+        if (warehouseController != null) {
+            buttonPanel.add(warehousesButton);
+        }
+        if (archiveController != null) {
+            buttonPanel.add(restoreButton);
+        }
         buttonPanel.add(refreshButton);
         
-        panel.add(buttonPanel, BorderLayout.NORTH);
+        // Scanned item ids adjust quantities by one without opening the form
+        scanField = UIUtils.createStyledTextField();
+        scanField.setPreferredSize(new Dimension(120, 30));
+        scanModeComboBox = UIUtils.createStyledComboBox(new String[] {"Receive", "Issue"});
+        scanStatusLabel = UIUtils.createStyledLabel(" ");
+        
+        buttonPanel.add(UIUtils.createStyledLabel("Scan:"));
+        buttonPanel.add(scanField);
+        buttonPanel.add(scanModeComboBox);
+        buttonPanel.add(scanStatusLabel);
+        
+        facetLabel = UIUtils.createStyledLabel(" ");
+        facetLabel.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
+        
+        JPanel toolbarPanel = new JPanel(new GridLayout(3, 1));
+        toolbarPanel.setBackground(DraculaTheme.BACKGROUND);
+        toolbarPanel.add(buttonPanel);
+        toolbarPanel.add(createFilterPanel());
+        toolbarPanel.add(facetLabel);
+        
+        panel.add(toolbarPanel, BorderLayout.NORTH);
         
         // Create table
-        String[] columnNames = {"ID", "Name", "Description", "Price", "Quantity", "Supplier", "Total Value"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return false;
@@ -119,6 +233,17 @@ public class StockListPanel extends JPanel {
         
         stockTable = UIUtils.createStyledTable(tableModel);
         
+        // Rows arrive already ordered from the database; a header click re-runs the query
+        stockTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = stockTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    sortBy(stockTable.convertColumnIndexToModel(column));
+                }
+            }
+        });
+        
         JScrollPane scrollPane = new JScrollPane(stockTable);
         scrollPane.setBackground(DraculaTheme.BACKGROUND);
         scrollPane.getViewport().setBackground(DraculaTheme.BACKGROUND);
@@ -130,46 +255,361 @@ public class StockListPanel extends JPanel {
         addButton.addActionListener(e -> formPanel.clearForm());
         editButton.addActionListener(e -> editSelectedItem());
         deleteButton.addActionListener(e -> deleteSelectedItem());
+        historyButton.addActionListener(e -> showSelectedItemHistory());
+        warehousesButton.addActionListener(e -> showSelectedItemWarehouses());
+        reservationsButton.addActionListener(e -> showSelectedItemReservations());
+        restoreButton.addActionListener(e -> restoreSelectedItem());
         refreshButton.addActionListener(e -> loadStockItems());
+        scanField.addActionListener(e -> recordScan());
+        
+        return panel;
+    }
+    
+    private JPanel createFilterPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        panel.setBackground(DraculaTheme.BACKGROUND);
+        
+        // The first entry has no id and stands for "any supplier"
+        List<Supplier> suppliers = controller.getAllSuppliers();
+        suppliers.add(0, new Supplier(null, "All Suppliers", null, null, null, null));
+        supplierFilterComboBox = UIUtils.createStyledComboBox(suppliers.toArray(new Supplier[0]));
+        
+        minPriceField = createFilterField();
+        maxPriceField = createFilterField();
+        minQuantityField = createFilterField();
+        maxQuantityField = createFilterField();
+        
+        lowStockCheckBox = new JCheckBox("Low stock");
+        lowStockCheckBox.setBackground(DraculaTheme.BACKGROUND);
+        lowStockCheckBox.setForeground(DraculaTheme.FOREGROUND);
+        
+        JButton clearButton = UIUtils.createStyledButton("Clear");
+        
+        // Archived items are only searched when asked for
+        archivedCheckBox = new JCheckBox("Archived");
+        archivedCheckBox.setBackground(DraculaTheme.BACKGROUND);
+        archivedCheckBox.setForeground(DraculaTheme.FOREGROUND);
+        
+        asOfCheckBox = new JCheckBox("As of");
+        asOfCheckBox.setBackground(DraculaTheme.BACKGROUND);
+        asOfCheckBox.setForeground(DraculaTheme.FOREGROUND);
+        asOfField = UIUtils.createStyledTextField();
+        asOfField.setPreferredSize(new Dimension(120, 30));
+        asOfField.setToolTipText(AsOfDate.FORMAT_HINT);
+        
+        panel.add(UIUtils.createStyledLabel("Supplier:"));
+        panel.add(supplierFilterComboBox);
+        panel.add(UIUtils.createStyledLabel("Price:"));
+        panel.add(minPriceField);
+        panel.add(UIUtils.createStyledLabel("-"));
+        panel.add(maxPriceField);
+        panel.add(UIUtils.createStyledLabel("Qty:"));
+        panel.add(minQuantityField);
+        panel.add(UIUtils.createStyledLabel("-"));
+        panel.add(maxQuantityField);
+        panel.add(lowStockCheckBox);
+        panel.add(clearButton);
+        if (archiveController != null) {
+            panel.add(archivedCheckBox);
+        }
+        panel.add(asOfCheckBox);
+        panel.add(asOfField);
+        
+        // Apply on selection changes and on Enter in the range fields
+        supplierFilterComboBox.addActionListener(e -> applyFilter());
+        lowStockCheckBox.addActionListener(e -> applyFilter());
+        minPriceField.addActionListener(e -> applyFilter());
+        maxPriceField.addActionListener(e -> applyFilter());
+        minQuantityField.addActionListener(e -> applyFilter());
+        maxQuantityField.addActionListener(e -> applyFilter());
+        clearButton.addActionListener(e -> clearFilter());
+        archivedCheckBox.addActionListener(e -> loadStockItems());
+        asOfCheckBox.addActionListener(e -> applyAsOf());
+        asOfField.addActionListener(e -> {
+            asOfCheckBox.setSelected(true);
+            applyAsOf();
+        });
         
         return panel;
     }
     
+    private JTextField createFilterField() {
+        JTextField field = UIUtils.createStyledTextField();
+        field.setPreferredSize(new Dimension(60, 30));
+        return field;
+    }
+    
+    private void applyFilter() {
+        StockFilter filter = new StockFilter();
+        
+        Supplier supplier = (Supplier) supplierFilterComboBox.getSelectedItem();
+        if (supplier != null) {
+            filter.setSupplierId(supplier.getId());
+        }
+        
+        try {
+            filter.setMinPriceCents(parseOptionalMoney(minPriceField));
+            filter.setMaxPriceCents(parseOptionalMoney(maxPriceField));
+            filter.setMinQuantity(parseOptionalInteger(minQuantityField));
+            filter.setMaxQuantity(parseOptionalInteger(maxQuantityField));
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Please enter valid price and quantity ranges.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        if (lowStockCheckBox.isSelected()) {
+            filter.setLowStockThreshold(LOW_STOCK_THRESHOLD);
+        }
+        
+        filter.setSortColumn(activeFilter.getSortColumn());
+        filter.setSortDescending(activeFilter.isSortDescending());
+        activeFilter = filter;
+        runFullSearch();
+    }
+    
+    private void sortBy(int column) {
+        StockFilter.SortColumn sortColumn = StockFilter.SortColumn.values()[column];
+        
+        // Clicking the current sort column again flips the direction
+        StockFilter filter = new StockFilter(activeFilter);
+        filter.setSortDescending(sortColumn == activeFilter.getSortColumn() && !activeFilter.isSortDescending());
+        filter.setSortColumn(sortColumn);
+        activeFilter = filter;
+        
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            String marker = i != column ? "" : filter.isSortDescending() ? " \u25BC" : " \u25B2";
+            stockTable.getColumnModel().getColumn(stockTable.convertColumnIndexToView(i))
+                      .setHeaderValue(COLUMN_NAMES[i] + marker);
+        }
+        stockTable.getTableHeader().repaint();
+        
+        runFullSearch();
+    }
+    
+    private void applyAsOf() {
+        if (!asOfCheckBox.isSelected()) {
+            asOf = null;
+        } else {
+            try {
+                asOf = AsOfDate.parse(asOfField.getText());
+            } catch (DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(this, "Please enter a date as " + AsOfDate.FORMAT_HINT + ".", "Validation Error", JOptionPane.ERROR_MESSAGE);
+                asOfCheckBox.setSelected(false);
+                asOf = null;
+            }
+        }
+        loadStockItems();
+    }
+    
+    private void clearFilter() {
+        minPriceField.setText("");
+        maxPriceField.setText("");
+        minQuantityField.setText("");
+        maxQuantityField.setText("");
+        lowStockCheckBox.setSelected(false);
+        supplierFilterComboBox.setSelectedIndex(0);
+        applyFilter();
+    }
+    
+    private Long parseOptionalMoney(JTextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : Money.parse(text);
+    }
+    
+    private Integer parseOptionalInteger(JTextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : Integer.valueOf(text);
+    }
+    
+    /**
+     * Whether the table lists live items read onto the heap, the only rows the prefix index holds
+     */
+    private boolean showsLiveItems() {
+        return asOf == null && !archivedCheckBox.isSelected() && !controller.isOffHeapSnapshotEnabled();
+    }
+    
     private void loadStockItems() {
+        if (!showsLiveItems()) {
+            // Past stock, the archive and the off-heap snapshot are read in the background like a search
+            runFullSearch();
+            return;
+        }
+        
         List<StockItem> items = controller.getAllStockItems();
-        updateTableWithItems(items);
+        rebuildSearchIndex(items);
+        
+        if (activeFilter.isEmpty() && activeFilter.getSortColumn() == null &&
+                searchField.getText().trim().isEmpty()) {
+            cancelPendingSearch();
+            updateTableWithItems(items);
+            updateFacets(controller.getFacetCounts(activeFilter));
+        } else {
+            runFullSearch();
+        }
     }
     
     private void searchStockItems(ActionEvent e) {
+        // Enter or the Search button skip the debounce delay
+        runFullSearch();
+    }
+    
+    private void onSearchTextChanged() {
         String query = searchField.getText().trim();
-        if (query.isEmpty()) {
-            loadStockItems();
-        } else {
-            List<StockItem> items = controller.searchStockItems(query);
-            updateTableWithItems(items);
+        if (!query.isEmpty() && showsLiveItems()) {
+            // Show what the prefix index already knows while the full query is pending
+            StockFilter criteria = activeFilter;
+            updateTableWithItems(searchIndex.lookup(query, INSTANT_RESULT_LIMIT, criteria::matches));
         }
+        searchDebounceTimer.restart();
+    }
+    
+    private void runFullSearch() {
+        StockFilter criteria = activeFilter;
+        StockFilter filter = new StockFilter(criteria);
+        filter.setText(searchField.getText());
+        cancelPendingSearch();
+        
+        final int generation = searchGeneration;
+        final Instant pastTime = asOf;
+        final boolean archived = archivedCheckBox.isSelected();
+        final boolean live = showsLiveItems();
+        searchWorker = new SwingWorker<SearchResult, Void>() {
+            @Override
+            protected SearchResult doInBackground() {
+                if (pastTime != null) {
+                    // Past quantities are rebuilt for every item, then filtered here
+                    List<StockItem> items = controller.getStockItemsAsOf(pastTime);
+                    items.removeIf(item -> !filter.matches(item));
+                    sortItems(items, filter);
+                    return new SearchResult(items, FacetCounts.fromItems(items));
+                }
+                if (archived) {
+                    List<StockItem> items = archiveController.searchArchivedItems(filter.getText());
+                    items.removeIf(item -> !criteria.matches(item));
+                    sortItems(items, filter);
+                    return new SearchResult(items, FacetCounts.fromItems(items));
+                }
+                if (filter.isEmpty() && filter.getSortColumn() == null) {
+                    OffHeapInventorySnapshot snapshot = controller.getCurrentOffHeapSnapshot();
+                    if (snapshot != null) {
+                        return new SearchResult(snapshot, controller.getFacetCounts(filter));
+                    }
+                    return new SearchResult(controller.getAllStockItems(), controller.getFacetCounts(filter));
+                }
+                List<StockItem> items = controller.filterStockItems(filter);
+                if (items.isEmpty() && filter.getText() != null && !isCancelled()) {
+                    // No exact substring match, so the query is probably misspelled
+                    items = controller.fuzzySearchStockItems(filter.getText(), FUZZY_RESULT_LIMIT);
+                    items.removeIf(item -> !criteria.matches(item));
+                    sortItems(items, filter);
+                    return new SearchResult(items, FacetCounts.fromItems(items));
+                }
+                return new SearchResult(items, controller.getFacetCounts(filter));
+            }
+            
+            @Override
+            protected void done() {
+                // Drop results of a query superseded by newer input
+                if (isCancelled() || generation != searchGeneration) {
+                    return;
+                }
+                try {
+                    SearchResult result = get();
+                    if (result.snapshot != null) {
+                        showSnapshot(result.snapshot);
+                    } else {
+                        if (live && filter.isEmpty()) {
+                            rebuildSearchIndex(result.items);
+                        }
+                        updateTableWithItems(result.items);
+                    }
+                    updateFacets(result.facets);
+                } catch (InterruptedException | ExecutionException ex) {
+                    System.err.println("Error searching stock items: " + ex.getMessage());
+                }
+            }
+        };
+        searchWorker.execute();
+    }
+    
+    /**
+     * Sort items read outside the database query in the order the header shows
+     */
+    private static void sortItems(List<StockItem> items, StockFilter filter) {
+        Comparator<StockItem> order = filter.comparator();
+        if (order != null) {
+            items.sort(order);
+        }
+    }
+    
+    private void cancelPendingSearch() {
+        searchDebounceTimer.stop();
+        searchGeneration++;
+        if (searchWorker != null && !searchWorker.isDone()) {
+            searchWorker.cancel(true);
+        }
+    }
+    
+    private void updateFacets(FacetCounts facets) {
+        facetLabel.setText("<html><b>Suppliers:</b> " + formatCounts(facets.getSupplierCounts()) +
+                           " &nbsp; <b>Price:</b> " + formatCounts(facets.getPriceBandCounts()) +
+                           " &nbsp; <b>Stock:</b> " + formatCounts(facets.getStockLevelCounts()) + "</html>");
+    }
+    
+    private String formatCounts(Map<String, Integer> counts) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            String label = entry.getKey().replace("&", "&amp;").replace("<", "&lt;");
+            text.append(label).append(" (").append(entry.getValue()).append(")");
+        }
+        return text.length() == 0 ? "-" : text.toString();
+    }
+    
+    private void rebuildSearchIndex(List<StockItem> items) {
+        PrefixIndex.Builder<StockItem> builder = new PrefixIndex.Builder<>();
+        for (StockItem item : items) {
+            builder.add(item.getId().toLowerCase(Locale.ROOT), item);
+            builder.addText(item.getName(), item);
+        }
+        searchIndex = builder.build();
     }
     
     private void updateTableWithItems(List<StockItem> items) {
+        if (stockTable.getModel() != tableModel) {
+            stockTable.setModel(tableModel);
+        }
+        
         // Clear the table
         tableModel.setRowCount(0);
         
-        // Format for currency
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-        
         // Add items to the table
         for (StockItem item : items) {
             tableModel.addRow(new Object[] {
                 item.getId(),
                 item.getName(),
                 item.getDescription(),
-                currencyFormat.format(item.getPrice()),
+                Money.format(item.getPriceCents()),
                 item.getQuantity(),
                 item.getSupplier().getName(),
-                currencyFormat.format(item.getTotalValue())
+                Money.format(item.getTotalValueCents())
             });
         }
         
+        setColumnWidths();
+    }
+    
+    /**
+     * Show every item straight from an off-heap snapshot, without copying rows into the table model
+     */
+    private void showSnapshot(OffHeapInventorySnapshot snapshot) {
+        stockTable.setModel(new SnapshotTableModel(COLUMN_NAMES, snapshot));
+        setColumnWidths();
+    }
+    
+    private void setColumnWidths() {
         // Adjust column widths
         stockTable.getColumnModel().getColumn(0).setPreferredWidth(60);
         stockTable.getColumnModel().getColumn(1).setPreferredWidth(120);
@@ -183,7 +623,7 @@ public class StockListPanel extends JPanel {
     private void editSelectedItem() {
         int selectedRow = stockTable.getSelectedRow();
         if (selectedRow >= 0) {
-            String id = (String) tableModel.getValueAt(selectedRow, 0);
+            String id = (String) stockTable.getModel().getValueAt(selectedRow, 0);
             StockItem item = controller.getStockItemById(id);
             if (item != null) {
                 formPanel.setItem(item);
@@ -198,11 +638,197 @@ public class StockListPanel extends JPanel {
         }
     }
     
+    private void showSelectedItemHistory() {
+        int selectedRow = stockTable.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(
+                this,
+                "Please select an item to show its history.",
+                "No Selection",
+                JOptionPane.INFORMATION_MESSAGE
+            );
+            return;
+        }
+        
+        String id = (String) stockTable.getModel().getValueAt(selectedRow, 0);
+        String name = (String) stockTable.getModel().getValueAt(selectedRow, 1);
+        
+        DefaultTableModel historyModel = new DefaultTableModel(
+            new String[] {"Time", "Type", "Change", "Balance", "Reference"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        long balance = 0;
+        for (StockMovement movement : controller.getStockMovements(id)) {
+            balance += movement.getQuantityChange();
+            historyModel.addRow(new Object[] {
+                movement.getCreatedAt(),
+                movement.getType(),
+                movement.getQuantityChange(),
+                balance,
+                movement.getReference()
+            });
+        }
+        
+        JScrollPane scrollPane = new JScrollPane(UIUtils.createStyledTable(historyModel));
+        scrollPane.setPreferredSize(new Dimension(600, 300));
+        JOptionPane.showMessageDialog(this, scrollPane, "Stock History - " + name, JOptionPane.PLAIN_MESSAGE);
+    }
+    
+    private void showSelectedItemWarehouses() {
+        int selectedRow = stockTable.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(
+                this,
+                "Please select an item to show its stock by warehouse.",
+                "No Selection",
+                JOptionPane.INFORMATION_MESSAGE
+            );
+            return;
+        }
+        
+        String id = (String) stockTable.getModel().getValueAt(selectedRow, 0);
+        String name = (String) stockTable.getModel().getValueAt(selectedRow, 1);
+        showItemWarehouses(id, name);
+    }
+    
+    private void showItemWarehouses(String id, String name) {
+        List<Warehouse> warehouses = warehouseController.getWarehouses();
+        // Past stock is shown as it stood; it cannot be adjusted
+        final Instant pastTime = asOf;
+        Map<String, Long> quantities = pastTime != null
+            ? warehouseController.getQuantitiesByWarehouseAsOf(id, pastTime)
+            : warehouseController.getQuantitiesByWarehouse(id);
+        
+        DefaultTableModel warehouseModel = new DefaultTableModel(new String[] {"Warehouse", "Quantity"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        long total = 0;
+        for (Warehouse warehouse : warehouses) {
+            long quantity = quantities.getOrDefault(warehouse.getCode(), 0L);
+            total += quantity;
+            warehouseModel.addRow(new Object[] {warehouse.getName(), quantity});
+        }
+        warehouseModel.addRow(new Object[] {"Total", total});
+        
+        JScrollPane scrollPane = new JScrollPane(UIUtils.createStyledTable(warehouseModel));
+        scrollPane.setPreferredSize(new Dimension(400, 200));
+        
+        if (pastTime != null) {
+            JOptionPane.showMessageDialog(this, scrollPane, "Stock by Warehouse - " + name + " as of " + asOfField.getText().trim(),
+                JOptionPane.PLAIN_MESSAGE);
+            return;
+        }
+        
+        // Units to add to, or with a minus sign take from, one warehouse
+        JComboBox<Warehouse> warehouseComboBox = UIUtils.createStyledComboBox(warehouses.toArray(new Warehouse[0]));
+        JTextField changeField = UIUtils.createStyledTextField();
+        changeField.setPreferredSize(new Dimension(80, 30));
+        
+        JPanel adjustPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        adjustPanel.setBackground(DraculaTheme.BACKGROUND);
+        adjustPanel.add(UIUtils.createStyledLabel("Adjust in:"));
+        adjustPanel.add(warehouseComboBox);
+        adjustPanel.add(UIUtils.createStyledLabel("by:"));
+        adjustPanel.add(changeField);
+        
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBackground(DraculaTheme.BACKGROUND);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(adjustPanel, BorderLayout.SOUTH);
+        
+        Object[] options = {"Apply", "New Warehouse...", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, panel, "Stock by Warehouse - " + name,
+            JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[2]);
+        
+        if (choice == 1) {
+            addWarehouse();
+            showItemWarehouses(id, name);
+            return;
+        }
+        if (choice != 0 || changeField.getText().trim().isEmpty()) {
+            return;
+        }
+        
+        long change;
+        try {
+            change = Long.parseLong(changeField.getText().trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Please enter a whole number of units.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+            showItemWarehouses(id, name);
+            return;
+        }
+        
+        Warehouse warehouse = (Warehouse) warehouseComboBox.getSelectedItem();
+        if (!warehouseController.adjustQuantity(warehouse.getCode(), id, change)) {
+            JOptionPane.showMessageDialog(
+                this,
+                "The stock could not be adjusted; a warehouse cannot hold less than zero.",
+                "Error",
+                JOptionPane.ERROR_MESSAGE
+            );
+        } else if (WarehouseController.MAIN_WAREHOUSE.equals(warehouse.getCode())) {
+            loadStockItems();
+        }
+        showItemWarehouses(id, name);
+    }
+    
+    private void addWarehouse() {
+        JTextField codeField = UIUtils.createStyledTextField();
+        JTextField nameField = UIUtils.createStyledTextField();
+        
+        JPanel panel = new JPanel(new GridLayout(2, 2, 5, 5));
+        panel.setBackground(DraculaTheme.BACKGROUND);
+        panel.add(UIUtils.createStyledLabel("Code:"));
+        panel.add(codeField);
+        panel.add(UIUtils.createStyledLabel("Name:"));
+        panel.add(nameField);
+        
+        int result = JOptionPane.showConfirmDialog(this, panel, "New Warehouse",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+        
+        if (!warehouseController.addWarehouse(codeField.getText().trim(), nameField.getText())) {
+            JOptionPane.showMessageDialog(
+                this,
+                "Please enter a name and a code of up to 16 letters, digits, '-' or '_' that no other warehouse uses.",
+                "Validation Error",
+                JOptionPane.ERROR_MESSAGE
+            );
+        }
+    }
+    
+    private void restoreSelectedItem() {
+        int selectedRow = stockTable.getSelectedRow();
+        if (selectedRow < 0 || !archivedCheckBox.isSelected()) {
+            JOptionPane.showMessageDialog(
+                this,
+                "Please show archived items and select one to restore.",
+                "No Selection",
+                JOptionPane.INFORMATION_MESSAGE
+            );
+            return;
+        }
+        
+        String id = (String) stockTable.getModel().getValueAt(selectedRow, 0);
+        if (!archiveController.restoreItem(id)) {
+            JOptionPane.showMessageDialog(this, "The item could not be restored.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        loadStockItems();
+    }
+    
     private void deleteSelectedItem() {
         int selectedRow = stockTable.getSelectedRow();
         if (selectedRow >= 0) {
-            String id = (String) tableModel.getValueAt(selectedRow, 0);
-            String name = (String) tableModel.getValueAt(selectedRow, 1);
+            String id = (String) stockTable.getModel().getValueAt(selectedRow, 0);
+            String name = (String) stockTable.getModel().getValueAt(selectedRow, 1);
             
             DeleteDialog dialog = new DeleteDialog(
                 (JFrame) SwingUtilities.getWindowAncestor(this),
@@ -224,4 +850,132 @@ public class StockListPanel extends JPanel {
             );
         }
     }
+    
+    private void showSelectedItemReservations() {
+        int selectedRow = stockTable.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(
+                this,
+                "Please select an item to show its reservations.",
+                "No Selection",
+                JOptionPane.INFORMATION_MESSAGE
+            );
+            return;
+        }
+        
+        String id = (String) stockTable.getModel().getValueAt(selectedRow, 0);
+        String name = (String) stockTable.getModel().getValueAt(selectedRow, 1);
+        showItemReservations(id, name);
+    }
+    
+    private void showItemReservations(String id, String name) {
+        List<Reservation> reservations = reservationController.getReservations(id);
+        
+        DefaultTableModel reservationModel = new DefaultTableModel(new String[] {"Reservation", "Quantity"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (Reservation reservation : reservations) {
+            reservationModel.addRow(new Object[] {reservation.getId(), reservation.getQuantity()});
+        }
+        
+        JTable reservationTable = UIUtils.createStyledTable(reservationModel);
+        JScrollPane scrollPane = new JScrollPane(reservationTable);
+        scrollPane.setPreferredSize(new Dimension(400, 200));
+        
+        // Units to hold for a new reservation; Release and Commit act on the selected one
+        JTextField quantityField = UIUtils.createStyledTextField();
+        quantityField.setPreferredSize(new Dimension(80, 30));
+        
+        JPanel reservePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        reservePanel.setBackground(DraculaTheme.BACKGROUND);
+        reservePanel.add(UIUtils.createStyledLabel("Reserve:"));
+        reservePanel.add(quantityField);
+        reservePanel.add(UIUtils.createStyledLabel("units"));
+        
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBackground(DraculaTheme.BACKGROUND);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(reservePanel, BorderLayout.SOUTH);
+        
+        Object[] options = {"Reserve", "Release", "Commit", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, panel, "Reservations - " + name,
+            JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[3]);
+        
+        if (choice == 0) {
+            int quantity;
+            try {
+                quantity = Integer.parseInt(quantityField.getText().trim());
+            } catch (NumberFormatException ex) {
+                quantity = 0;
+            }
+            if (quantity <= 0) {
+                JOptionPane.showMessageDialog(this, "Please enter a positive whole number of units.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+            } else if (reservationController.reserve(id, quantity) == null) {
+                JOptionPane.showMessageDialog(this, "Not enough stock is left to reserve " + quantity + " units.", "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                loadStockItems();
+            }
+        } else if (choice == 1 || choice == 2) {
+            int selectedRow = reservationTable.getSelectedRow();
+            if (selectedRow < 0) {
+                JOptionPane.showMessageDialog(this, "Please select a reservation.", "No Selection", JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                String reservationId = reservations.get(selectedRow).getId();
+                if (choice == 1 ? reservationController.release(reservationId) : reservationController.commit(reservationId)) {
+                    loadStockItems();
+                }
+            }
+        } else {
+            return;
+        }
+        showItemReservations(id, name);
+    }
+    
+    private void recordScan() {
+        String id = scanField.getText().trim();
+        if (id.isEmpty()) {
+            return;
+        }
+        
+        StockItem item = controller.getStockItemById(id);
+        if (item == null) {
+            JOptionPane.showMessageDialog(this, "No item has the ID " + id + ".", "Validation Error", JOptionPane.ERROR_MESSAGE);
+            scanField.selectAll();
+            return;
+        }
+        
+        int delta = scanModeComboBox.getSelectedIndex() == 0 ? 1 : -1;
+        if (!controller.adjustQuantity(id, delta)) {
+            JOptionPane.showMessageDialog(this, "The scan could not be recorded; stock cannot go below zero.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        long pending = controller.getPendingQuantityChange(id);
+        scanStatusLabel.setText(item.getName() + ": " + (pending > 0 ? "+" : "") + pending + " pending");
+        scanField.setText("");
+    }
+    
+    /**
+     * Items, or the snapshot holding them, and facet counts produced by one background search
+     */
+    private static class SearchResult {
+        final List<StockItem> items;
+        final OffHeapInventorySnapshot snapshot;
+        final FacetCounts facets;
+        
+        SearchResult(List<StockItem> items, FacetCounts facets) {
+            this.items = items;
+            this.snapshot = null;
+            this.facets = facets;
+        }
+        
+        SearchResult(OffHeapInventorySnapshot snapshot, FacetCounts facets) {
+            this.items = null;
+            this.snapshot = snapshot;
+            this.facets = facets;
+        }
+    }
 }
\ No newline at end of file
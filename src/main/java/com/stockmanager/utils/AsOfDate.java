@@ -0,0 +1,34 @@
+// AsOfDate.java
+package com.stockmanager.utils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parsing of the dates entered to view stock as it stood in the past, in the local time zone
+ */
+public class AsOfDate {
+    // Shown next to the input to say what it accepts
+    public static final String FORMAT_HINT = "yyyy-mm-dd [hh:mm]";
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    /**
+     * Parse a date such as "2024-03-31", meaning the end of that day, or a
+     * date and time such as "2024-03-31 14:30"
+     * @throws DateTimeParseException if the text is in neither form
+     */
+    public static Instant parse(String text) {
+        String trimmed = text.trim();
+        ZoneId zone = ZoneId.systemDefault();
+        if (trimmed.length() > 10) {
+            return LocalDateTime.parse(trimmed, DATE_TIME).atZone(zone).toInstant();
+        }
+        // Stock recorded up to the last second of the day
+        return LocalDate.parse(trimmed).plusDays(1).atStartOfDay(zone).toInstant().minusSeconds(1);
+    }
+}
@@ -1,45 +1,271 @@
 // DatabaseHelper.java
 package com.stockmanager.utils;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Helper class for SQLite database operations
+ * Helper class for SQLite database operations.
+ * The database runs in WAL mode: every thread that reads gets a connection
+ * of its own, so reads run in parallel with each other and with the writer,
+ * while all writes go through inTransaction() to a single writer thread.
+ * Reads that must agree with each other run together in readSnapshot().
  */
 public class DatabaseHelper {
-    private static final String DB_URL = "jdbc:sqlite:stockmanager.db";
-    private static Connection connection;
+    private static final Path DB_FILE = Paths.get("stockmanager.db");
+    private static final String DB_URL = "jdbc:sqlite:" + DB_FILE;
+    
+    // How long a connection waits for a lock held by another process before SQLITE_BUSY
+    private static final int BUSY_TIMEOUT_MS = 2000;
+    
+    // Definition of the stock item table, formatted with the table name
+    private static final String STOCK_ITEMS_TABLE =
+        "CREATE TABLE IF NOT EXISTS %s (" +
+        "id TEXT PRIMARY KEY, " +
+        "name TEXT NOT NULL, " +
+        "description TEXT, " +
+        "price_cents INTEGER NOT NULL, " +
+        "quantity INTEGER NOT NULL, " +
+        "supplier_id TEXT, " +
+        "version INTEGER NOT NULL DEFAULT 0, " +
+        "last_modified TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+        "total_value_cents INTEGER GENERATED ALWAYS AS (price_cents * quantity) STORED, " +
+        "FOREIGN KEY (supplier_id) REFERENCES suppliers(id) " +
+        ")";
+    
+    // Shape of the ids UUID.randomUUID() used to generate, as a GLOB pattern
+    private static final String UUID_PATTERN = "????????-????-????-????-????????????";
+    
+    // Each reading thread's connection, opened on first use
+    private static final ThreadLocal<ReadConnection> readConnection = new ThreadLocal<>();
+    
+    // Every open read connection by owning thread, so dead threads' ones can be closed; guarded by the class
+    private static final Map<Thread, ReadConnection> readConnections = new HashMap<>();
+    
+    // Guarded by the class
+    private static WriteQueue writeQueue;
+    
+    // When inTransaction() was last called, so maintenance can wait for a quiet spell
+    private static volatile long lastWriteMillis = System.currentTimeMillis();
+    
+    /**
+     * Work run against a connection by inTransaction() or readSnapshot()
+     */
+    public interface TransactionWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
     
     /**
-     * Get database connection
+     * A read connection together with the statements prepared on it
+     */
+    private static class ReadConnection {
+        final Connection connection;
+        final Map<String, PreparedStatement> statementCache = new HashMap<>();
+        
+        ReadConnection(Connection connection) {
+            this.connection = connection;
+        }
+        
+        void close() throws SQLException {
+            for (PreparedStatement stmt : statementCache.values()) {
+                stmt.close();
+            }
+            statementCache.clear();
+            connection.close();
+        }
+    }
+    
+    /**
+     * Get the calling thread's database connection, for reads. Callers must
+     * not close it; it stays open while the thread lives and is closed by
+     * closeConnection(). Inside inTransaction() work this is the writer
+     * connection, so reads there see the transaction's own writes.
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(DB_URL);
+        WriteQueue writer = currentWriteQueue();
+        if (writer != null && writer.isWriterThread()) {
+            return writer.getConnection();
+        }
+        return readConnection().connection;
+    }
+    
+    /**
+     * Get a prepared statement for the given SQL on the calling thread's read
+     * connection that is kept open and reused. Only the calling thread ever
+     * sees it, so it needs no locking; callers must not close it, and must
+     * finish reading its results before binding it again.
+     */
+    public static PreparedStatement prepareCached(String sql) throws SQLException {
+        ReadConnection read = readConnection();
+        PreparedStatement stmt = read.statementCache.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = read.connection.prepareStatement(sql);
+            read.statementCache.put(sql, stmt);
+        }
+        return stmt;
+    }
+    
+    /**
+     * Run work as one transaction on the writer thread and wait for it to
+     * commit: committed if it returns normally, rolled back if it throws.
+     * Transactions submitted while another runs are committed together in one
+     * group, and retried as a group if another process holds the database.
+     * Work must not have effects outside the database that a retry would repeat.
+     */
+    public static <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        lastWriteMillis = System.currentTimeMillis();
+        return writeQueue().submit(work);
+    }
+    
+    /**
+     * Run work as one transaction on the writer thread, like inTransaction(),
+     * without counting it as a write when maintenance waits for a quiet spell
+     */
+    static <T> T inMaintenanceTransaction(TransactionWork<T> work) throws SQLException {
+        return writeQueue().submit(work);
+    }
+    
+    /**
+     * Run work on the writer thread with no transaction open, for statements
+     * SQLite refuses inside one, such as VACUUM or a change of journal mode.
+     * Other writes wait until it is done.
+     */
+    static <T> T outsideTransaction(TransactionWork<T> work) throws SQLException {
+        return writeQueue().submitOutsideTransaction(work);
+    }
+    
+    static long getLastWriteMillis() {
+        return lastWriteMillis;
+    }
+    
+    /**
+     * The database file, for copying it as a whole
+     */
+    public static Path getDatabaseFile() {
+        return DB_FILE;
+    }
+    
+    /**
+     * Run a group of reads on the calling thread's connection inside one
+     * deferred read transaction, so every query in it sees the database as of
+     * the first one, whatever commits meanwhile. In WAL mode this takes no
+     * lock the writer waits on. Reads made through getConnection() or
+     * prepareCached() during work join the snapshot, as do nested calls; writes
+     * made meanwhile, including through inTransaction() by work itself, are not
+     * seen. Called inside inTransaction() work, it just runs work there.
+     */
+    public static <T> T readSnapshot(TransactionWork<T> work) throws SQLException {
+        Connection conn = getConnection();
+        if (!conn.getAutoCommit()) {
+            return work.run(conn);
+        }
+        
+        conn.setAutoCommit(false);
+        try {
+            return work.run(conn);
+        } finally {
+            // Ends the read transaction; nothing was written to commit
+            conn.setAutoCommit(true);
         }
-        return connection;
     }
     
     /**
-     * Close the database connection
+     * Close the database connections, after committing queued writes
      */
-    public static void closeConnection() {
+    public static synchronized void closeConnection() {
+        if (writeQueue != null) {
+            writeQueue.close();
+            writeQueue = null;
+        }
+        
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+            for (ReadConnection read : readConnections.values()) {
+                read.close();
             }
+            readConnections.clear();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
     
+    private static synchronized WriteQueue writeQueue() throws SQLException {
+        if (writeQueue == null || writeQueue.isClosed()) {
+            writeQueue = new WriteQueue(openConnection(DB_URL), "db-writer");
+        }
+        return writeQueue;
+    }
+    
+    private static synchronized WriteQueue currentWriteQueue() {
+        return writeQueue;
+    }
+    
+    private static ReadConnection readConnection() throws SQLException {
+        ReadConnection read = readConnection.get();
+        if (read == null || read.connection.isClosed()) {
+            read = new ReadConnection(openConnection(DB_URL));
+            readConnection.set(read);
+            registerReadConnection(read);
+        }
+        return read;
+    }
+    
+    /**
+     * Track a new read connection, closing those of threads that have ended
+     */
+    private static synchronized void registerReadConnection(ReadConnection read) throws SQLException {
+        Iterator<Map.Entry<Thread, ReadConnection>> entries = readConnections.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Thread, ReadConnection> entry = entries.next();
+            if (!entry.getKey().isAlive()) {
+                entry.getValue().close();
+                entries.remove();
+            }
+        }
+        readConnections.put(Thread.currentThread(), read);
+    }
+    
+    static Connection openConnection(String url) throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        }
+        return conn;
+    }
+    
     /**
      * Initialize database with required tables
      */
     public static void initializeDatabase() {
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-            
+        try {
+            outsideTransaction(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    // Lets a new database give freed pages back in steps; an existing one is converted by maintenance
+                    stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                    
+                    // Lets readers run while a write is in progress; the setting persists in the file
+                    stmt.execute("PRAGMA journal_mode = WAL");
+                }
+                return null;
+            });
+            inTransaction(DatabaseHelper::createSchema);
+        } catch (SQLException e) {
+            System.err.println("Database initialization error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Create the tables and indexes, bring an older database up to date and
+     * add the default admin user and sample data, all in one transaction
+     */
+    private static Void createSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
             // Create User table
             stmt.execute(
                 "CREATE TABLE IF NOT EXISTS users (" +
@@ -61,61 +287,276 @@ public class DatabaseHelper {
                 "contactInfo TEXT, " +
                 "address TEXT, " +
                 "email TEXT, " +
-                "phone TEXT " +
+                "phone TEXT, " +
+                "version INTEGER NOT NULL DEFAULT 0 " +
+                ")"
+            );
+            
+            // Create StockItem table; money is stored as whole cents
+            stmt.execute(String.format(STOCK_ITEMS_TABLE, "stock_items"));
+            
+            // Older databases store prices as REAL dollars
+            if (!hasColumn(conn, "stock_items", "price_cents")) {
+                migratePricesToCents(conn);
+            }
+            
+            // Row versions for optimistic concurrency; older databases lack them
+            addColumnIfMissing(conn, "stock_items", "version", "INTEGER NOT NULL DEFAULT 0");
+            addColumnIfMissing(conn, "suppliers", "version", "INTEGER NOT NULL DEFAULT 0");
+            
+            // Time of an item's last change, for archiving dormant ones; older rows count from now
+            if (!hasColumn(conn, "stock_items", "last_modified")) {
+                addColumnIfMissing(conn, "stock_items", "last_modified", "TIMESTAMP");
+                stmt.executeUpdate("UPDATE stock_items SET last_modified = CURRENT_TIMESTAMP");
+            }
+            
+            // Dormant items moved out of stock_items, so its scans and indexes only cover live ones
+            stmt.execute(String.format(STOCK_ITEMS_TABLE, "archived_stock_items"));
+            addColumnIfMissing(conn, "archived_stock_items", "archived_at", "TIMESTAMP");
+            
+            // Rows created before ids were time-ordered carry random UUIDs
+            migrateRandomIds(conn);
+            
+            // Sequence number of the last quantity journal entry applied to stock_items
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS quantity_journal_state (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                "last_applied_seq INTEGER NOT NULL " +
                 ")"
             );
+            stmt.execute("INSERT OR IGNORE INTO quantity_journal_state (id, last_applied_seq) VALUES (1, 0)");
             
-            // Create StockItem table
+            // Sequence number of the last write-behind journal record applied
             stmt.execute(
-                "CREATE TABLE IF NOT EXISTS stock_items (" +
+                "CREATE TABLE IF NOT EXISTS write_behind_state (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                "last_applied_seq INTEGER NOT NULL " +
+                ")"
+            );
+            stmt.execute("INSERT OR IGNORE INTO write_behind_state (id, last_applied_seq) VALUES (1, 0)");
+            
+            // Units held for orders; they are already taken out of stock_items.quantity
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS reservations (" +
                 "id TEXT PRIMARY KEY, " +
-                "name TEXT NOT NULL, " +
-                "description TEXT, " +
-                "price REAL NOT NULL, " +
+                "item_id TEXT NOT NULL, " +
+                "quantity INTEGER NOT NULL CHECK (quantity > 0), " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "FOREIGN KEY (item_id) REFERENCES stock_items(id) " +
+                ")"
+            );
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_reservations_item ON reservations(item_id)");
+            
+            // Every change to an item's quantity, in order; stock_items.quantity is their running total.
+            // Movements outlive their item, so there is no foreign key
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS stock_movements (" +
+                "seq INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "item_id TEXT NOT NULL, " +
+                "type TEXT NOT NULL CHECK (type IN ('RECEIPT', 'SALE', 'ADJUSTMENT', 'TRANSFER')), " +
+                "quantity_change INTEGER NOT NULL, " +
+                "reference TEXT, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP " +
+                ")"
+            );
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_stock_movements_item ON stock_movements(item_id, seq)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_stock_movements_created_at ON stock_movements(created_at, seq)");
+            
+            // Each item's quantity as of the last movement snapshot, and the movement it was taken at
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS stock_snapshot (" +
+                "item_id TEXT PRIMARY KEY, " +
+                "quantity INTEGER NOT NULL " +
+                ")"
+            );
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS stock_snapshot_state (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                "last_seq INTEGER NOT NULL, " +
+                "taken_at TIMESTAMP " +
+                ")"
+            );
+            stmt.execute("INSERT OR IGNORE INTO stock_snapshot_state (id, last_seq) VALUES (1, 0)");
+            
+            // Copies of the snapshot kept from time to time, for quantities as of past dates
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS stock_checkpoints (" +
+                "seq INTEGER PRIMARY KEY, " +
+                "taken_at TIMESTAMP NOT NULL " +
+                ")"
+            );
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS stock_checkpoint_items (" +
+                "checkpoint_seq INTEGER NOT NULL, " +
+                "item_id TEXT NOT NULL, " +
                 "quantity INTEGER NOT NULL, " +
-                "supplier_id TEXT, " +
-                "FOREIGN KEY (supplier_id) REFERENCES suppliers(id) " +
+                "PRIMARY KEY (checkpoint_seq, item_id) " +
+                ") WITHOUT ROWID"
+            );
+            
+            // Warehouses other than the main one, each keeping its stock levels in a file of its own
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS warehouses (" +
+                "code TEXT PRIMARY KEY, " +
+                "name TEXT NOT NULL, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
                 ")"
             );
             
-            // Insert default admin user if not exists
-            PreparedStatement checkAdmin = conn.prepareStatement(
-                "SELECT COUNT(*) FROM users WHERE username = ?"
+            // The main warehouse's stock in the shape of a warehouse file's stock_levels table
+            stmt.execute(
+                "CREATE VIEW IF NOT EXISTS stock_levels AS " +
+                "SELECT id AS item_id, quantity, last_modified FROM stock_items"
             );
-            checkAdmin.setString(1, "admin");
-            ResultSet rs = checkAdmin.executeQuery();
-            if (rs.next() && rs.getInt(1) == 0) {
-                PreparedStatement insertAdmin = conn.prepareStatement(
-                    "INSERT INTO users (id, username, password, fullName, role) VALUES (?, ?, ?, ?, ?)"
-                );
-                insertAdmin.setString(1, "U001");
-                insertAdmin.setString(2, "admin");
-                insertAdmin.setString(3, "admin123"); // In a real app, this should be hashed
-                insertAdmin.setString(4, "System Administrator");
-                insertAdmin.setString(5, "admin");
-                insertAdmin.executeUpdate();
+            
+            // Indexes backing the stock list filters and sort orders
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_stock_items_supplier ON stock_items(supplier_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_stock_items_price_cents ON stock_items(price_cents)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_stock_items_quantity ON stock_items(quantity)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_stock_items_name ON stock_items(name)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_stock_items_total_value_cents ON stock_items(total_value_cents)");
+            
+            // Insert default admin user if not exists
+            boolean hasAdmin;
+            try (PreparedStatement checkAdmin = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM users WHERE username = ?")) {
+                checkAdmin.setString(1, "admin");
+                try (ResultSet rs = checkAdmin.executeQuery()) {
+                    hasAdmin = rs.next() && rs.getInt(1) > 0;
+                }
+            }
+            if (!hasAdmin) {
+                try (PreparedStatement insertAdmin = conn.prepareStatement(
+                         "INSERT INTO users (id, username, password, fullName, role) VALUES (?, ?, ?, ?, ?)")) {
+                    insertAdmin.setString(1, "U001");
+                    insertAdmin.setString(2, "admin");
+                    insertAdmin.setString(3, "admin123"); // In a real app, this should be hashed
+                    insertAdmin.setString(4, "System Administrator");
+                    insertAdmin.setString(5, "admin");
+                    insertAdmin.executeUpdate();
+                }
             }
             
             // Insert sample data
             insertSampleData(conn);
+        }
+        return null;
+    }
+    
+    /**
+     * Add a column to an existing table unless it is already there
+     */
+    private static void addColumnIfMissing(Connection conn, String table, String column, String definition)
+            throws SQLException {
+        if (!hasColumn(conn, table, column)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+            }
+        }
+    }
+    
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        // table_xinfo, unlike table_info, also lists generated columns
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_xinfo(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Rebuild stock_items with prices in cents. SQLite cannot change a column's
+     * type or the expression of a generated column in place, so the rows are
+     * copied into a new table that then replaces the old one.
+     */
+    private static void migratePricesToCents(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(String.format(STOCK_ITEMS_TABLE, "stock_items_cents"));
+            stmt.execute(
+                "INSERT INTO stock_items_cents (id, name, description, price_cents, quantity, supplier_id) " +
+                "SELECT id, name, description, CAST(ROUND(price * 100) AS INTEGER), quantity, supplier_id " +
+                "FROM stock_items"
+            );
+            // Dropping the table also drops its indexes on the old columns
+            stmt.execute("DROP TABLE stock_items");
+            stmt.execute("ALTER TABLE stock_items_cents RENAME TO stock_items");
+        }
+    }
+    
+    /**
+     * Replace random UUID primary keys with time-ordered ids from IdGenerator,
+     * together with the supplier references to them.
+     * Rows are renumbered in insertion order, so the new ids keep that order.
+     */
+    private static void migrateRandomIds(Connection conn) throws SQLException {
+        List<String> supplierIds = findRandomIds(conn, "suppliers");
+        List<String> itemIds = findRandomIds(conn, "stock_items");
+        List<String> userIds = findRandomIds(conn, "users");
+        if (supplierIds.isEmpty() && itemIds.isEmpty() && userIds.isEmpty()) {
+            return;
+        }
+        
+        renumberIds(conn, supplierIds, itemIds, userIds);
+    }
+    
+    private static void renumberIds(Connection conn, List<String> supplierIds, List<String> itemIds,
+                                    List<String> userIds) throws SQLException {
+        try (PreparedStatement updateSupplier = conn.prepareStatement("UPDATE suppliers SET id = ? WHERE id = ?");
+             PreparedStatement updateReferences = conn.prepareStatement(
+                 "UPDATE stock_items SET supplier_id = ? WHERE supplier_id = ?");
+             PreparedStatement updateItem = conn.prepareStatement("UPDATE stock_items SET id = ? WHERE id = ?");
+             PreparedStatement updateUser = conn.prepareStatement("UPDATE users SET id = ? WHERE id = ?")) {
             
-        } catch (SQLException e) {
-            System.err.println("Database initialization error: " + e.getMessage());
-            e.printStackTrace();
+            for (String oldId : supplierIds) {
+                String newId = IdGenerator.newId();
+                updateSupplier.setString(1, newId);
+                updateSupplier.setString(2, oldId);
+                updateSupplier.executeUpdate();
+                updateReferences.setString(1, newId);
+                updateReferences.setString(2, oldId);
+                updateReferences.executeUpdate();
+            }
+            renumber(updateItem, itemIds);
+            renumber(updateUser, userIds);
         }
     }
     
+    private static List<String> findRandomIds(Connection conn, String table) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT id FROM " + table + " WHERE id GLOB '" + UUID_PATTERN + "' ORDER BY rowid")) {
+            while (rs.next()) {
+                ids.add(rs.getString(1));
+            }
+        }
+        return ids;
+    }
+    
+    private static void renumber(PreparedStatement update, List<String> oldIds) throws SQLException {
+        for (String oldId : oldIds) {
+            update.setString(1, IdGenerator.newId());
+            update.setString(2, oldId);
+            update.addBatch();
+        }
+        update.executeBatch();
+    }
+    
     /**
      * Insert sample data for demonstration purposes
      */
     private static void insertSampleData(Connection conn) throws SQLException {
         // Check if we already have suppliers
-        PreparedStatement checkSuppliers = conn.prepareStatement(
-            "SELECT COUNT(*) FROM suppliers"
-        );
-        ResultSet rs = checkSuppliers.executeQuery();
-        if (rs.next() && rs.getInt(1) > 0) {
-            return; // We already have data, no need to insert samples
+        try (PreparedStatement checkSuppliers = conn.prepareStatement(
+                 "SELECT COUNT(*) FROM suppliers");
+             ResultSet rs = checkSuppliers.executeQuery()) {
+            if (rs.next() && rs.getInt(1) > 0) {
+                return; // We already have data, no need to insert samples
+            }
         }
         
         // Insert sample suppliers
@@ -134,18 +575,17 @@ public class DatabaseHelper {
         };
         String[] phones = {"555-1234", "555-5678", "555-9012"};
         
-        PreparedStatement insertSupplier = conn.prepareStatement(
-            "INSERT INTO suppliers (id, name, contactInfo, address, email, phone) VALUES (?, ?, ?, ?, ?, ?)"
-        );
-        
-        for (int i = 0; i < supplierIds.length; i++) {
-            insertSupplier.setString(1, supplierIds[i]);
-            insertSupplier.setString(2, supplierNames[i]);
-            insertSupplier.setString(3, contactInfos[i]);
-            insertSupplier.setString(4, addresses[i]);
-            insertSupplier.setString(5, emails[i]);
-            insertSupplier.setString(6, phones[i]);
-            insertSupplier.executeUpdate();
+        try (PreparedStatement insertSupplier = conn.prepareStatement(
+                 "INSERT INTO suppliers (id, name, contactInfo, address, email, phone) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < supplierIds.length; i++) {
+                insertSupplier.setString(1, supplierIds[i]);
+                insertSupplier.setString(2, supplierNames[i]);
+                insertSupplier.setString(3, contactInfos[i]);
+                insertSupplier.setString(4, addresses[i]);
+                insertSupplier.setString(5, emails[i]);
+                insertSupplier.setString(6, phones[i]);
+                insertSupplier.executeUpdate();
+            }
         }
         
         // Insert sample stock items
@@ -158,22 +598,21 @@ public class DatabaseHelper {
             "A4 printing paper, 500 sheets",
             "Standard office desk"
         };
-        double[] prices = {1200.00, 250.00, 350.00, 5.00, 300.00};
+        long[] pricesCents = {120000, 25000, 35000, 500, 30000};
         int[] quantities = {15, 30, 10, 200, 20};
         String[] itemSupplierIds = {"S001", "S003", "S001", "S002", "S003"};
         
-        PreparedStatement insertItem = conn.prepareStatement(
-            "INSERT INTO stock_items (id, name, description, price, quantity, supplier_id) VALUES (?, ?, ?, ?, ?, ?)"
-        );
-        
-        for (int i = 0; i < itemIds.length; i++) {
-            insertItem.setString(1, itemIds[i]);
-            insertItem.setString(2, itemNames[i]);
-            insertItem.setString(3, descriptions[i]);
-            insertItem.setDouble(4, prices[i]);
-            insertItem.setInt(5, quantities[i]);
-            insertItem.setString(6, itemSupplierIds[i]);
-            insertItem.executeUpdate();
+        try (PreparedStatement insertItem = conn.prepareStatement(
+                 "INSERT INTO stock_items (id, name, description, price_cents, quantity, supplier_id) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < itemIds.length; i++) {
+                insertItem.setString(1, itemIds[i]);
+                insertItem.setString(2, itemNames[i]);
+                insertItem.setString(3, descriptions[i]);
+                insertItem.setLong(4, pricesCents[i]);
+                insertItem.setInt(5, quantities[i]);
+                insertItem.setString(6, itemSupplierIds[i]);
+                insertItem.executeUpdate();
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,324 @@
+// DatabaseMaintenance.java
+package com.stockmanager.utils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the database file healthy in the background: refreshes the query
+ * planner's statistics, checkpoints the WAL into the main file and gives
+ * pages freed by deletes back to the file system. Tasks run one at a time on
+ * a low priority thread, only once no write has been submitted for a while,
+ * and each records how long it took. They read through the thread's own
+ * connection, and anything that writes to the file goes to the writer thread.
+ * Rebuilding the whole file, which holds up every write while it runs, is
+ * only done when asked for.
+ */
+public class DatabaseMaintenance {
+    // How long without a write before the app counts as idle
+    private static final long IDLE_MS = 2 * 60 * 1000;
+
+    private static final long CHECK_INTERVAL_MS = 60 * 1000;
+
+    private static final long MINUTE_MS = 60 * 1000;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    // Pages released per incremental_vacuum step, so a write waits at most one step
+    private static final int VACUUM_STEP_PAGES = 256;
+
+    // Free pages per vacuum run; the rest are left for the next idle spell
+    private static final int MAX_VACUUM_PAGES = 16 * VACUUM_STEP_PAGES;
+
+    // Rows ANALYZE samples per index, keeping it quick on large tables
+    private static final int ANALYSIS_LIMIT = 1000;
+
+    // PRAGMA auto_vacuum value for INCREMENTAL
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    /**
+     * One maintenance statement or group of statements
+     */
+    private interface Work {
+        void run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Timing of one maintenance task since startup
+     */
+    public static class TaskMetrics {
+        private final String name;
+        private final long intervalMs;
+        private long runs;
+        private long failures;
+        private long lastRunMillis;
+        private long lastDurationNanos;
+        private long totalDurationNanos;
+
+        TaskMetrics(String name, long intervalMs) {
+            this.name = name;
+            this.intervalMs = intervalMs;
+        }
+
+        TaskMetrics(TaskMetrics other) {
+            this(other.name, other.intervalMs);
+            runs = other.runs;
+            failures = other.failures;
+            lastRunMillis = other.lastRunMillis;
+            lastDurationNanos = other.lastDurationNanos;
+            totalDurationNanos = other.totalDurationNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRuns() {
+            return runs;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * When the task last ran, in epoch milliseconds; 0 if it has not run yet
+         */
+        public long getLastRunMillis() {
+            return lastRunMillis;
+        }
+
+        public long getLastDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(lastDurationNanos);
+        }
+
+        public long getTotalDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(totalDurationNanos);
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + runs + " runs, " + failures + " failed, last " +
+                   getLastDurationMillis() + " ms, total " + getTotalDurationMillis() + " ms";
+        }
+    }
+
+    private static class Task {
+        final TaskMetrics metrics;
+        final Work work;
+
+        Task(String name, long intervalMs, Work work) {
+            this.metrics = new TaskMetrics(name, intervalMs);
+            this.work = work;
+        }
+
+        boolean isDue(long now) {
+            return metrics.lastRunMillis == 0 || now - metrics.lastRunMillis >= metrics.intervalMs;
+        }
+    }
+
+    // Run in this order, so statistics and vacuuming see a checkpointed file
+    private final List<Task> tasks = new ArrayList<>();
+    // Never scheduled; run by rebuildNow() alone
+    private final Task rebuild = new Task("VACUUM (rebuild)", 0, conn -> DatabaseHelper.outsideTransaction(writer -> {
+        // Takes effect in the rebuilt file if it was created without auto_vacuum
+        execute(writer, "PRAGMA auto_vacuum = INCREMENTAL");
+        execute(writer, "VACUUM");
+        return null;
+    }));
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Start checking once a minute whether the app is idle and maintenance is due
+     */
+    public DatabaseMaintenance() {
+        tasks.add(new Task("WAL checkpoint (passive)", 5 * MINUTE_MS,
+                           conn -> execute(conn, "PRAGMA wal_checkpoint(PASSIVE)")));
+        tasks.add(new Task("WAL checkpoint (truncate)", HOUR_MS,
+                           conn -> execute(conn, "PRAGMA wal_checkpoint(TRUNCATE)")));
+        // Both write the statistics tables
+        tasks.add(new Task("PRAGMA optimize", HOUR_MS,
+                           inWriter(conn -> execute(conn, "PRAGMA optimize"))));
+        tasks.add(new Task("ANALYZE", DAY_MS, inWriter(conn -> {
+            execute(conn, "PRAGMA analysis_limit = " + ANALYSIS_LIMIT);
+            execute(conn, "ANALYZE");
+        })));
+        tasks.add(new Task("Incremental vacuum", HOUR_MS, DatabaseMaintenance::vacuum));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-maintenance");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runIfIdle, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS,
+                                         TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run every scheduled task now on the maintenance thread, idle or not
+     * @return completes when the tasks have run
+     */
+    public Future<?> runNow() {
+        return scheduler.submit(() -> {
+            for (Task task : tasks) {
+                run(task);
+            }
+        });
+    }
+
+    /**
+     * Rebuild the database file on the maintenance thread, giving every free
+     * page back and turning on incremental vacuuming if the file predates it.
+     * All writes wait until it is done, which on a large file takes a while.
+     * @return completes with whether the rebuild succeeded
+     */
+    public Future<Boolean> rebuildNow() {
+        return scheduler.submit(() -> run(rebuild));
+    }
+
+    /**
+     * Copies of the timings of every task, in the order they run, and of the rebuild last
+     */
+    public List<TaskMetrics> getMetrics() {
+        List<TaskMetrics> metrics = new ArrayList<>();
+        synchronized (tasks) {
+            for (Task task : tasks) {
+                metrics.add(new TaskMetrics(task.metrics));
+            }
+            metrics.add(new TaskMetrics(rebuild.metrics));
+        }
+        return metrics;
+    }
+
+    /**
+     * Stop scheduling maintenance, waiting briefly for a running task
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runIfIdle() {
+        for (Task task : tasks) {
+            // A write arriving part way through defers the remaining tasks
+            if (!isIdle()) {
+                return;
+            }
+            if (task.isDue(System.currentTimeMillis())) {
+                run(task);
+            }
+        }
+    }
+
+    private static boolean isIdle() {
+        return System.currentTimeMillis() - DatabaseHelper.getLastWriteMillis() >= IDLE_MS;
+    }
+
+    /**
+     * Run a task and record its timing
+     * @return whether it succeeded
+     */
+    private boolean run(Task task) {
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            task.work.run(DatabaseHelper.getConnection());
+        } catch (SQLException e) {
+            failed = true;
+            System.err.println("Error running " + task.metrics.name + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        synchronized (tasks) {
+            TaskMetrics metrics = task.metrics;
+            metrics.runs++;
+            if (failed) {
+                metrics.failures++;
+            }
+            metrics.lastRunMillis = System.currentTimeMillis();
+            metrics.lastDurationNanos = elapsed;
+            metrics.totalDurationNanos += elapsed;
+        }
+        return !failed;
+    }
+
+    /**
+     * Release free pages in small steps until a write comes in. A database
+     * created before auto_vacuum was enabled keeps its free pages until it is
+     * rebuilt with rebuildNow().
+     */
+    private static void vacuum(Connection conn) throws SQLException {
+        long started = System.currentTimeMillis();
+        long freePages = queryLong(conn, "PRAGMA freelist_count");
+        if (freePages == 0 || queryLong(conn, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            return;
+        }
+
+        for (int released = 0; released < MAX_VACUUM_PAGES && freePages > 0
+                 && DatabaseHelper.getLastWriteMillis() < started;
+             released += VACUUM_STEP_PAGES) {
+            vacuumStep((int) Math.min(freePages, VACUUM_STEP_PAGES));
+            freePages = queryLong(conn, "PRAGMA freelist_count");
+        }
+    }
+
+    /**
+     * Release pages in one transaction on the writer. The driver steps a
+     * statement only once and incremental_vacuum frees one page per step, so
+     * it is run once per page, each statement closed before the commit.
+     */
+    private static void vacuumStep(int pages) throws SQLException {
+        DatabaseHelper.inMaintenanceTransaction(conn -> {
+            for (int i = 0; i < pages; i++) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA incremental_vacuum");
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Run work as a transaction on the writer thread instead of the maintenance connection
+     */
+    private static Work inWriter(Work work) {
+        return conn -> DatabaseHelper.inMaintenanceTransaction(writer -> {
+            work.run(writer);
+            return null;
+        });
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Pragmas such as wal_checkpoint return a row, which has to be stepped through
+            if (stmt.execute(sql)) {
+                try (ResultSet rs = stmt.getResultSet()) {
+                    while (rs.next()) {
+                        // Drain the result
+                    }
+                }
+            }
+        }
+    }
+
+    private static long queryLong(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+// IdGenerator.java
+package com.stockmanager.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates ULID-style primary keys: 26 Crockford base32 characters encoding a
+ * 48-bit millisecond timestamp followed by 80 random bits. Ids sort by creation
+ * time, so new rows land at the end of the primary key index instead of at random
+ * pages, and they are 10 characters shorter than UUID strings.
+ * Ids made in the same millisecond increment the previous id's random part, so
+ * ids from this generator are strictly increasing even across threads.
+ */
+public class IdGenerator {
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ID_LENGTH = 26;
+    private static final int TIME_LENGTH = 10;
+    private static final long RANDOM_HIGH_LIMIT = 1 << 16;
+
+    // State of the last id handed out; the random part is 16 high and 64 low bits
+    private static long lastMillis;
+    private static long randomHigh;
+    private static long randomLow;
+
+    public static String newId() {
+        long millis;
+        long high;
+        long low;
+        synchronized (IdGenerator.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                lastMillis = now;
+                randomHigh = random.nextInt((int) RANDOM_HIGH_LIMIT);
+                randomLow = random.nextLong();
+            } else if (++randomLow == 0 && ++randomHigh == RANDOM_HIGH_LIMIT) {
+                // Same millisecond or a clock step back; on the (unlikely) overflow, borrow the next millisecond
+                lastMillis++;
+                randomHigh = 0;
+            }
+            millis = lastMillis;
+            high = randomHigh;
+            low = randomLow;
+        }
+        return encode(millis, high, low);
+    }
+
+    private static String encode(long millis, long high, long low) {
+        char[] chars = new char[ID_LENGTH];
+        for (int i = TIME_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (millis & 31)];
+            millis >>>= 5;
+        }
+        for (int i = ID_LENGTH - 1; i >= TIME_LENGTH; i--) {
+            chars[i] = ALPHABET[(int) (low & 31)];
+            low = (low >>> 5) | ((high & 31) << 59);
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,157 @@
+// IdIndex.java
+package com.stockmanager.utils;
+
+import java.util.Arrays;
+
+/**
+ * Hash index from string ids to non-negative ints such as row or slot numbers.
+ * Open addressing with linear probing over parallel key, hash and value arrays,
+ * so there are no entry objects and no boxed values; the cached hashes let most
+ * probes skip String.equals. Ids must not be null.
+ */
+public class IdIndex {
+    public static final int NOT_FOUND = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    public IdIndex() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Create an index that holds the expected number of ids without resizing
+     */
+    public IdIndex(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return the value stored for the id, or NOT_FOUND
+     */
+    public int get(String key) {
+        int hash = hash(key);
+        for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keys[slot].equals(key)) {
+                return values[slot];
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Store a value for the id
+     * @return the value it replaced, or NOT_FOUND
+     */
+    public int put(String key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        int hash = hash(key);
+        int slot = hash & mask;
+        for (; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keys[slot].equals(key)) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        hashes[slot] = hash;
+        values[slot] = value;
+        // Keep the table at most half full so probe runs stay short
+        if (++size > keys.length / 2) {
+            resize(keys.length * 2);
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Remove the id
+     * @return its value, or NOT_FOUND if it was not present
+     */
+    public int remove(String key) {
+        int hash = hash(key);
+        int slot = hash & mask;
+        for (; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keys[slot].equals(key)) {
+                int removed = values[slot];
+                closeGap(slot);
+                size--;
+                return removed;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    /**
+     * Shift later entries of the probe run back into the emptied slot,
+     * so lookups never need tombstones
+     */
+    private void closeGap(int gap) {
+        for (int slot = (gap + 1) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            int home = hashes[slot] & mask;
+            // Move the entry only if the gap lies between its home slot and where it sits
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                hashes[gap] = hashes[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 2 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // Spread the String hash so ids sharing a prefix and differing late still scatter
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
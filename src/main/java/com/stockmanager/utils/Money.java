@@ -0,0 +1,48 @@
+// Money.java
+package com.stockmanager.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Conversions for money amounts, which the application holds as whole cents in a long
+ */
+public class Money {
+    private static final int SCALE = 2;
+
+    /**
+     * Format cents as US currency, e.g. 123456 as "$1,234.56"
+     */
+    public static String format(long cents) {
+        // NumberFormat is not thread-safe, so each call gets its own
+        return NumberFormat.getCurrencyInstance(Locale.US).format(BigDecimal.valueOf(cents, SCALE));
+    }
+
+    /**
+     * Format cents as a plain decimal for editing, e.g. 123456 as "1234.56"
+     */
+    public static String toPlainString(long cents) {
+        return BigDecimal.valueOf(cents, SCALE).toPlainString();
+    }
+
+    /**
+     * Parse a decimal amount such as "12.5" into cents, rounding half up past the second decimal
+     * @throws NumberFormatException if the text is not a number or does not fit in a long
+     */
+    public static long parse(String text) {
+        try {
+            return new BigDecimal(text.trim()).setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    /**
+     * Convert cents to a double amount, for charts and other display-only arithmetic
+     */
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+}
@@ -0,0 +1,123 @@
+// PrefixIndex.java
+package com.stockmanager.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Immutable in-memory prefix index used for instant search-as-you-type results.
+ * Keys are lower-cased and kept in a sorted array, so a prefix lookup is a
+ * binary search followed by a short sequential scan.
+ */
+public class PrefixIndex<T> {
+    private final String[] keys;
+    private final Object[] values;
+
+    private PrefixIndex(String[] keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Find values that have a key starting with the given prefix
+     * @param limit maximum number of distinct values to return
+     */
+    public List<T> lookup(String prefix, int limit) {
+        return lookup(prefix, limit, value -> true);
+    }
+    
+    /**
+     * Find values that have a key starting with the given prefix and satisfy the condition
+     * @param limit maximum number of distinct values to return
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> lookup(String prefix, int limit, Predicate<? super T> condition) {
+        List<T> result = new ArrayList<>();
+        String p = prefix.trim().toLowerCase(Locale.ROOT);
+        if (p.isEmpty() || keys.length == 0) {
+            return result;
+        }
+
+        // Values can be reachable through several keys (name words, id)
+        Map<Object, Boolean> seen = new IdentityHashMap<>();
+        for (int i = lowerBound(p); i < keys.length && keys[i].startsWith(p); i++) {
+            if (seen.put(values[i], Boolean.TRUE) == null && condition.test((T) values[i])) {
+                result.add((T) values[i]);
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    private int lowerBound(String p) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(p) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Collects key/value pairs and produces the sorted index
+     */
+    public static class Builder<T> {
+        private final List<String> keys = new ArrayList<>();
+        private final List<T> values = new ArrayList<>();
+
+        /**
+         * Index the whole text as a key, plus every word inside it
+         */
+        public Builder<T> addText(String text, T value) {
+            if (text == null || text.isEmpty()) {
+                return this;
+            }
+            String lower = text.toLowerCase(Locale.ROOT);
+            add(lower, value);
+            for (String word : lower.split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty() && !word.equals(lower)) {
+                    add(word, value);
+                }
+            }
+            return this;
+        }
+
+        public Builder<T> add(String key, T value) {
+            keys.add(key);
+            values.add(value);
+            return this;
+        }
+
+        public PrefixIndex<T> build() {
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+
+            String[] sortedKeys = new String[order.length];
+            Object[] sortedValues = new Object[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedKeys[i] = keys.get(order[i]);
+                sortedValues[i] = values.get(order[i]);
+            }
+            return new PrefixIndex<>(sortedKeys, sortedValues);
+        }
+    }
+}
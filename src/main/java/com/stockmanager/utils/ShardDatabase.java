@@ -0,0 +1,107 @@
+// ShardDatabase.java
+package com.stockmanager.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A database file of its own next to stockmanager.db, used the same way:
+ * writes go through inTransaction() to a writer thread and connection of
+ * this file's own, so they never wait on writes to another file, and reads
+ * run on a connection per thread. Read connections attach stockmanager.db
+ * as "catalog", so reads can join to its tables.
+ */
+public class ShardDatabase {
+    private final String url;
+    private final WriteQueue writeQueue;
+    private final ThreadLocal<Connection> readConnection = new ThreadLocal<>();
+
+    // Guarded by itself
+    private final List<Connection> readConnections = new ArrayList<>();
+
+    /**
+     * Open the file, creating it and its tables if needed, and start its writer thread
+     * @param schema statements run on open, which must be safe to repeat
+     */
+    public ShardDatabase(Path file, String name, String... schema) throws SQLException {
+        url = "jdbc:sqlite:" + file;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot create " + file.getParent(), e);
+        }
+
+        Connection writer = DatabaseHelper.openConnection(url);
+        try (Statement stmt = writer.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            for (String sql : schema) {
+                stmt.execute(sql);
+            }
+        }
+        writeQueue = new WriteQueue(writer, "db-writer-" + name);
+    }
+
+    /**
+     * Run work as one transaction on this file's writer thread and wait for it to commit
+     * @see DatabaseHelper#inTransaction
+     */
+    public <T> T inTransaction(DatabaseHelper.TransactionWork<T> work) throws SQLException {
+        return writeQueue.submit(work);
+    }
+
+    /**
+     * Run reads on the calling thread's connection to this file inside one
+     * read transaction, so they all see the same state of both this file and
+     * the attached catalog
+     */
+    public <T> T readSnapshot(DatabaseHelper.TransactionWork<T> work) throws SQLException {
+        Connection conn = readConnection();
+        conn.setAutoCommit(false);
+        try {
+            return work.run(conn);
+        } finally {
+            // Ends the read transaction; nothing was written to commit
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Commit queued writes, stop the writer and close every connection to the file
+     */
+    public void close() {
+        writeQueue.close();
+        synchronized (readConnections) {
+            for (Connection conn : readConnections) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing shard connection: " + e.getMessage());
+                }
+            }
+            readConnections.clear();
+        }
+    }
+
+    private Connection readConnection() throws SQLException {
+        Connection conn = readConnection.get();
+        if (conn == null || conn.isClosed()) {
+            conn = DatabaseHelper.openConnection(url);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ATTACH DATABASE '" + DatabaseHelper.getDatabaseFile() + "' AS catalog");
+            }
+            readConnection.set(conn);
+            synchronized (readConnections) {
+                readConnections.add(conn);
+            }
+        }
+        return conn;
+    }
+}
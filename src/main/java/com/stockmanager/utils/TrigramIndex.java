@@ -0,0 +1,213 @@
+// TrigramIndex.java
+package com.stockmanager.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Immutable in-memory trigram index for typo-tolerant text lookup.
+ * Every document is a pair of fields (a primary field such as an item name and a
+ * secondary one such as a description). Trigrams are taken per word, padded with
+ * a space on each side, and stored as sorted primitive posting lists so a query
+ * only walks int arrays.
+ */
+public class TrigramIndex {
+    // Bit set on a posting when the trigram occurs in the primary field
+    private static final int PRIMARY_FLAG = 0x80000000;
+    private static final int DOC_MASK = 0x7fffffff;
+
+    private final int documentCount;
+    private final int[] trigrams;     // sorted, unique
+    private final int[] offsets;      // postings of trigrams[i] are postings[offsets[i] .. offsets[i + 1])
+    private final int[] postings;     // document number, optionally flagged with PRIMARY_FLAG
+
+    private TrigramIndex(int documentCount, int[] trigrams, int[] offsets, int[] postings) {
+        this.documentCount = documentCount;
+        this.trigrams = trigrams;
+        this.offsets = offsets;
+        this.postings = postings;
+    }
+
+    /**
+     * Build an index where document i consists of primary[i] and secondary[i]
+     */
+    public static TrigramIndex build(String[] primary, String[] secondary) {
+        int n = primary.length;
+        long[] pairs = new long[Math.max(16, n * 4)];
+        int size = 0;
+        int[] scratch = new int[64];
+
+        for (int doc = 0; doc < n; doc++) {
+            String first = primary[doc];
+            String second = secondary == null ? null : secondary[doc];
+            int needed = length(first) + length(second);
+            if (scratch.length < needed) {
+                scratch = new int[needed * 2];
+            }
+            int primaryCount = extract(first, scratch, 0);
+            int total = extract(second, scratch, primaryCount);
+
+            // Merge both fields' trigrams, flagging those that occur in the primary field
+            Arrays.sort(scratch, 0, primaryCount);
+            Arrays.sort(scratch, primaryCount, total);
+            int i = 0;
+            int j = primaryCount;
+            int last = -1;
+            while (i < primaryCount || j < total) {
+                boolean takePrimary = j >= total || (i < primaryCount && scratch[i] <= scratch[j]);
+                int trigram = takePrimary ? scratch[i++] : scratch[j++];
+                if (trigram == last) {
+                    continue;
+                }
+                last = trigram;
+                if (size == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                }
+                int posting = takePrimary ? (doc | PRIMARY_FLAG) : doc;
+                pairs[size++] = ((long) trigram << 32) | (posting & 0xffffffffL);
+            }
+        }
+
+        // Group (trigram, posting) pairs into one posting list per trigram
+        Arrays.sort(pairs, 0, size);
+        int distinct = 0;
+        for (int k = 0; k < size; k++) {
+            if (k == 0 || (pairs[k] >>> 32) != (pairs[k - 1] >>> 32)) {
+                distinct++;
+            }
+        }
+        int[] keys = new int[distinct];
+        int[] offs = new int[distinct + 1];
+        int[] posts = new int[size];
+        int t = -1;
+        for (int k = 0; k < size; k++) {
+            int trigram = (int) (pairs[k] >>> 32);
+            if (t < 0 || keys[t] != trigram) {
+                keys[++t] = trigram;
+                offs[t] = k;
+            }
+            posts[k] = (int) pairs[k];
+        }
+        offs[distinct] = size;
+        return new TrigramIndex(n, keys, offs, posts);
+    }
+
+    /**
+     * Return the best matching document numbers, best first.
+     * A query trigram found in a document's primary field scores 2, one found only
+     * in the secondary field scores 1; documents reaching less than minCoverage of
+     * the best possible score are dropped.
+     */
+    public int[] search(String query, int limit, double minCoverage) {
+        int[] queryTrigrams = new int[length(query)];
+        int count = extract(query, queryTrigrams, 0);
+        Arrays.sort(queryTrigrams, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || queryTrigrams[i] != queryTrigrams[i - 1]) {
+                queryTrigrams[unique++] = queryTrigrams[i];
+            }
+        }
+        if (unique == 0 || documentCount == 0 || limit <= 0) {
+            return new int[0];
+        }
+
+        // Accumulate scores only for documents sharing at least one trigram with the query
+        int[] scores = new int[documentCount];
+        int[] touched = new int[Math.min(documentCount, 1024)];
+        int touchedCount = 0;
+        for (int q = 0; q < unique; q++) {
+            int slot = Arrays.binarySearch(trigrams, queryTrigrams[q]);
+            if (slot < 0) {
+                continue;
+            }
+            for (int p = offsets[slot], end = offsets[slot + 1]; p < end; p++) {
+                int posting = postings[p];
+                int doc = posting & DOC_MASK;
+                if (scores[doc] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, Math.min(documentCount, touched.length * 2));
+                    }
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += (posting & PRIMARY_FLAG) != 0 ? 2 : 1;
+            }
+        }
+
+        // Keep the top matches with a bounded insertion sort instead of sorting every hit
+        int threshold = Math.max(1, (int) Math.ceil(minCoverage * unique * 2));
+        int[] best = new int[limit];
+        int bestCount = 0;
+        for (int k = 0; k < touchedCount; k++) {
+            int doc = touched[k];
+            int score = scores[doc];
+            if (score < threshold || (bestCount == limit && score <= scores[best[limit - 1]])) {
+                continue;
+            }
+            int pos = bestCount < limit ? bestCount++ : limit - 1;
+            while (pos > 0 && scores[best[pos - 1]] < score) {
+                best[pos] = best[pos - 1];
+                pos--;
+            }
+            best[pos] = doc;
+        }
+        return Arrays.copyOf(best, bestCount);
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    /**
+     * Write the per-word trigrams of text into out starting at from.
+     * A word of n characters yields exactly n trigrams, so out needs text.length() free slots.
+     * @return the new end position
+     */
+    private static int extract(String text, int[] out, int from) {
+        if (text == null || text.isEmpty()) {
+            return from;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int pos = from;
+        int len = Math.min(lower.length(), out.length - from);
+        int i = 0;
+        while (i < len) {
+            while (i < len && !Character.isLetterOrDigit(lower.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < len && Character.isLetterOrDigit(lower.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                break;
+            }
+            // The word w is read as " w " so that its first and last letters get their own trigrams
+            char a = ' ';
+            char b = lower.charAt(start);
+            for (int k = start + 1; k <= i; k++) {
+                char c = k < i ? lower.charAt(k) : ' ';
+                out[pos++] = encode(a, b, c);
+                a = b;
+                b = c;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Pack a trigram into a non-negative int: exact for characters below 1024,
+     * hashed into a separate range otherwise
+     */
+    private static int encode(char a, char b, char c) {
+        if (a < 1024 && b < 1024 && c < 1024) {
+            return (a << 20) | (b << 10) | c;
+        }
+        int hash = (a * 31 + b) * 31 + c;
+        return (hash & 0x3fffffff) | 0x40000000;
+    }
+}
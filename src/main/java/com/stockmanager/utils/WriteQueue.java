@@ -0,0 +1,300 @@
+// WriteQueue.java
+package com.stockmanager.utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs every database write on one thread with its own connection.
+ * Writes queued while a transaction is running are committed together with
+ * the next one, each inside its own savepoint, so one write failing only
+ * undoes that write. A group that hits SQLITE_BUSY or SQLITE_LOCKED, which
+ * another process holding the database can cause, is rolled back and run
+ * again after a short randomized backoff, a bounded number of times.
+ * Work that SQLite refuses inside a transaction runs alone, between groups.
+ */
+class WriteQueue {
+    private static final int MAX_GROUP_SIZE = 64;
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long INITIAL_BACKOFF_MS = 10;
+    private static final long MAX_BACKOFF_MS = 500;
+
+    // Primary SQLite result codes; the low byte of extended codes
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    // Queued by close() after the last accepted write
+    private static final Task<Void> STOP = new Task<>(conn -> null, false);
+
+    private final Connection connection;
+    private final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+
+    // Guarded by this queue's monitor
+    private boolean closed;
+
+    WriteQueue(Connection connection, String threadName) throws SQLException {
+        this.connection = connection;
+        connection.setAutoCommit(false);
+
+        thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Run work in a transaction on the writer thread and wait for it to commit.
+     * Called from the writer thread itself, work joins the running transaction.
+     */
+    <T> T submit(DatabaseHelper.TransactionWork<T> work) throws SQLException {
+        return submit(work, false);
+    }
+
+    /**
+     * Run work on the writer thread with no transaction open and wait for it
+     */
+    <T> T submitOutsideTransaction(DatabaseHelper.TransactionWork<T> work) throws SQLException {
+        if (isWriterThread()) {
+            throw new SQLException("Cannot leave the running transaction");
+        }
+        return submit(work, true);
+    }
+
+    private <T> T submit(DatabaseHelper.TransactionWork<T> work, boolean outsideTransaction) throws SQLException {
+        if (isWriterThread()) {
+            return work.run(connection);
+        }
+
+        Task<T> task = new Task<>(work, outsideTransaction);
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("Database connection is closed");
+            }
+            queue.add(task);
+        }
+        return task.await();
+    }
+
+    boolean isWriterThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Commit the writes already queued, then stop the writer and close its connection
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(STOP);
+        }
+
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing writer connection: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void run() {
+        List<Task<?>> group = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; // Only close() ends the writer
+            }
+            queue.drainTo(group, MAX_GROUP_SIZE - 1);
+            stopping = group.remove(STOP);
+
+            // Work outside a transaction splits the group, keeping the order tasks were queued in
+            List<Task<?>> transaction = new ArrayList<>();
+            for (Task<?> task : group) {
+                if (task.outsideTransaction) {
+                    if (!transaction.isEmpty()) {
+                        commitGroup(transaction);
+                        transaction.clear();
+                    }
+                    runOutsideTransaction(task);
+                } else {
+                    transaction.add(task);
+                }
+            }
+            if (!transaction.isEmpty()) {
+                commitGroup(transaction);
+            }
+            group.clear();
+        }
+    }
+
+    private void runOutsideTransaction(Task<?> task) {
+        try {
+            // Commits the transaction the driver opens after each commit, which is still empty
+            connection.setAutoCommit(true);
+            try {
+                task.run(connection);
+            } finally {
+                connection.setAutoCommit(false);
+            }
+        } catch (SQLException | RuntimeException | Error e) {
+            task.error = e;
+        }
+        task.done.countDown();
+    }
+
+    private void commitGroup(List<Task<?>> group) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                runGroup(group);
+                break;
+            } catch (SQLException e) {
+                rollbackQuietly();
+                if (!isBusy(e) || attempt == MAX_ATTEMPTS) {
+                    for (Task<?> task : group) {
+                        task.error = e;
+                    }
+                    break;
+                }
+                sleep(backoff(attempt));
+            }
+        }
+
+        for (Task<?> task : group) {
+            task.done.countDown();
+        }
+    }
+
+    /**
+     * Run each task in its own savepoint and commit them all at once.
+     * Throws only for errors that abort the whole group.
+     */
+    private void runGroup(List<Task<?>> group) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            for (Task<?> task : group) {
+                task.error = null;
+                stmt.execute("SAVEPOINT write_task");
+                try {
+                    task.run(connection);
+                } catch (SQLException e) {
+                    if (isBusy(e)) {
+                        throw e;
+                    }
+                    task.error = e;
+                } catch (RuntimeException | Error e) {
+                    task.error = e;
+                }
+                if (task.error != null) {
+                    stmt.execute("ROLLBACK TO write_task");
+                }
+                stmt.execute("RELEASE write_task");
+            }
+        }
+        connection.commit();
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back writes: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean isBusy(SQLException e) {
+        int code = e.getErrorCode() & 0xff;
+        return code == SQLITE_BUSY || code == SQLITE_LOCKED;
+    }
+
+    // Exponential backoff with jitter, so competing processes do not retry in step
+    private static long backoff(int attempt) {
+        long limit = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << (attempt - 1));
+        return limit / 2 + ThreadLocalRandom.current().nextLong(limit / 2 + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // Retry sooner; only close() ends the writer
+        }
+    }
+
+    /**
+     * A queued write and, once done is counted down, its outcome
+     */
+    private static class Task<T> {
+        final DatabaseHelper.TransactionWork<T> work;
+        final boolean outsideTransaction;
+        final CountDownLatch done = new CountDownLatch(1);
+        T result;
+        Throwable error;
+
+        Task(DatabaseHelper.TransactionWork<T> work, boolean outsideTransaction) {
+            this.work = work;
+            this.outsideTransaction = outsideTransaction;
+        }
+
+        void run(Connection conn) throws SQLException {
+            result = work.run(conn);
+        }
+
+        T await() throws SQLException {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // The write is already queued, so wait for its outcome anyway
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (error instanceof SQLException) {
+                throw (SQLException) error;
+            }
+            if (error instanceof Error) {
+                throw (Error) error;
+            }
+            if (error != null) {
+                throw (RuntimeException) error;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// ArchiveControllerTest.java
+package com.stockmanager.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Moving items between the live and archived tables, against a private
+ * in-memory database holding just those two
+ */
+class ArchiveControllerTest {
+    private static final String OLD = "2020-01-01 00:00:00";
+
+    private Connection conn;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            for (String table : new String[] {"stock_items", "archived_stock_items"}) {
+                stmt.execute("CREATE TABLE " + table + " (" +
+                             "id TEXT PRIMARY KEY, name TEXT NOT NULL, description TEXT, " +
+                             "price_cents INTEGER NOT NULL, quantity INTEGER NOT NULL, supplier_id TEXT, " +
+                             "version INTEGER NOT NULL DEFAULT 0, last_modified TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            }
+            stmt.execute("ALTER TABLE archived_stock_items ADD COLUMN archived_at TIMESTAMP");
+            stmt.executeUpdate("INSERT INTO stock_items (id, name, price_cents, quantity, supplier_id, version, last_modified) " +
+                               "VALUES ('I001', 'Laptop', 120000, 0, 'S001', 3, '" + OLD + "'), " +
+                               "('I002', 'Mouse', 2500, 0, 'S001', 0, '" + OLD + "')");
+        }
+    }
+
+    @AfterEach
+    void closeConnection() throws SQLException {
+        conn.close();
+    }
+
+    private List<String> strings(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+
+    @Test
+    void archivingKeepsTheRowAndStampsIt() throws SQLException {
+        assertEquals(1, ArchiveController.move(conn, Arrays.asList("I001", "I999"),
+                                               "stock_items", "archived_stock_items"));
+
+        assertEquals(Collections.singletonList("I002"), strings("SELECT id FROM stock_items"));
+        assertEquals(Collections.singletonList("I001 Laptop 120000 3"),
+                     strings("SELECT id || ' ' || name || ' ' || price_cents || ' ' || version FROM archived_stock_items"));
+        assertNotNull(strings("SELECT archived_at FROM archived_stock_items").get(0));
+    }
+
+    @Test
+    void restoringBringsTheRowBackAsJustChanged() throws SQLException {
+        List<String> ids = Collections.singletonList("I001");
+        ArchiveController.move(conn, ids, "stock_items", "archived_stock_items");
+
+        assertEquals(1, ArchiveController.move(conn, ids, "archived_stock_items", "stock_items"));
+
+        assertEquals(Collections.emptyList(), strings("SELECT id FROM archived_stock_items"));
+        assertEquals(Collections.singletonList("3"), strings("SELECT version FROM stock_items WHERE id = 'I001'"));
+        assertNotEquals(OLD, strings("SELECT last_modified FROM stock_items WHERE id = 'I001'").get(0));
+    }
+
+    @Test
+    void restoringAnIdTakenByALiveItemFails() throws SQLException {
+        List<String> ids = Collections.singletonList("I001");
+        ArchiveController.move(conn, ids, "stock_items", "archived_stock_items");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO stock_items (id, name, price_cents, quantity) VALUES ('I001', 'New', 1, 1)");
+        }
+
+        assertThrows(SQLException.class, () -> ArchiveController.move(conn, ids, "archived_stock_items", "stock_items"));
+        assertEquals(Collections.singletonList("I001"), strings("SELECT id FROM archived_stock_items"));
+    }
+}
@@ -0,0 +1,61 @@
+// QuantityAccumulatorTest.java
+package com.stockmanager.controllers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantityAccumulatorTest {
+    private static void assertRecord(long seq, String itemId, long delta, QuantityAccumulator.JournalRecord record) {
+        assertEquals(seq, record.seq);
+        assertEquals(itemId, record.itemId);
+        assertEquals(delta, record.delta);
+    }
+
+    @Test
+    void readsBackFormattedRecords() {
+        String journal = QuantityAccumulator.formatRecord(1, "I001", 15) +
+                         QuantityAccumulator.formatRecord(2, "I002", -3);
+
+        List<QuantityAccumulator.JournalRecord> records = QuantityAccumulator.parseRecords(journal);
+
+        assertEquals(2, records.size());
+        assertRecord(1, "I001", 15, records.get(0));
+        assertRecord(2, "I002", -3, records.get(1));
+    }
+
+    @Test
+    void skipsARecordCutShortByACrash() {
+        String whole = QuantityAccumulator.formatRecord(1, "I001", 15);
+        String torn = QuantityAccumulator.formatRecord(2, "I002", 15);
+        // Cut from "\t15" to "\t1", which would otherwise replay a wrong delta
+        String journal = whole + torn.substring(0, torn.indexOf("\t15") + 2);
+
+        List<QuantityAccumulator.JournalRecord> records = QuantityAccumulator.parseRecords(journal);
+
+        assertEquals(1, records.size());
+        assertRecord(1, "I001", 15, records.get(0));
+    }
+
+    @Test
+    void skipsDamagedLinesAndKeepsReading() {
+        String journal = "12\tI001\t-\n" +
+                         QuantityAccumulator.formatRecord(13, "I002", -3).replace("-3", "-4") +
+                         "garbage\n" +
+                         "\n" +
+                         QuantityAccumulator.formatRecord(14, "I003", 7);
+
+        List<QuantityAccumulator.JournalRecord> records = QuantityAccumulator.parseRecords(journal);
+
+        assertEquals(1, records.size());
+        assertRecord(14, "I003", 7, records.get(0));
+    }
+
+    @Test
+    void emptyJournalHasNoRecords() {
+        assertTrue(QuantityAccumulator.parseRecords("").isEmpty());
+    }
+}
@@ -0,0 +1,172 @@
+// StockMovementLogTest.java
+package com.stockmanager.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Past quantities and checkpoint thinning, against a private in-memory
+ * database holding just the tables the log touches
+ */
+class StockMovementLogTest {
+    private Connection conn;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE stock_items (" +
+                         "id TEXT PRIMARY KEY, name TEXT NOT NULL, quantity INTEGER NOT NULL, " +
+                         "version INTEGER NOT NULL DEFAULT 0)");
+            stmt.execute("CREATE TABLE stock_movements (" +
+                         "seq INTEGER PRIMARY KEY AUTOINCREMENT, item_id TEXT NOT NULL, type TEXT NOT NULL, " +
+                         "quantity_change INTEGER NOT NULL, reference TEXT, " +
+                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE TABLE stock_snapshot (item_id TEXT PRIMARY KEY, quantity INTEGER NOT NULL)");
+            stmt.execute("CREATE TABLE stock_snapshot_state (" +
+                         "id INTEGER PRIMARY KEY CHECK (id = 1), last_seq INTEGER NOT NULL, taken_at TIMESTAMP)");
+            stmt.execute("INSERT INTO stock_snapshot_state (id, last_seq) VALUES (1, 0)");
+            stmt.execute("CREATE TABLE stock_checkpoints (seq INTEGER PRIMARY KEY, taken_at TIMESTAMP NOT NULL)");
+            stmt.execute("CREATE TABLE stock_checkpoint_items (" +
+                         "checkpoint_seq INTEGER NOT NULL, item_id TEXT NOT NULL, quantity INTEGER NOT NULL, " +
+                         "PRIMARY KEY (checkpoint_seq, item_id))");
+        }
+    }
+
+    @AfterEach
+    void closeConnection() throws SQLException {
+        conn.close();
+    }
+
+    private void movement(String itemId, long change, String createdAt) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO stock_movements (item_id, type, quantity_change, created_at) " +
+                 "VALUES (?, 'ADJUSTMENT', ?, ?)")) {
+            stmt.setString(1, itemId);
+            stmt.setLong(2, change);
+            stmt.setString(3, createdAt);
+            stmt.executeUpdate();
+        }
+    }
+
+    // takenAt is an SQL expression, so checkpoints can be placed relative to now
+    private void checkpoint(long seq, String takenAt) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO stock_checkpoints (seq, taken_at) VALUES (" + seq + ", " + takenAt + ")");
+            stmt.executeUpdate("INSERT INTO stock_checkpoint_items (checkpoint_seq, item_id, quantity) " +
+                               "VALUES (" + seq + ", 'I001', 1)");
+        }
+    }
+
+    private void checkpointItem(long seq, String itemId, int quantity) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT OR REPLACE INTO stock_checkpoint_items (checkpoint_seq, item_id, quantity) " +
+                               "VALUES (" + seq + ", '" + itemId + "', " + quantity + ")");
+        }
+    }
+
+    private List<Long> longs(String sql) throws SQLException {
+        List<Long> values = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getLong(1));
+            }
+        }
+        return values;
+    }
+
+    private Map<String, Integer> asOf(String time) throws SQLException {
+        return StockMovementLog.getQuantitiesAsOf(conn, Instant.parse(time));
+    }
+
+    @Test
+    void addsUpTheMovementsUntilTheTime() throws SQLException {
+        movement("I001", 10, "2024-03-01 10:00:00");
+        movement("I001", -3, "2024-03-02 10:00:00");
+        movement("I002", 4, "2024-03-03 09:00:00");
+        movement("I001", 5, "2024-03-03 10:00:00");
+
+        assertTrue(asOf("2024-02-28T00:00:00Z").isEmpty());
+        assertEquals(Collections.singletonMap("I001", 7), asOf("2024-03-02T12:00:00Z"));
+
+        Map<String, Integer> later = asOf("2024-03-03T12:00:00Z");
+        assertEquals(12, later.get("I001"));
+        assertEquals(4, later.get("I002"));
+    }
+
+    @Test
+    void startsFromTheNearestEarlierCheckpoint() throws SQLException {
+        movement("I001", 10, "2024-03-01 10:00:00");
+        movement("I001", -3, "2024-03-02 10:00:00");
+        movement("I001", 5, "2024-03-03 10:00:00");
+        // Not the sum of the movements before it, so the results show which one was read
+        checkpoint(2, "'2024-03-02 11:00:00'");
+        checkpointItem(2, "I001", 100);
+        checkpointItem(2, "I002", 6);
+
+        assertEquals(10, asOf("2024-03-01T12:00:00Z").get("I001"));
+        assertEquals(100, asOf("2024-03-02T12:00:00Z").get("I001"));
+
+        Map<String, Integer> later = asOf("2024-03-03T12:00:00Z");
+        assertEquals(105, later.get("I001"));
+        assertEquals(6, later.get("I002"));
+    }
+
+    @Test
+    void openingBalanceCountsFromWhenItIsRecorded() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO stock_items (id, name, quantity) VALUES ('I001', 'Laptop', 5)");
+        }
+
+        assertEquals(0, StockMovementLog.rebuildProjection(conn));
+        assertEquals(Arrays.asList(5L), longs("SELECT quantity_change FROM stock_movements WHERE item_id = 'I001'"));
+
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        assertEquals(Collections.singletonMap("I001", 5),
+                     StockMovementLog.getQuantitiesAsOf(conn, now.plus(1, ChronoUnit.MINUTES)));
+        assertTrue(StockMovementLog.getQuantitiesAsOf(conn, now.minus(1, ChronoUnit.HOURS)).isEmpty());
+    }
+
+    @Test
+    void pruningKeepsRecentDailyAndMonthlyCheckpoints() throws SQLException {
+        // First of each month, however old
+        checkpoint(1, "'2020-01-05 10:00:00'");
+        checkpoint(2, "'2020-01-20 10:00:00'");
+        checkpoint(3, "'2020-02-03 10:00:00'");
+        // Beyond the daily window, so only the first of the month can survive
+        checkpoint(4, "date('now', '-40 days') || ' 01:00:00'");
+        checkpoint(5, "date('now', '-40 days') || ' 02:00:00'");
+        // Within the daily window
+        checkpoint(6, "date('now', '-10 days') || ' 01:00:00'");
+        checkpoint(7, "date('now', '-10 days') || ' 02:00:00'");
+        // Today: the first of the day and the last seven
+        for (long seq = 8; seq <= 16; seq++) {
+            checkpoint(seq, "date('now') || ' 00:00:0" + (seq - 7) + "'");
+        }
+
+        StockMovementLog.pruneCheckpoints(conn);
+
+        List<Long> kept = Arrays.asList(1L, 3L, 4L, 6L, 8L, 10L, 11L, 12L, 13L, 14L, 15L, 16L);
+        assertEquals(kept, longs("SELECT seq FROM stock_checkpoints ORDER BY seq"));
+        assertEquals(kept, longs("SELECT checkpoint_seq FROM stock_checkpoint_items ORDER BY checkpoint_seq"));
+    }
+}
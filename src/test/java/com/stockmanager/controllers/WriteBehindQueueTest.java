@@ -0,0 +1,106 @@
+// WriteBehindQueueTest.java
+package com.stockmanager.controllers;
+
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+    private static WriteBehindQueue.PendingWrite update(long seq, String id, int quantity) {
+        StockItem item = new StockItem(id, "Laptop", null, 120000, quantity,
+                                       new Supplier("S001", null, null, null, null, null));
+        item.setVersion(seq);
+        return new WriteBehindQueue.PendingWrite(seq, id, item, false, seq - 1);
+    }
+
+    private static byte[] journal(byte[]... parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void readsBackFormattedRecords() throws IOException {
+        byte[] content = journal(WriteBehindQueue.formatRecord(update(1, "I001", 15)),
+                                 WriteBehindQueue.formatRecord(new WriteBehindQueue.PendingWrite(2, "I002", null,
+                                                                                                 false, 0)));
+        List<WriteBehindQueue.PendingWrite> records = new ArrayList<>();
+
+        assertEquals(content.length, WriteBehindQueue.parseRecords(content, records));
+        assertEquals(2, records.size());
+        assertEquals(1, records.get(0).seq);
+        assertEquals(15, records.get(0).getItem().getQuantity());
+        assertEquals(0, records.get(0).getExpectedVersion());
+        assertEquals("I002", records.get(1).getId());
+        assertTrue(records.get(1).isDelete());
+    }
+
+    @Test
+    void stopsAtARecordCutShortByACrash() throws IOException {
+        byte[] whole = WriteBehindQueue.formatRecord(update(1, "I001", 15));
+        byte[] torn = WriteBehindQueue.formatRecord(update(2, "I002", 15));
+        byte[] content = journal(whole, Arrays.copyOf(torn, torn.length - 3));
+        List<WriteBehindQueue.PendingWrite> records = new ArrayList<>();
+
+        assertEquals(whole.length, WriteBehindQueue.parseRecords(content, records));
+        assertEquals(1, records.size());
+        assertEquals("I001", records.get(0).getId());
+    }
+
+    @Test
+    void stopsAtAZeroFilledTail() throws IOException {
+        byte[] whole = WriteBehindQueue.formatRecord(update(1, "I001", 15));
+        byte[] content = journal(whole, new byte[64]);
+        List<WriteBehindQueue.PendingWrite> records = new ArrayList<>();
+
+        assertEquals(whole.length, WriteBehindQueue.parseRecords(content, records));
+        assertEquals(1, records.size());
+    }
+
+    @Test
+    void stopsAtAnImpossibleLength() throws IOException {
+        byte[] whole = WriteBehindQueue.formatRecord(update(1, "I001", 15));
+        byte[] negative = ByteBuffer.allocate(16).putInt(-7).array();
+        byte[] huge = ByteBuffer.allocate(16).putInt(Integer.MAX_VALUE).array();
+
+        for (byte[] garbage : new byte[][] {negative, huge}) {
+            List<WriteBehindQueue.PendingWrite> records = new ArrayList<>();
+            assertEquals(whole.length, WriteBehindQueue.parseRecords(journal(whole, garbage), records));
+            assertEquals(1, records.size());
+        }
+    }
+
+    @Test
+    void stopsAtADamagedRecordAndIgnoresTheRest() throws IOException {
+        byte[] first = WriteBehindQueue.formatRecord(update(1, "I001", 15));
+        byte[] damaged = WriteBehindQueue.formatRecord(update(2, "I002", 15));
+        damaged[damaged.length - 1] ^= 1;
+        byte[] last = WriteBehindQueue.formatRecord(update(3, "I003", 15));
+        List<WriteBehindQueue.PendingWrite> records = new ArrayList<>();
+
+        assertEquals(first.length, WriteBehindQueue.parseRecords(journal(first, damaged, last), records));
+        assertEquals(1, records.size());
+        assertEquals("I001", records.get(0).getId());
+    }
+
+    @Test
+    void emptyJournalHasNoRecords() {
+        List<WriteBehindQueue.PendingWrite> records = new ArrayList<>();
+
+        assertEquals(0, WriteBehindQueue.parseRecords(new byte[0], records));
+        assertTrue(records.isEmpty());
+    }
+}
@@ -0,0 +1,119 @@
+// StockFilterTest.java
+package com.stockmanager.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockFilterTest {
+    private static final Supplier TECH = new Supplier("S001", "Tech Supplies Inc.", null, null, null, null);
+    private static final Supplier OFFICE = new Supplier("S002", "Office Essentials", null, null, null, null);
+
+    private static StockItem item(String id, String name, String description, long priceCents, int quantity,
+                                  Supplier supplier) {
+        return new StockItem(id, name, description, priceCents, quantity, supplier);
+    }
+
+    @Test
+    void emptyFilterMatchesEverything() {
+        StockFilter filter = new StockFilter();
+
+        assertTrue(filter.isEmpty());
+        assertTrue(filter.matches(item("I001", "Laptop", null, 0, 0, TECH)));
+    }
+
+    @Test
+    void textMatchesNameOrDescriptionIgnoringCase() {
+        StockFilter filter = new StockFilter();
+        filter.setText("  LAPTOP ");
+
+        assertTrue(filter.matches(item("I001", "Business laptop", null, 100, 1, TECH)));
+        assertTrue(filter.matches(item("I002", "Bag", "Fits a laptop", 100, 1, TECH)));
+        assertFalse(filter.matches(item("I003", "Desk", "Oak", 100, 1, TECH)));
+    }
+
+    @Test
+    void blankTextIsUnset() {
+        StockFilter filter = new StockFilter();
+        filter.setText("   ");
+
+        assertNull(filter.getText());
+        assertTrue(filter.isEmpty());
+    }
+
+    @Test
+    void supplierMustMatch() {
+        StockFilter filter = new StockFilter();
+        filter.setSupplierId("S001");
+
+        assertTrue(filter.matches(item("I001", "Laptop", null, 100, 1, TECH)));
+        assertFalse(filter.matches(item("I002", "Paper", null, 100, 1, OFFICE)));
+        assertFalse(filter.matches(item("I003", "Desk", null, 100, 1, null)));
+    }
+
+    @Test
+    void rangesIncludeTheirBounds() {
+        StockFilter filter = new StockFilter();
+        filter.setMinPriceCents(500L);
+        filter.setMaxPriceCents(1000L);
+        filter.setMinQuantity(2);
+        filter.setMaxQuantity(5);
+
+        assertTrue(filter.matches(item("I001", "A", null, 500, 2, TECH)));
+        assertTrue(filter.matches(item("I002", "B", null, 1000, 5, TECH)));
+        assertFalse(filter.matches(item("I003", "C", null, 499, 3, TECH)));
+        assertFalse(filter.matches(item("I004", "D", null, 1001, 3, TECH)));
+        assertFalse(filter.matches(item("I005", "E", null, 700, 1, TECH)));
+        assertFalse(filter.matches(item("I006", "F", null, 700, 6, TECH)));
+    }
+
+    @Test
+    void lowStockIsBelowTheThreshold() {
+        StockFilter filter = new StockFilter();
+        filter.setLowStockThreshold(10);
+
+        assertTrue(filter.matches(item("I001", "A", null, 100, 9, TECH)));
+        assertFalse(filter.matches(item("I002", "B", null, 100, 10, TECH)));
+    }
+
+    @Test
+    void sortOrderIsNotACriterion() {
+        StockFilter filter = new StockFilter();
+        filter.setSortColumn(StockFilter.SortColumn.PRICE);
+
+        assertTrue(filter.isEmpty());
+        assertTrue(filter.matches(item("I001", "A", null, 100, 1, TECH)));
+    }
+
+    @Test
+    void comparatorSortsNullsFirstAndBreaksTiesById() {
+        StockItem b = item("I002", "B", null, 100, 1, TECH);
+        StockItem a = item("I001", "A", null, 100, 1, TECH);
+        StockItem unnamed = item("I003", null, null, 50, 1, null);
+        List<StockItem> items = new ArrayList<>(Arrays.asList(b, a, unnamed));
+
+        StockFilter filter = new StockFilter();
+        assertNull(filter.comparator());
+
+        filter.setSortColumn(StockFilter.SortColumn.NAME);
+        items.sort(filter.comparator());
+        assertEquals(Arrays.asList(unnamed, a, b), items);
+
+        filter.setSortColumn(StockFilter.SortColumn.PRICE);
+        filter.setSortDescending(true);
+        items.sort(filter.comparator());
+        assertEquals(Arrays.asList(b, a, unnamed), items);
+
+        filter.setSortColumn(StockFilter.SortColumn.SUPPLIER);
+        filter.setSortDescending(false);
+        items.sort(filter.comparator());
+        assertEquals(Arrays.asList(unnamed, a, b), items);
+    }
+}
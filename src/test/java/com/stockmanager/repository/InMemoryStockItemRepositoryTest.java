@@ -0,0 +1,97 @@
+// InMemoryStockItemRepositoryTest.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryStockItemRepositoryTest {
+    private InMemoryStockItemRepository items;
+    private InMemorySupplierRepository suppliers;
+
+    @BeforeEach
+    void createRepositories() {
+        InMemoryStore store = new InMemoryStore();
+        items = new InMemoryStockItemRepository(store);
+        suppliers = new InMemorySupplierRepository(store);
+    }
+
+    private static StockItem item(String id, int quantity) {
+        return new StockItem(id, "Laptop", null, 120000, quantity,
+                             new Supplier("S001", null, null, null, null, null));
+    }
+
+    @Test
+    void insertOfAnExistingIdConflicts() {
+        assertEquals(0L, items.insert(item("I001", 5)));
+        assertNull(items.insert(item("I001", 7)));
+        assertEquals(5, items.findById("I001").getQuantity());
+    }
+
+    @Test
+    void updateAdvancesTheVersion() {
+        items.insert(item("I001", 5));
+        StockItem edited = items.findById("I001");
+        edited.setQuantity(8);
+
+        assertEquals(1L, items.update(edited));
+        assertEquals(1L, items.findById("I001").getVersion());
+        assertEquals(8, items.findById("I001").getQuantity());
+    }
+
+    @Test
+    void staleUpdateConflicts() {
+        items.insert(item("I001", 5));
+        StockItem first = items.findById("I001");
+        StockItem second = items.findById("I001");
+
+        first.setQuantity(8);
+        assertEquals(1L, items.update(first));
+        second.setQuantity(2);
+        assertNull(items.update(second));
+        assertEquals(8, items.findById("I001").getQuantity());
+    }
+
+    @Test
+    void updateOfADeletedItemConflicts() {
+        items.insert(item("I001", 5));
+        StockItem edited = items.findById("I001");
+        assertTrue(items.delete("I001"));
+
+        assertNull(items.update(edited));
+        assertNull(items.findById("I001"));
+        assertFalse(items.delete("I001"));
+    }
+
+    @Test
+    void quantityChangesAdvanceTheVersion() {
+        items.insert(item("I001", 5));
+        StockItem edited = items.findById("I001");
+        assertTrue(items.adjustQuantity("I001", 2));
+
+        assertNull(items.update(edited));
+        assertFalse(items.adjustQuantity("I001", -8));
+        assertFalse(items.adjustQuantity("I001", Integer.MAX_VALUE));
+        assertEquals(7, items.findById("I001").getQuantity());
+    }
+
+    @Test
+    void staleSupplierSaveConflicts() {
+        Supplier supplier = new Supplier("S001", "Tech Supplies Inc.", null, null, null, null);
+        assertEquals(0L, suppliers.save(supplier));
+        Supplier first = suppliers.findById("S001");
+        Supplier second = suppliers.findById("S001");
+
+        first.setName("Tech Supplies Ltd.");
+        assertEquals(1L, suppliers.save(first));
+        assertNull(suppliers.save(second));
+        assertEquals("Tech Supplies Ltd.", suppliers.findById("S001").getName());
+    }
+}
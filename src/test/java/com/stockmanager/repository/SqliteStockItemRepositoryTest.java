@@ -0,0 +1,111 @@
+// SqliteStockItemRepositoryTest.java
+package com.stockmanager.repository;
+
+import com.stockmanager.models.StockItem;
+import com.stockmanager.models.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The writes the repository and the write-behind queue share, against a
+ * private in-memory database holding just the tables they touch
+ */
+class SqliteStockItemRepositoryTest {
+    private Connection conn;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            for (String table : new String[] {"stock_items", "archived_stock_items"}) {
+                stmt.execute("CREATE TABLE " + table + " (" +
+                             "id TEXT PRIMARY KEY, name TEXT NOT NULL, description TEXT, " +
+                             "price_cents INTEGER NOT NULL, quantity INTEGER NOT NULL, supplier_id TEXT, " +
+                             "version INTEGER NOT NULL DEFAULT 0, last_modified TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            }
+            stmt.execute("CREATE TABLE stock_movements (" +
+                         "seq INTEGER PRIMARY KEY AUTOINCREMENT, item_id TEXT NOT NULL, type TEXT NOT NULL, " +
+                         "quantity_change INTEGER NOT NULL, reference TEXT, " +
+                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+    @AfterEach
+    void closeConnection() throws SQLException {
+        conn.close();
+    }
+
+    private static StockItem item(String id, int quantity) {
+        return new StockItem(id, "Laptop", null, 120000, quantity,
+                             new Supplier("S001", null, null, null, null, null));
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    void insertOfAnExistingIdConflicts() throws SQLException {
+        assertEquals(0L, SqliteStockItemRepository.insertStockItem(conn, item("I001", 5)));
+        assertNull(SqliteStockItemRepository.insertStockItem(conn, item("I001", 7)));
+
+        assertEquals(5, queryLong("SELECT quantity FROM stock_items WHERE id = 'I001'"));
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM stock_movements"));
+    }
+
+    @Test
+    void insertOfAnArchivedIdConflicts() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO archived_stock_items (id, name, price_cents, quantity, supplier_id) " +
+                         "VALUES ('I001', 'Laptop', 120000, 0, 'S001')");
+        }
+
+        assertNull(SqliteStockItemRepository.insertStockItem(conn, item("I001", 7)));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM stock_items"));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM stock_movements"));
+    }
+
+    @Test
+    void updateAtTheReadVersionAdvancesIt() throws SQLException {
+        SqliteStockItemRepository.insertStockItem(conn, item("I001", 5));
+
+        assertEquals(1L, SqliteStockItemRepository.updateStockItem(conn, item("I001", 8), 0));
+        assertEquals(1, queryLong("SELECT version FROM stock_items WHERE id = 'I001'"));
+        assertEquals(8, queryLong("SELECT SUM(quantity_change) FROM stock_movements WHERE item_id = 'I001'"));
+    }
+
+    @Test
+    void staleUpdateConflicts() throws SQLException {
+        SqliteStockItemRepository.insertStockItem(conn, item("I001", 5));
+        SqliteStockItemRepository.updateStockItem(conn, item("I001", 8), 0);
+
+        assertNull(SqliteStockItemRepository.updateStockItem(conn, item("I001", 2), 0));
+        assertEquals(8, queryLong("SELECT quantity FROM stock_items WHERE id = 'I001'"));
+        assertEquals(2, queryLong("SELECT COUNT(*) FROM stock_movements"));
+    }
+
+    @Test
+    void updateOfADeletedItemConflicts() throws SQLException {
+        SqliteStockItemRepository.insertStockItem(conn, item("I001", 5));
+        assertEquals(1, SqliteStockItemRepository.deleteStockItem(conn, "I001"));
+
+        assertNull(SqliteStockItemRepository.updateStockItem(conn, item("I001", 8), 0));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM stock_items"));
+        assertEquals(0, queryLong("SELECT SUM(quantity_change) FROM stock_movements WHERE item_id = 'I001'"));
+    }
+}
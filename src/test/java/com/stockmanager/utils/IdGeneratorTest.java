@@ -0,0 +1,82 @@
+// IdGeneratorTest.java
+package com.stockmanager.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdGeneratorTest {
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+    @Test
+    void idsAre26CrockfordCharacters() {
+        String id = IdGenerator.newId();
+
+        assertEquals(26, id.length());
+        for (char c : id.toCharArray()) {
+            assertTrue(ALPHABET.indexOf(c) >= 0, "Unexpected character " + c + " in " + id);
+        }
+    }
+
+    @Test
+    void idsStartWithTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        String id = IdGenerator.newId();
+        long after = System.currentTimeMillis();
+
+        long millis = 0;
+        for (int i = 0; i < 10; i++) {
+            millis = millis * 32 + ALPHABET.indexOf(id.charAt(i));
+        }
+        // Ids made in an earlier millisecond may have pushed the generator slightly ahead
+        assertTrue(millis >= before && millis <= after + 1000, "Time part " + millis + " of " + id);
+    }
+
+    @Test
+    void idsStrictlyIncrease() {
+        String previous = IdGenerator.newId();
+        for (int i = 0; i < 100_000; i++) {
+            String id = IdGenerator.newId();
+            assertTrue(id.compareTo(previous) > 0, id + " does not sort after " + previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> batches = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                batches.add(pool.submit(() -> {
+                    List<String> ids = new ArrayList<>();
+                    for (int i = 0; i < 20_000; i++) {
+                        ids.add(IdGenerator.newId());
+                    }
+                    return ids;
+                }));
+            }
+
+            Set<String> all = new HashSet<>();
+            for (Future<List<String>> batch : batches) {
+                List<String> ids = batch.get();
+                for (int i = 1; i < ids.size(); i++) {
+                    assertTrue(ids.get(i).compareTo(ids.get(i - 1)) > 0);
+                }
+                all.addAll(ids);
+            }
+            assertEquals(80_000, all.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
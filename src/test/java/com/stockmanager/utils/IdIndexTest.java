@@ -0,0 +1,109 @@
+// IdIndexTest.java
+package com.stockmanager.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdIndexTest {
+    @Test
+    void putGetAndReplace() {
+        IdIndex index = new IdIndex();
+
+        assertEquals(IdIndex.NOT_FOUND, index.put("I001", 1));
+        assertEquals(IdIndex.NOT_FOUND, index.put("I002", 2));
+        assertEquals(1, index.put("I001", 10));
+        assertEquals(10, index.get("I001"));
+        assertEquals(2, index.get("I002"));
+        assertEquals(IdIndex.NOT_FOUND, index.get("I003"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void rejectsNegativeValues() {
+        assertThrows(IllegalArgumentException.class, () -> new IdIndex().put("I001", -1));
+    }
+
+    @Test
+    void growsPastItsExpectedSize() {
+        IdIndex index = new IdIndex(4);
+        for (int i = 0; i < 1000; i++) {
+            index.put("I" + i, i);
+        }
+
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, index.get("I" + i));
+        }
+    }
+
+    @Test
+    void removeKeepsTheRestOfTheProbeRunReachable() {
+        // Filled to just short of resizing, so the ids form long probe runs
+        IdIndex index = new IdIndex(64);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            ids.add(IdGenerator.newId());
+            index.put(ids.get(i), i);
+        }
+
+        for (int i = 0; i < 64; i += 2) {
+            assertEquals(i, index.remove(ids.get(i)));
+            assertEquals(IdIndex.NOT_FOUND, index.remove(ids.get(i)));
+        }
+
+        assertEquals(32, index.size());
+        for (int i = 0; i < 64; i++) {
+            assertEquals(i % 2 == 0 ? IdIndex.NOT_FOUND : i, index.get(ids.get(i)));
+        }
+    }
+
+    @Test
+    void agreesWithHashMapUnderRandomOperations() {
+        Random random = new Random(42);
+        IdIndex index = new IdIndex();
+        Map<String, Integer> expected = new HashMap<>();
+
+        for (int step = 0; step < 100_000; step++) {
+            String key = "I" + random.nextInt(500);
+            int value = random.nextInt(1000);
+            switch (random.nextInt(3)) {
+                case 0:
+                    Integer previous = expected.put(key, value);
+                    assertEquals(previous == null ? IdIndex.NOT_FOUND : previous, index.put(key, value));
+                    break;
+                case 1:
+                    Integer removed = expected.remove(key);
+                    assertEquals(removed == null ? IdIndex.NOT_FOUND : removed, index.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.getOrDefault(key, IdIndex.NOT_FOUND), index.get(key));
+                    break;
+            }
+            assertEquals(expected.size(), index.size());
+        }
+
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), index.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void clearEmptiesTheIndex() {
+        IdIndex index = new IdIndex();
+        index.put("I001", 1);
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertEquals(IdIndex.NOT_FOUND, index.get("I001"));
+        assertEquals(IdIndex.NOT_FOUND, index.put("I001", 2));
+        assertEquals(2, index.get("I001"));
+    }
+}
@@ -0,0 +1,53 @@
+// MoneyTest.java
+package com.stockmanager.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+    @Test
+    void parsesDecimalAmountsIntoCents() {
+        assertEquals(1250, Money.parse("12.5"));
+        assertEquals(300, Money.parse(" 3 "));
+        assertEquals(1, Money.parse("0.01"));
+        assertEquals(-1999, Money.parse("-19.99"));
+    }
+
+    @Test
+    void roundsHalfUpPastTheSecondDecimal() {
+        assertEquals(1235, Money.parse("12.345"));
+        assertEquals(1234, Money.parse("12.3449"));
+        assertEquals(-101, Money.parse("-1.005"));
+    }
+
+    @Test
+    void rejectsTextThatIsNotAnAmount() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("abc"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+        assertThrows(NumberFormatException.class, () -> Money.parse("$12"));
+    }
+
+    @Test
+    void rejectsAmountsTooLargeForALong() {
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1e30"));
+    }
+
+    @Test
+    void formatsCents() {
+        assertEquals("$1,234.56", Money.format(123456));
+        assertEquals("$0.05", Money.format(5));
+        assertEquals("1234.50", Money.toPlainString(123450));
+        assertEquals(12.5, Money.toDouble(1250));
+    }
+
+    @Test
+    void plainStringParsesBack() {
+        for (long cents : new long[] {0, 1, 99, 100, 123456, -250}) {
+            assertEquals(cents, Money.parse(Money.toPlainString(cents)));
+        }
+    }
+}
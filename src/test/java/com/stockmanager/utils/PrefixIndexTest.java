@@ -0,0 +1,72 @@
+// PrefixIndexTest.java
+package com.stockmanager.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixIndexTest {
+    private static PrefixIndex<String> index(String... texts) {
+        PrefixIndex.Builder<String> builder = new PrefixIndex.Builder<>();
+        for (String text : texts) {
+            builder.addText(text, text);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void findsValuesByPrefixIgnoringCase() {
+        PrefixIndex<String> index = index("Laptop", "Desk Chair", "Desk", "Printer");
+
+        List<String> found = index.lookup("DES", 10);
+        Collections.sort(found);
+        assertEquals(Arrays.asList("Desk", "Desk Chair"), found);
+        assertEquals(Collections.singletonList("Printer"), index.lookup("  pri ", 10));
+    }
+
+    @Test
+    void findsValuesByAnyWordOfTheirText() {
+        PrefixIndex<String> index = index("Desk Chair", "A4 paper-reams");
+
+        assertEquals(Collections.singletonList("Desk Chair"), index.lookup("cha", 10));
+        assertEquals(Collections.singletonList("A4 paper-reams"), index.lookup("ream", 10));
+    }
+
+    @Test
+    void returnsEachValueOnce() {
+        // "chair" and "chairs" both start with "chair", and so does the whole text
+        PrefixIndex<String> index = index("Chair chairs");
+
+        assertEquals(Collections.singletonList("Chair chairs"), index.lookup("chair", 10));
+    }
+
+    @Test
+    void stopsAtTheLimit() {
+        PrefixIndex<String> index = index("Desk 1", "Desk 2", "Desk 3");
+
+        assertEquals(2, index.lookup("desk", 2).size());
+    }
+
+    @Test
+    void skipsValuesFailingTheCondition() {
+        PrefixIndex<String> index = index("Desk 1", "Desk 2", "Desk 3");
+
+        List<String> found = index.lookup("desk", 2, value -> !value.equals("Desk 1"));
+        Collections.sort(found);
+        assertEquals(Arrays.asList("Desk 2", "Desk 3"), found);
+    }
+
+    @Test
+    void blankOrUnknownPrefixFindsNothing() {
+        PrefixIndex<String> index = index("Laptop");
+
+        assertTrue(index.lookup("   ", 10).isEmpty());
+        assertTrue(index.lookup("z", 10).isEmpty());
+        assertTrue(new PrefixIndex.Builder<String>().build().lookup("a", 10).isEmpty());
+    }
+}
@@ -0,0 +1,62 @@
+// TrigramIndexTest.java
+package com.stockmanager.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrigramIndexTest {
+    private static final String[] NAMES = {"Laptop", "Desk Chair", "Printer", "Desk"};
+    private static final String[] DESCRIPTIONS = {
+        "High-performance business laptop",
+        "Ergonomic office chair",
+        "Color laser printer",
+        "Standard office desk"
+    };
+
+    @Test
+    void findsMisspelledWords() {
+        TrigramIndex index = TrigramIndex.build(NAMES, DESCRIPTIONS);
+
+        assertEquals(0, index.search("labtop", 5, 0.3)[0]);
+        assertEquals(2, index.search("priner", 5, 0.3)[0]);
+    }
+
+    @Test
+    void ranksPrimaryFieldMatchesFirst() {
+        TrigramIndex index = TrigramIndex.build(new String[] {"Chair", "Desk"},
+                                                new String[] {"For a desk", "Oak"});
+
+        assertArrayEquals(new int[] {1, 0}, index.search("desk", 5, 0.1));
+    }
+
+    @Test
+    void dropsMatchesBelowTheCoverage() {
+        TrigramIndex index = TrigramIndex.build(new String[] {"Chair", "Desk"},
+                                                new String[] {"For a desk", "Oak"});
+
+        // Only a match in the primary field reaches the full score
+        assertArrayEquals(new int[] {1}, index.search("desk", 5, 1.0));
+    }
+
+    @Test
+    void returnsAtMostTheLimit() {
+        TrigramIndex index = TrigramIndex.build(NAMES, DESCRIPTIONS);
+
+        assertEquals(2, index.search("desk", 5, 0.1).length);
+        assertEquals(1, index.search("desk", 1, 0.1).length);
+        assertEquals(0, index.search("desk", 0, 0.1).length);
+    }
+
+    @Test
+    void handlesMissingFieldsAndEmptyQueries() {
+        TrigramIndex index = TrigramIndex.build(new String[] {"Desk", null}, null);
+
+        assertEquals(2, index.getDocumentCount());
+        assertArrayEquals(new int[] {0}, index.search("desk", 5, 0.5));
+        assertEquals(0, index.search("", 5, 0.5).length);
+        assertEquals(0, index.search("  - ", 5, 0.5).length);
+        assertEquals(0, TrigramIndex.build(new String[0], new String[0]).search("desk", 5, 0.5).length);
+    }
+}
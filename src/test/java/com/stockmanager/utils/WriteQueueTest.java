@@ -0,0 +1,174 @@
+// WriteQueueTest.java
+package com.stockmanager.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Grouped writes on one writer thread, against a private in-memory database
+ */
+class WriteQueueTest {
+    private WriteQueue queue;
+    private final List<Thread> submitters = new ArrayList<>();
+
+    @BeforeEach
+    void openQueue() throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE t (id INTEGER PRIMARY KEY)");
+        }
+        queue = new WriteQueue(conn, "test-writer");
+    }
+
+    @AfterEach
+    void closeQueue() {
+        queue.close();
+    }
+
+    private static int insert(Connection conn, int id) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate("INSERT INTO t (id) VALUES (" + id + ")");
+        }
+    }
+
+    private static List<Long> ids(Connection conn) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM t ORDER BY id")) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Hold the writer inside a write until the returned latch is counted down,
+     * so the writes submitted meanwhile are taken as one group
+     */
+    private CountDownLatch holdWriter() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        submitInBackground(conn -> {
+            running.countDown();
+            release.await();
+            return null;
+        }, false, new AtomicReference<>());
+        running.await();
+        return release;
+    }
+
+    private interface Work {
+        Object run(Connection conn) throws Exception;
+    }
+
+    /**
+     * Submit work from a thread of its own, returning once it waits in the queue
+     */
+    private void submitInBackground(Work work, boolean outsideTransaction,
+                                    AtomicReference<Throwable> error) throws InterruptedException {
+        DatabaseHelper.TransactionWork<Object> task = conn -> {
+            try {
+                return work.run(conn);
+            } catch (SQLException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+        Thread thread = new Thread(() -> {
+            try {
+                if (outsideTransaction) {
+                    queue.submitOutsideTransaction(task);
+                } else {
+                    queue.submit(task);
+                }
+            } catch (SQLException | RuntimeException e) {
+                error.set(e);
+            }
+        });
+        submitters.add(thread);
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING && thread.isAlive()) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitSubmitters() throws InterruptedException {
+        for (Thread thread : submitters) {
+            thread.join();
+        }
+    }
+
+    @Test
+    void failedWriteIsUndoneWithoutTheRestOfItsGroup() throws Exception {
+        CountDownLatch release = holdWriter();
+        AtomicReference<Throwable> first = new AtomicReference<>();
+        AtomicReference<Throwable> failed = new AtomicReference<>();
+        AtomicReference<Throwable> last = new AtomicReference<>();
+        submitInBackground(conn -> insert(conn, 1), false, first);
+        submitInBackground(conn -> {
+            insert(conn, 2);
+            throw new SQLException("refused");
+        }, false, failed);
+        submitInBackground(conn -> insert(conn, 3), false, last);
+        release.countDown();
+        awaitSubmitters();
+
+        assertNull(first.get());
+        assertEquals("refused", failed.get().getMessage());
+        assertNull(last.get());
+        assertEquals(Arrays.asList(1L, 3L), queue.submit(WriteQueueTest::ids));
+    }
+
+    @Test
+    void workOutsideTransactionSplitsTheGroupInOrder() throws Exception {
+        CountDownLatch release = holdWriter();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicReference<List<Long>> seen = new AtomicReference<>();
+        AtomicReference<Boolean> autoCommit = new AtomicReference<>();
+        submitInBackground(conn -> insert(conn, 1), false, error);
+        submitInBackground(conn -> {
+            autoCommit.set(conn.getAutoCommit());
+            seen.set(ids(conn));
+            return null;
+        }, true, error);
+        submitInBackground(conn -> insert(conn, 2), false, error);
+        release.countDown();
+        awaitSubmitters();
+
+        assertNull(error.get());
+        assertTrue(autoCommit.get());
+        assertEquals(Arrays.asList(1L), seen.get());
+        assertEquals(Arrays.asList(1L, 2L), queue.submit(WriteQueueTest::ids));
+    }
+
+    @Test
+    void writeSubmittedFromTheWriterJoinsItsTransaction() throws SQLException {
+        assertThrows(SQLException.class, () -> queue.submit(conn -> {
+            insert(conn, 1);
+            queue.submit(inner -> insert(inner, 2));
+            throw new SQLException("refused");
+        }));
+        assertThrows(SQLException.class, () -> queue.submit(conn -> queue.submitOutsideTransaction(WriteQueueTest::ids)));
+
+        assertTrue(queue.submit(WriteQueueTest::ids).isEmpty());
+    }
+}